@@ -1,9 +1,16 @@
 package com.bibliotheque.backend;
 
+import com.bibliotheque.backend.config.NativeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@EnableCaching
+@ImportRuntimeHints(NativeHints.class)
 public class BackendApplication {
 
 	public static void main(String[] args) {
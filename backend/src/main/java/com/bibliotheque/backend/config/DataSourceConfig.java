@@ -0,0 +1,69 @@
+package com.bibliotheque.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool primaire (spring.datasource.*) et réplicas en lecture (datasource.replicas.urls, mêmes
+ * identifiants ; vide : tout passe par le primaire). La connexion n'est prise qu'à la première
+ * requête SQL (LazyConnectionDataSourceProxy) : le drapeau readOnly de la transaction est alors
+ * connu et choisit la source. Les deux côtés passent par QueryCountingDataSource.
+ */
+@Configuration(proxyBeanMethods = false)
+public class DataSourceConfig {
+
+    // Réglages du pool (spring.datasource.hikari.*) : liés ici puisque la source n'est plus auto-configurée
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    public ReplicaRouter replicaRouter(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                       ReadYourWrites readYourWrites, MeterRegistry registry, Environment environment,
+                                       @Value("${datasource.replicas.urls:}") List<String> urls,
+                                       @Value("${datasource.replicas.max-lag-ms:2000}") long maxLagMs,
+                                       @Value("${datasource.replicas.connection-timeout-ms:1000}") long connectionTimeoutMs) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            if (url.isBlank()) continue;
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class).url(url.trim()).build();
+            // Mêmes réglages que le primaire, puis ceux propres aux réplicas
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            // Démarrage possible réplica éteint ; bascule rapide sur le suivant s'il ne répond pas
+            replica.setInitializationFailTimeout(-1);
+            replica.setConnectionTimeout(connectionTimeoutMs);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaRouter(primaryDataSource, replicas, readYourWrites, registry, maxLagMs);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRouter replicaRouter) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(new QueryCountingDataSource(primaryDataSource));
+        proxy.setReadOnlyDataSource(new QueryCountingDataSource(replicaRouter));
+        return proxy;
+    }
+}
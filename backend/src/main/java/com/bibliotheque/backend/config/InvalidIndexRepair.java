@@ -0,0 +1,88 @@
+package com.bibliotheque.backend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.springframework.stereotype.Component;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Après chaque migration Flyway : un CREATE INDEX CONCURRENTLY interrompu laisse un index INVALID,
+ * que IF NOT EXISTS saute au passage suivant (V3). Les index invalides du schéma sont reconstruits
+ * (REINDEX CONCURRENTLY) ; s'il en reste, par exemple un index unique sur des doublons, le
+ * démarrage échoue au lieu de tourner sans l'index.
+ */
+@Slf4j
+@Component
+public class InvalidIndexRepair implements Callback {
+
+    static final String INVALID_INDEXES = """
+            SELECT quote_ident(n.nspname) || '.' || quote_ident(c.relname)
+            FROM pg_index i
+            JOIN pg_class c ON c.oid = i.indexrelid
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE NOT i.indisvalid AND n.nspname = current_schema()
+            ORDER BY 1
+            """;
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.AFTER_MIGRATE;
+    }
+
+    // REINDEX CONCURRENTLY refuse de s'exécuter dans une transaction
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return false;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        try {
+            repair(context.getConnection());
+        } catch (SQLException e) {
+            throw new FlywayException("Contrôle des index invalides impossible : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "invalidIndexRepair";
+    }
+
+    void repair(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try {
+            for (String index : invalidIndexes(connection)) {
+                log.warn("Index {} invalide (construction interrompue), reconstruction", index);
+                try (Statement st = connection.createStatement()) {
+                    st.execute("REINDEX INDEX CONCURRENTLY " + index);
+                } catch (SQLException e) {
+                    log.error("Reconstruction de {} impossible : {}", index, e.getMessage());
+                }
+            }
+            List<String> remaining = invalidIndexes(connection);
+            if (!remaining.isEmpty())
+                throw new FlywayException("Index invalides après migration : " + String.join(", ", remaining)
+                        + ". Corriger la cause (doublons, verrou...), les supprimer puis relancer la migration.");
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static List<String> invalidIndexes(Connection connection) throws SQLException {
+        List<String> indexes = new ArrayList<>();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(INVALID_INDEXES)) {
+            while (rs.next()) indexes.add(rs.getString(1));
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,55 @@
+package com.bibliotheque.backend.config;
+
+import com.bibliotheque.backend.dto.*;
+import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.service.AvailabilityBroadcaster;
+import com.bibliotheque.backend.service.BookService;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Réflexion et ressources invisibles pour l'analyse AOT, nécessaires à l'image native :
+ * classes chargées par leur nom (jjwt), proxys JDK, méthodes appelées en SpEL et types JSON
+ * qui n'apparaissent pas dans une signature de contrôleur (ResponseEntity<?>, sérialisation à la main).
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    // Instanciées par Jwts et Services (jjwt 0.11) via Class.forName
+    private static final String[] JJWT = {
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer",
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (String type : JJWT)
+            hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+        // Proxys JDK de QueryCountingDataSource
+        hints.proxies().registerJdkProxy(Connection.class);
+        hints.proxies().registerJdkProxy(Statement.class);
+        hints.proxies().registerJdkProxy(PreparedStatement.class);
+        hints.proxies().registerJdkProxy(CallableStatement.class);
+
+        // Clé du cache "books" calculée en SpEL : #root.target.cacheKey(#id)
+        hints.reflection().registerType(BookService.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                Book.class, BorrowingView.class, HoldView.class, BatchItemResult.class, ImportReport.class,
+                BookImportRow.class, AvailabilityBroadcaster.Update.class);
+    }
+}
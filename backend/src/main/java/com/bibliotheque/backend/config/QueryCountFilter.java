@@ -0,0 +1,51 @@
+package com.bibliotheque.backend.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import java.io.IOException;
+
+/**
+ * Nombre de requêtes SQL par requête HTTP (Hibernate et JdbcTemplate), publié par endpoint :
+ * une dérive de ce compteur trahit un N+1.
+ */
+@Slf4j
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+    private final int warnThreshold;
+
+    public QueryCountFilter(MeterRegistry registry, @Value("${metrics.db.query-warn-threshold:50}") int warnThreshold) {
+        this.registry = registry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCountingDataSource.start();
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            int queries = QueryCountingDataSource.stop();
+            Object pattern = req.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            DistributionSummary.builder("bibliotheque.db.queries")
+                    .tag("method", req.getMethod())
+                    .tag("uri", uri)
+                    .register(registry)
+                    .record(queries);
+            if (queries > warnThreshold)
+                log.warn("{} requêtes SQL pour {} {}", queries, req.getMethod(), uri);
+        }
+    }
+}
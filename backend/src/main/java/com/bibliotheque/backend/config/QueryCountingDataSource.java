@@ -0,0 +1,77 @@
+package com.bibliotheque.backend.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Compte les requêtes SQL exécutées sur le thread courant au niveau JDBC : Hibernate, JdbcTemplate
+ * et accès directs. Le compteur n'est actif que pendant une requête HTTP (voir QueryCountFilter) ;
+ * un lot (executeBatch) compte pour une requête.
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    public QueryCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    static void start() { COUNT.set(new int[1]); }
+
+    static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, super.getConnection(username, password));
+    }
+
+    // Les instructions créées par la connexion sont enveloppées à leur tour ; execute* incrémente
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(QueryCountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> {
+                        if (method.getName().startsWith("execute")) {
+                            int[] count = COUNT.get();
+                            if (count != null) count[0]++;
+                        }
+                        Object result = invoke(target, method, args);
+                        yield result instanceof Statement statement && method.getDeclaringClass() == Connection.class
+                                ? statement(statement) : result;
+                    }
+                });
+    }
+
+    private static Statement statement(Statement statement) {
+        if (statement instanceof CallableStatement callable) return proxy(CallableStatement.class, callable);
+        if (statement instanceof PreparedStatement prepared) return proxy(PreparedStatement.class, prepared);
+        return proxy(Statement.class, statement);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.bibliotheque.backend.config;
+
+import com.bibliotheque.backend.event.BorrowingEvent;
+import com.bibliotheque.backend.event.HoldEvent;
+import com.bibliotheque.backend.security.AuthenticatedUser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.time.Duration;
+
+/**
+ * Lecture de ses propres écritures : après un emprunt, un retour ou une réservation, les lectures
+ * du lecteur concerné et de l'auteur de l'action restent sur le primaire pendant
+ * {@code datasource.replicas.sticky-ms}, le temps que les réplicas rattrapent leur retard.
+ * Mémoire locale : une seule instance, comme StatsService.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWrites(@Value("${datasource.replicas.sticky-ms:5000}") long stickyMs) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(stickyMs))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void wrote(Long userId) {
+        if (userId != null) recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    /** Vrai si l'utilisateur de la requête courante a écrit récemment. */
+    public boolean mustReadPrimary() {
+        Long userId = currentUserId();
+        return userId != null && recentWriters.getIfPresent(userId) != null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBorrowing(BorrowingEvent event) {
+        wrote(event.userId());
+        wrote(currentUserId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHold(HoldEvent event) {
+        wrote(event.userId());
+        wrote(currentUserId());
+    }
+
+    private static Long currentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof AuthenticatedUser user ? user.id() : null;
+    }
+}
@@ -0,0 +1,121 @@
+package com.bibliotheque.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Source des transactions en lecture seule déclarées par les services : réplicas en tourniquet,
+ * un réplica injoignable ou trop en retard est écarté jusqu'au contrôle suivant, primaire en
+ * dernier recours. Restent sur le primaire les transactions implicites des repositories Spring
+ * Data (readOnly par défaut, hors de tout service) et les lectures d'un utilisateur qui vient
+ * d'écrire (ReadYourWrites).
+ */
+@Slf4j
+public class ReplicaRouter extends AbstractDataSource implements AutoCloseable {
+
+    static final String REPOSITORY_TRANSACTION = "org.springframework.data.";
+
+    // Retard de rejeu en ms ; 0 pour une base qui n'est pas en réplication ou qui a tout rejoué
+    static final String LAG_QUERY = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReadYourWrites readYourWrites;
+    private final long maxLagMs;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter failovers;
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    public ReplicaRouter(DataSource primary, Map<String, DataSource> replicas, ReadYourWrites readYourWrites,
+                         MeterRegistry registry, long maxLagMs) {
+        this.primary = primary;
+        replicas.forEach((name, ds) -> this.replicas.add(new Replica(name, ds)));
+        this.readYourWrites = readYourWrites;
+        this.maxLagMs = maxLagMs;
+        this.failovers = Counter.builder("bibliotheque.datasource.replica.failover").register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!replicaEligible()) return primary.getConnection();
+
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.healthy) continue;
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.healthy = false;
+                log.warn("Réplica {} injoignable, écarté : {}", replica.name, e.getMessage());
+            }
+        }
+        failovers.increment();
+        return primary.getConnection();
+    }
+
+    // Identifiants explicites : ceux des réplicas sont fixés par leurs pools, seul le primaire les reçoit
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    DataSource replica(String name) {
+        return replicas.stream().filter(r -> r.name.equals(name)).findFirst().map(r -> r.dataSource).orElse(null);
+    }
+
+    private boolean replicaEligible() {
+        if (replicas.isEmpty() || readYourWrites.mustReadPrimary()) return false;
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        return name == null || !name.startsWith(REPOSITORY_TRANSACTION);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.health-interval-ms:5000}")
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection c = replica.dataSource.getConnection(); Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery(LAG_QUERY)) {
+                double lagMs = rs.next() ? rs.getDouble(1) : Double.MAX_VALUE;
+                healthy = lagMs <= maxLagMs;
+                if (!healthy) log.warn("Réplica {} en retard de {} ms, écarté", replica.name, (long) lagMs);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy && !replica.healthy) log.info("Réplica {} de nouveau utilisé", replica.name);
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas)
+            if (replica.dataSource instanceof AutoCloseable closeable) closeable.close();
+    }
+}
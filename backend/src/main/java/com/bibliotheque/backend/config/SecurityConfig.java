@@ -1,7 +1,8 @@
 package com.bibliotheque.backend.config;
 
 import com.bibliotheque.backend.security.JwtFilter;
-import lombok.RequiredArgsConstructor;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.*;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.*;
@@ -18,28 +19,32 @@ import org.springframework.web.cors.*;
 import java.util.Arrays;
 import java.util.List;
 
-@Configuration
-@RequiredArgsConstructor
+// Sans proxy CGLIB de la configuration (pas d'appel entre méthodes @Bean) : rien à générer en AOT
+@Configuration(proxyBeanMethods = false)
 @org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity
 public class SecurityConfig {
 
-    private final JwtFilter jwtFilter;
-
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, JwtFilter jwtFilter,
+                                           CorsConfigurationSource corsConfigurationSource) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
-                .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+                .cors(cors -> cors.configurationSource(corsConfigurationSource))
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Requête déjà autorisée à l'envoi : la redistribution async (SSE, NDJSON) ne l'est pas à nouveau
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers("/api/auth/**", "/error", "/error/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/books", "/api/books/**").authenticated()
                         .requestMatchers(HttpMethod.POST, "/api/books", "/api/books/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/books", "/api/books/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/books", "/api/books/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers("/api/borrowings", "/api/borrowings/**").authenticated()
                         .requestMatchers("/api/stats", "/api/stats/**").authenticated()
+                        .requestMatchers("/api/events/**").authenticated()
                         .requestMatchers("/api/users/**").hasAuthority("ROLE_ADMIN")
                         .anyRequest().authenticated()
                 )
@@ -48,6 +53,14 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // JwtFilter ne tourne que dans la chaîne de sécurité, pas en plus comme filtre servlet
+    @Bean
+    public FilterRegistrationBean<JwtFilter> jwtFilterRegistration(JwtFilter jwtFilter) {
+        FilterRegistrationBean<JwtFilter> registration = new FilterRegistrationBean<>(jwtFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration config = new CorsConfiguration();
@@ -62,7 +75,7 @@ public class SecurityConfig {
                 "GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"
         ));
         config.setAllowedHeaders(List.of("*"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setExposedHeaders(List.of("Authorization", "X-Next-Cursor"));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
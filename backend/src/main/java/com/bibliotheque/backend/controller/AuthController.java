@@ -1,22 +1,41 @@
 package com.bibliotheque.backend.controller;
 
 import com.bibliotheque.backend.dto.*;
+import com.bibliotheque.backend.security.LoginRateLimiter;
 import com.bibliotheque.backend.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController @RequestMapping("/api/auth") @RequiredArgsConstructor
 public class AuthController {
     private final AuthService authService;
+    private final LoginRateLimiter rateLimiter;
 
+    // Réponses asynchrones : le thread Tomcat est libéré pendant le hachage BCrypt
     @PostMapping("/register")
-    public ResponseEntity<JwtResponse> register(@RequestBody RegisterRequest req) {
-        return ResponseEntity.ok(authService.register(req));
+    public CompletableFuture<ResponseEntity<JwtResponse>> register(@RequestBody RegisterRequest req,
+                                                                   HttpServletRequest http) {
+        rateLimiter.checkRegistration(http.getRemoteAddr());
+        return authService.registerAsync(req).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<JwtResponse> login(@RequestBody LoginRequest req) {
-        return ResponseEntity.ok(authService.login(req));
+    public CompletableFuture<ResponseEntity<JwtResponse>> login(@RequestBody LoginRequest req,
+                                                                HttpServletRequest http) {
+        String ip = http.getRemoteAddr();
+        rateLimiter.check(req.getUsername(), ip);
+        return authService.loginAsync(req)
+                .whenComplete((jwt, e) -> {
+                    // Seuls les mauvais identifiants comptent, pas une panne ou un pool saturé
+                    if (e == null) rateLimiter.succeeded(req.getUsername());
+                    else if ((e instanceof CompletionException ? e.getCause() : e) instanceof AuthenticationException)
+                        rateLimiter.failed(req.getUsername(), ip);
+                })
+                .thenApply(ResponseEntity::ok);
     }
 }
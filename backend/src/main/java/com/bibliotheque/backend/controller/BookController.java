@@ -1,11 +1,21 @@
 package com.bibliotheque.backend.controller;
 
 import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.service.BookImportService;
 import com.bibliotheque.backend.service.BookService;
+import com.bibliotheque.backend.service.CatalogVersion;
+import com.bibliotheque.backend.service.NdjsonExporter;
+import com.bibliotheque.backend.service.RecommendationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/books")
@@ -13,15 +23,48 @@ import java.util.List;
 public class BookController {
 
     private final BookService bookService;
+    private final NdjsonExporter ndjsonExporter;
+    private final BookImportService bookImportService;
+    private final CatalogVersion catalogVersion;
+    private final RecommendationService recommendationService;
 
     @GetMapping
-    public List<Book> getAll() { return bookService.getAll(); }
+    public ResponseEntity<List<Book>> getAll(@RequestParam(required = false) Long after,
+                                             @RequestParam(required = false) Integer size,
+                                             WebRequest request) {
+        return ConditionalResponse.of(request, catalogVersion, () -> {
+            if (!KeysetPage.requested(after, size)) return ResponseEntity.ok(bookService.getAll());
+            Limit limit = KeysetPage.limit(size);
+            return KeysetPage.of(bookService.getPage(KeysetPage.after(after), limit), limit, Book::getId);
+        });
+    }
+
+    @GetMapping(produces = NdjsonExporter.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonExporter.export(bookService::streamAll);
+    }
 
     @GetMapping("/{id}")
-    public Book getById(@PathVariable Long id) { return bookService.getById(id); }
+    public ResponseEntity<Book> getById(@PathVariable Long id, WebRequest request) {
+        return ConditionalResponse.of(request, catalogVersion, () -> ResponseEntity.ok(bookService.getById(id)));
+    }
+
+    // « Les lecteurs de ce livre ont aussi emprunté »
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<List<Book>> recommendations(@PathVariable Long id,
+                                                      @RequestParam(defaultValue = "10") int limit,
+                                                      WebRequest request) {
+        return ConditionalResponse.of(request, catalogVersion,
+                () -> ResponseEntity.ok(recommendationService.recommend(id, Math.min(Math.max(limit, 1), 50))));
+    }
 
     @GetMapping("/search")
-    public List<Book> search(@RequestParam String q) { return bookService.search(q); }
+    public ResponseEntity<List<Book>> search(@RequestParam String q,
+                                             @RequestParam(defaultValue = "20") int limit,
+                                             WebRequest request) {
+        return ConditionalResponse.of(request, catalogVersion,
+                () -> ResponseEntity.ok(bookService.search(q, Math.min(Math.max(limit, 1), 100))));
+    }
 
     @PostMapping
     public ResponseEntity<?> create(@RequestBody Book book) {
@@ -32,6 +75,18 @@ public class BookController {
         }
     }
 
+    // Import massif : corps text/csv (title,author,isbn,stock) ou application/x-ndjson
+    @PostMapping(value = "/import", consumes = {"text/csv", NdjsonExporter.NDJSON})
+    public ResponseEntity<?> importBooks(@RequestHeader("Content-Type") MediaType contentType,
+                                         InputStream body) {
+        try {
+            boolean csv = contentType.isCompatibleWith(MediaType.parseMediaType("text/csv"));
+            return ResponseEntity.ok(bookImportService.importBooks(body, csv));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> update(@PathVariable Long id, @RequestBody Book book) {
         try {
@@ -1,14 +1,20 @@
 package com.bibliotheque.backend.controller;
 
-import com.bibliotheque.backend.entity.Borrowing;
-import com.bibliotheque.backend.repository.BorrowingRepository;
+import com.bibliotheque.backend.dto.BatchItemResult;
+import com.bibliotheque.backend.dto.BorrowingView;
+import com.bibliotheque.backend.dto.HoldView;
 import com.bibliotheque.backend.repository.UserRepository;
+import com.bibliotheque.backend.security.AuthenticatedUser;
 import com.bibliotheque.backend.service.BorrowingService;
+import com.bibliotheque.backend.service.HoldService;
+import com.bibliotheque.backend.service.NdjsonExporter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 import java.util.Map;
 
@@ -20,39 +26,55 @@ public class BorrowingController {
 
     private final BorrowingService borrowingService;
     private final UserRepository userRepository;
-    private final BorrowingRepository borrowingRepository;
+    private final NdjsonExporter ndjsonExporter;
+    private final HoldService holdService;
 
     @GetMapping("/my")
-    public List<Borrowing> myBorrowings(Authentication auth) {
-        Long userId = userRepository.findByUsername(auth.getName())
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"))
-                .getId();
+    public List<BorrowingView> myBorrowings(@AuthenticationPrincipal AuthenticatedUser principal) {
+        Long userId = userId(principal);
         return borrowingService.getUserBorrowings(userId);
     }
 
+    // Toujours paginé (table chaude et archives) : l'export complet passe par le flux NDJSON
     @GetMapping
-    public List<Borrowing> getAll() {
-        return borrowingService.getAll();
+    public ResponseEntity<List<BorrowingView>> getAll(@RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Integer size) {
+        Limit limit = KeysetPage.limit(size);
+        return KeysetPage.of(borrowingService.getPage(KeysetPage.after(after), limit), limit, BorrowingView::getId);
+    }
+
+    @GetMapping(produces = NdjsonExporter.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonExporter.export(borrowingService::streamAll);
     }
 
     @PostMapping("/borrow")
     public ResponseEntity<?> borrow(@RequestBody Map<String, Long> body,
-                                    Authentication auth) {
+                                    @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
-            Long userId = userRepository.findByUsername(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"))
-                    .getId();
+            Long userId = userId(principal);
             Long bookId = body.get("bookId");
-            Borrowing b = borrowingService.borrow(userId, bookId);
+            BorrowingView b = borrowingService.borrow(userId, bookId);
             return ResponseEntity.ok(b);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
+    @PostMapping("/borrow/batch")
+    public ResponseEntity<?> borrowBatch(@RequestBody Map<String, List<Long>> body,
+                                         @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            List<BatchItemResult> results = borrowingService.borrowAll(userId(principal), body.get("bookIds"));
+            return ResponseEntity.ok(results);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/return")
     public ResponseEntity<?> returnBook(@RequestBody Map<String, Long> body,
-                                        Authentication auth) {
+                                        @AuthenticationPrincipal AuthenticatedUser principal) {
         try {
             Long bookId = body.get("bookId");
             Long borrowingId = body.get("borrowingId");
@@ -60,23 +82,76 @@ public class BorrowingController {
             if (borrowingId != null) {
                 // Admin might use this, but we should check role or allow it if authenticated
                 // Actually let's make it explicit for Admin
-                Borrowing b = borrowingService.returnBookByBorrowingId(borrowingId);
+                BorrowingView b = borrowingService.returnBookByBorrowingId(borrowingId);
                 return ResponseEntity.ok(b);
             }
 
-            Long userId = userRepository.findByUsername(auth.getName())
-                    .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"))
-                    .getId();
-            Borrowing b = borrowingService.returnBook(userId, bookId);
+            Long userId = userId(principal);
+            BorrowingView b = borrowingService.returnBook(userId, bookId);
             return ResponseEntity.ok(b);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
+    @PostMapping("/return/batch")
+    public ResponseEntity<?> returnBatch(@RequestBody Map<String, List<Long>> body,
+                                         @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            List<BatchItemResult> results = borrowingService.returnAll(userId(principal), body.get("bookIds"));
+            return ResponseEntity.ok(results);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/active")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public List<Borrowing> getActive() {
-        return borrowingRepository.findByReturnedAtIsNull();
+    public ResponseEntity<List<BorrowingView>> getActive(@RequestParam(required = false) Long after,
+                                                     @RequestParam(required = false) Integer size) {
+        if (!KeysetPage.requested(after, size)) return ResponseEntity.ok(borrowingService.getActive());
+        Limit limit = KeysetPage.limit(size);
+        return KeysetPage.of(borrowingService.getActivePage(KeysetPage.after(after), limit), limit, BorrowingView::getId);
+    }
+
+    @GetMapping(value = "/active", produces = NdjsonExporter.NDJSON)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamActive() {
+        return ndjsonExporter.export(borrowingService::streamActive);
+    }
+
+    @GetMapping("/holds/my")
+    public List<HoldView> myHolds(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return holdService.getUserHolds(userId(principal));
+    }
+
+    @PostMapping("/holds")
+    public ResponseEntity<?> placeHold(@RequestBody Map<String, Long> body,
+                                       @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            HoldView hold = holdService.place(userId(principal), body.get("bookId"));
+            return ResponseEntity.ok(hold);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/holds/{id}")
+    public ResponseEntity<?> cancelHold(@PathVariable Long id,
+                                        @AuthenticationPrincipal AuthenticatedUser principal) {
+        try {
+            holdService.cancel(userId(principal), id);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private Long userId(AuthenticatedUser principal) {
+        if (principal.id() != null) return principal.id();
+        // Jetons émis avant l'ajout de la claim "uid" : repli sur une recherche par nom
+        return userRepository.findByUsername(principal.username())
+                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"))
+                .getId();
     }
 }
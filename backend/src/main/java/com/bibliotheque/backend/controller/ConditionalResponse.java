@@ -0,0 +1,38 @@
+package com.bibliotheque.backend.controller;
+
+import com.bibliotheque.backend.service.CatalogVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import java.util.function.Supplier;
+
+/**
+ * GET conditionnel sur le catalogue : ETag faible tiré de CatalogVersion, 304 sans calculer
+ * la réponse quand If-None-Match correspond. Le navigateur garde la réponse mais revalide
+ * à chaque fois (réponses authentifiées : private, no-cache).
+ */
+final class ConditionalResponse {
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private ConditionalResponse() {}
+
+    static <T> ResponseEntity<T> of(WebRequest request, CatalogVersion version, Supplier<ResponseEntity<T>> response) {
+        return of(request, version, "", response);
+    }
+
+    /** {@code variant} : ce qui change la réponse sans écriture (ex. la date pour une fenêtre glissante). */
+    static <T> ResponseEntity<T> of(WebRequest request, CatalogVersion version, String variant,
+                                    Supplier<ResponseEntity<T>> response) {
+        // Version lue avant la réponse : au pire l'ETag est plus ancien que le contenu
+        String etag = "W/\"" + version.current() + (variant.isEmpty() ? "" : "-" + variant) + "\"";
+        // checkNotModified() pose lui-même l'ETag sur la réponse 304
+        if (request.checkNotModified(etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CACHE_CONTROL).build();
+
+        ResponseEntity<T> full = response.get();
+        return ResponseEntity.status(full.getStatusCode()).headers(full.getHeaders())
+                .eTag(etag).cacheControl(CACHE_CONTROL).body(full.getBody());
+    }
+}
@@ -0,0 +1,38 @@
+package com.bibliotheque.backend.controller;
+
+import com.bibliotheque.backend.service.AvailabilityBroadcaster;
+import com.bibliotheque.backend.security.SseTickets;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.Map;
+
+/**
+ * Flux SSE des disponibilités. EventSource ne permet pas d'en-tête Authorization : le client
+ * échange d'abord son JWT contre un ticket à usage unique, passé en paramètre {@code ticket}
+ * (voir JwtFilter).
+ */
+@RestController
+@RequestMapping("/api/events")
+@RequiredArgsConstructor
+public class EventController {
+
+    private final AvailabilityBroadcaster broadcaster;
+    private final SseTickets sseTickets;
+
+    @PostMapping("/ticket")
+    public Map<String, String> ticket(Authentication auth) {
+        return Map.of("ticket", sseTickets.issue(auth));
+    }
+
+    @GetMapping(value = "/availability", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> availability() {
+        SseEmitter emitter = broadcaster.subscribe();
+        if (emitter == null) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+    }
+}
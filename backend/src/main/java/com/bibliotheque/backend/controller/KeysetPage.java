@@ -0,0 +1,43 @@
+package com.bibliotheque.backend.controller;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pagination par curseur : le client renvoie la valeur de l'en-tête X-Next-Cursor
+ * dans le paramètre {@code after} pour obtenir la page suivante.
+ */
+final class KeysetPage {
+
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    private static final int DEFAULT_SIZE = 50;
+    static final int MAX_SIZE = 500;
+
+    private KeysetPage() {}
+
+    static boolean requested(Long after, Integer size) {
+        return after != null || size != null;
+    }
+
+    // Curseur non numérique : 400 par la conversion du paramètre ; négatif : jamais émis par le serveur
+    static long after(Long after) {
+        if (after != null && after < 0) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Curseur invalide.");
+        return after == null ? 0L : after;
+    }
+
+    static Limit limit(Integer size) {
+        return Limit.of(size == null ? DEFAULT_SIZE : Math.min(Math.max(size, 1), MAX_SIZE));
+    }
+
+    static <T> ResponseEntity<List<T>> of(List<T> rows, Limit limit, Function<T, Long> cursor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (rows.size() == limit.max())
+            response.header(NEXT_CURSOR, String.valueOf(cursor.apply(rows.get(rows.size() - 1))));
+        return response.body(rows);
+    }
+}
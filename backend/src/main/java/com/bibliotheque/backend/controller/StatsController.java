@@ -1,21 +1,43 @@
 package com.bibliotheque.backend.controller;
 
+import com.bibliotheque.backend.service.CatalogVersion;
 import com.bibliotheque.backend.service.StatsService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import java.time.LocalDate;
 import java.util.*;
 
 @RestController @RequestMapping("/api/stats") @RequiredArgsConstructor
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
 public class StatsController {
     private final StatsService statsService;
+    private final CatalogVersion catalogVersion;
 
     @GetMapping("/top-books")
-    public List<Map<String, Object>> topBooks() { return statsService.getTopBooks(); }
+    public ResponseEntity<List<Map<String, Object>>> topBooks(@RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) Integer days,
+                                                              WebRequest request) {
+        return ConditionalResponse.of(request, catalogVersion, window(days),
+                () -> ResponseEntity.ok(statsService.getTopBooks(limit, days)));
+    }
 
     @GetMapping("/top-users")
-    public List<Map<String, Object>> topUsers() { return statsService.getTopUsers(); }
+    public ResponseEntity<List<Map<String, Object>>> topUsers(@RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) Integer days,
+                                                              WebRequest request) {
+        return ConditionalResponse.of(request, catalogVersion, window(days),
+                () -> ResponseEntity.ok(statsService.getTopUsers(limit, days)));
+    }
 
     @GetMapping("/general")
-    public Map<String, Long> generalStats() { return statsService.getGeneralStats(); }
+    public ResponseEntity<Map<String, Long>> generalStats(WebRequest request) {
+        return ConditionalResponse.of(request, catalogVersion, () -> ResponseEntity.ok(statsService.getGeneralStats()));
+    }
+
+    // Une fenêtre glissante change avec la date, même sans écriture
+    private static String window(Integer days) {
+        return days == null ? "" : LocalDate.now().toString();
+    }
 }
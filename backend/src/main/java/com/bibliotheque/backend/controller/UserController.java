@@ -2,12 +2,15 @@ package com.bibliotheque.backend.controller;
 
 import com.bibliotheque.backend.entity.User;
 import com.bibliotheque.backend.repository.UserRepository;
+import com.bibliotheque.backend.service.NdjsonExporter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +21,7 @@ import java.util.Map;
 public class UserController {
 
     private final UserRepository userRepository;
+    private final NdjsonExporter ndjsonExporter;
 
     @GetMapping("/ping")
     public String ping() {
@@ -26,8 +30,17 @@ public class UserController {
 
     @GetMapping
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
-    public List<User> getAll() {
-        return userRepository.findAll();
+    public ResponseEntity<List<User>> getAll(@RequestParam(required = false) Long after,
+                                             @RequestParam(required = false) Integer size) {
+        if (!KeysetPage.requested(after, size)) return ResponseEntity.ok(userRepository.findAll());
+        Limit limit = KeysetPage.limit(size);
+        return KeysetPage.of(userRepository.findByIdGreaterThanOrderByIdAsc(KeysetPage.after(after), limit), limit, User::getId);
+    }
+
+    @GetMapping(produces = NdjsonExporter.NDJSON)
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonExporter.export(userRepository::streamAll);
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,19 @@
+package com.bibliotheque.backend.dto;
+
+import lombok.*;
+
+@Data @AllArgsConstructor
+public class BatchItemResult {
+    private Long bookId;
+    private boolean success;
+    private BorrowingView borrowing;
+    private String error;
+
+    public static BatchItemResult ok(Long bookId, BorrowingView borrowing) {
+        return new BatchItemResult(bookId, true, borrowing, null);
+    }
+
+    public static BatchItemResult failed(Long bookId, String error) {
+        return new BatchItemResult(bookId, false, null, error);
+    }
+}
@@ -0,0 +1,4 @@
+package com.bibliotheque.backend.dto;
+
+/** Ligne d'un flux d'import (CSV : title,author,isbn,stock — ou un objet JSON par ligne). */
+public record BookImportRow(String title, String author, String isbn, Integer stock) {}
@@ -0,0 +1,50 @@
+package com.bibliotheque.backend.dto;
+
+import com.bibliotheque.backend.entity.Borrowing;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Vue en lecture d'un emprunt : uniquement les colonnes affichées par le frontend,
+ * chargées en une seule requête (projection JPQL) au lieu du graphe User/Book complet.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class BorrowingView {
+    private Long id;
+    private BookSummary book;
+    private UserSummary user;
+    private LocalDateTime borrowedAt;
+    private LocalDateTime dueAt;
+    private LocalDateTime returnedAt;
+    private BigDecimal fine;
+
+    // Utilisé par les requêtes "SELECT new ..." de BorrowingRepository
+    public BorrowingView(Long id, Long bookId, String title, String author, String isbn,
+                         Long userId, String username, LocalDateTime borrowedAt,
+                         LocalDateTime dueAt, LocalDateTime returnedAt, BigDecimal fine) {
+        this(id, new BookSummary(bookId, title, author, isbn), new UserSummary(userId, username),
+                borrowedAt, dueAt, returnedAt, fine);
+    }
+
+    public static BorrowingView of(Borrowing b) {
+        return new BorrowingView(b.getId(),
+                b.getBook().getId(), b.getBook().getTitle(), b.getBook().getAuthor(), b.getBook().getIsbn(),
+                b.getUser().getId(), b.getUser().getUsername(),
+                b.getBorrowedAt(), b.getDueAt(), b.getReturnedAt(), b.getFine());
+    }
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    public static class BookSummary {
+        private Long id;
+        private String title;
+        private String author;
+        private String isbn;
+    }
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    public static class UserSummary {
+        private Long id;
+        private String username;
+    }
+}
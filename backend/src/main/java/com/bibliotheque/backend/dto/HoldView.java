@@ -0,0 +1,18 @@
+package com.bibliotheque.backend.dto;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+/** Réservation ouverte d'un lecteur ; position dans la file (1 = prochain servi) tant qu'elle attend. */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class HoldView {
+    private Long id;
+    private Long bookId;
+    private String title;
+    private String author;
+    private String status;
+    private Integer position;
+    private LocalDateTime createdAt;
+    private LocalDateTime readyAt;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,14 @@
+package com.bibliotheque.backend.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Data @AllArgsConstructor
+public class ImportReport {
+    private long rowsRead;
+    private long rowsWritten;
+    private long rowsRejected;
+    private List<String> errors;
+    private long elapsedMs;
+    private long rowsPerSecond;
+}
@@ -2,6 +2,7 @@ package com.bibliotheque.backend.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -16,20 +17,30 @@ public class Borrowing {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
 
     @Column(name = "borrowed_at", nullable = false)
     private LocalDateTime borrowedAt;
 
+    @Column(name = "due_at")
+    private LocalDateTime dueAt;
+
     @Column(name = "returned_at")
     private LocalDateTime returnedAt;
 
+    // Renseigné par OverdueLoanService quand l'emprunt passe en retard
+    @Column(name = "overdue_at")
+    private LocalDateTime overdueAt;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal fine;
+
     @PrePersist
     protected void onCreate() {
         if (borrowedAt == null) borrowedAt = LocalDateTime.now();
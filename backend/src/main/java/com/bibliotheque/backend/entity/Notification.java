@@ -0,0 +1,39 @@
+package com.bibliotheque.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/** Notification en file d'envoi ; sentAt reste vide tant qu'elle n'a pas été envoyée. */
+@Entity
+@Table(name = "notifications", uniqueConstraints =
+        @UniqueConstraint(name = "uq_notifications_borrowing_type", columnNames = {"borrowing_id", "type"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Notification {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "borrowing_id")
+    private Long borrowingId;
+
+    @Column(nullable = false, length = 30)
+    private String type;
+
+    @Column(nullable = false, length = 500)
+    private String message;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
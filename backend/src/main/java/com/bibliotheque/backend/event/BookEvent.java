@@ -0,0 +1,12 @@
+package com.bibliotheque.backend.event;
+
+/**
+ * Publié par BookService lors d'une modification du catalogue.
+ * {@code stockBefore} est null pour une création, {@code stockAfter} pour une suppression.
+ */
+public record BookEvent(Long bookId, Integer stockBefore, Integer stockAfter) {
+
+    public boolean created() { return stockBefore == null; }
+
+    public boolean deleted() { return stockAfter == null; }
+}
@@ -0,0 +1,18 @@
+package com.bibliotheque.backend.event;
+
+import com.bibliotheque.backend.dto.BorrowingView;
+
+/**
+ * Publié par BorrowingService à chaque emprunt ou retour ; les écouteurs le reçoivent après commit.
+ * {@code stockAfter} est null quand le stock n'a pas bougé : exemplaire mis de côté par une réservation.
+ */
+public record BorrowingEvent(Type type, BorrowingView borrowing, Integer stockAfter) {
+
+    public enum Type { BORROWED, RETURNED }
+
+    public Long bookId() { return borrowing.getBook().getId(); }
+
+    public Long userId() { return borrowing.getUser().getId(); }
+
+    public boolean stockChanged() { return stockAfter != null; }
+}
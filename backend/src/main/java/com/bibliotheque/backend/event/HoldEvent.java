@@ -0,0 +1,10 @@
+package com.bibliotheque.backend.event;
+
+/**
+ * Publié par HoldService à chaque changement d'état d'une réservation ; reçu après commit
+ * par le miroir en mémoire des files (HoldQueues).
+ */
+public record HoldEvent(Type type, long userId, long bookId) {
+
+    public enum Type { PLACED, READY, CLOSED }
+}
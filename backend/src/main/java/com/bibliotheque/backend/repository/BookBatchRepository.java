@@ -0,0 +1,42 @@
+package com.bibliotheque.backend.repository;
+
+import com.bibliotheque.backend.dto.BookImportRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Écriture du catalogue par lots JDBC : contourne l'insertion ligne à ligne imposée
+ * par GenerationType.IDENTITY sur Book.id.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookBatchRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Insère ou met à jour (clé : isbn) toutes les lignes en un seul lot. Le stock du flux compte
+     * les exemplaires possédés : pour un livre déjà connu, le stock en rayon devient ce nombre moins
+     * les emprunts en cours et les exemplaires mis de côté (READY), sans descendre sous zéro.
+     * À appeler dans une transaction : les livres existants sont verrouillés d'abord, aucun emprunt
+     * ni retour ne peut se glisser entre le comptage et la mise à jour.
+     */
+    public int[] upsert(List<BookImportRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String[] isbns = rows.stream().map(BookImportRow::isbn).toArray(String[]::new);
+        jdbc.queryForList("SELECT id FROM books WHERE isbn = ANY(?) ORDER BY id FOR UPDATE", Long.class, (Object) isbns);
+        List<Object[]> args = rows.stream()
+                .map(r -> new Object[]{r.title(), r.author(), r.isbn(), r.stock(), now})
+                .toList();
+        return jdbc.batchUpdate("INSERT INTO books (title, author, isbn, stock, created_at) " +
+                "VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT (isbn) DO UPDATE SET title = EXCLUDED.title, " +
+                "author = EXCLUDED.author, stock = GREATEST(0, EXCLUDED.stock " +
+                "- (SELECT count(*) FROM borrowings b WHERE b.book_id = books.id AND b.returned_at IS NULL) " +
+                "- (SELECT count(*) FROM holds h WHERE h.book_id = books.id AND h.status = 'READY'))", args);
+    }
+}
@@ -1,10 +1,17 @@
 package com.bibliotheque.backend.repository;
 
 import com.bibliotheque.backend.entity.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
     @Query("SELECT b FROM Book b WHERE " +
@@ -13,6 +20,23 @@ public interface BookRepository extends JpaRepository<Book, Long> {
             "LOWER(b.isbn) LIKE LOWER(CONCAT('%', :q, '%'))")
     List<Book> search(@Param("q") String query);
 
+    // Pagination par curseur (keyset) : WHERE id > :after ORDER BY id, via la clé primaire
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAll();
+
+    // Stock courant d'un lot de livres, lignes [id, stock] ; un livre supprimé n'apparaît pas
+    @Query("SELECT b.id, b.stock FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findStocksByIds(@Param("ids") Collection<Long> ids);
+
+    // Existence d'un lot de livres sur l'index de la clé primaire, sans charger les entités
+    @Query("SELECT b.id FROM Book b WHERE b.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
     long countByStockGreaterThan(int stock);
     long countByStockEquals(int stock);
 }
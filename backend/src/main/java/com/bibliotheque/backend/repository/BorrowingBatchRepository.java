@@ -0,0 +1,155 @@
+package com.bibliotheque.backend.repository;
+
+import com.bibliotheque.backend.dto.BorrowingView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Requêtes ensemblistes des emprunts/retours groupés et retour unitaire en une requête
+ * (PostgreSQL : RETURNING, ON CONFLICT). Partage la connexion de la transaction JPA en cours.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BorrowingBatchRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    // Seule traduction SQL de LoanPolicy.fine, au retour comme au passage en retard : jour de retard
+    // entamé dû, plafonné. Paramètres :finePerDay et :maxFine
+    static String fineAt(String dueAt, String at) {
+        return "LEAST(:maxFine, CEIL(EXTRACT(EPOCH FROM (" + at + " - " + dueAt + ")) / 86400) * :finePerDay)";
+    }
+
+    static final String FINE_AT_RETURN = "CASE WHEN due_at < :returnedAt THEN " + fineAt("due_at", ":returnedAt") +
+            " ELSE fine END";
+
+    /** Décrémente le stock des livres disponibles ; renvoie livre → stock restant. */
+    public Map<Long, Integer> reserveStock(Collection<Long> bookIds) {
+        return stockByBook("UPDATE books SET stock = stock - 1 " +
+                "WHERE id IN (:ids) AND stock > 0 RETURNING id, stock", bookIds);
+    }
+
+    /** Incrémente le stock ; renvoie livre → nouveau stock. */
+    public Map<Long, Integer> releaseStock(Collection<Long> bookIds) {
+        return stockByBook("UPDATE books SET stock = stock + 1 WHERE id IN (:ids) RETURNING id, stock", bookIds);
+    }
+
+    /**
+     * Insère un emprunt actif par livre en un seul lot JDBC. Un compteur à 0 signale un emprunt
+     * actif déjà existant (index unique partiel uq_borrowings_active_loan).
+     */
+    public int[] insertActiveLoans(Long userId, List<Long> bookIds, LocalDateTime borrowedAt, LocalDateTime dueAt) {
+        SqlParameterSource[] rows = bookIds.stream()
+                .map(bookId -> new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("bookId", bookId)
+                        .addValue("borrowedAt", Timestamp.valueOf(borrowedAt))
+                        .addValue("dueAt", Timestamp.valueOf(dueAt)))
+                .toArray(SqlParameterSource[]::new);
+        return jdbc.batchUpdate("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at) " +
+                "VALUES (:userId, :bookId, :borrowedAt, :dueAt) " +
+                "ON CONFLICT (user_id, book_id) WHERE returned_at IS NULL DO NOTHING", rows);
+    }
+
+    /**
+     * Clôture les emprunts actifs de l'utilisateur sur ces livres et arrête leur amende ;
+     * renvoie emprunt → livre.
+     */
+    public Map<Long, Long> closeActiveLoans(Long userId, Collection<Long> bookIds, LocalDateTime returnedAt,
+                                            BigDecimal finePerDay, BigDecimal maxFine) {
+        Map<Long, Long> closed = new LinkedHashMap<>();
+        jdbc.query("UPDATE borrowings SET returned_at = :returnedAt, fine = " + FINE_AT_RETURN +
+                        " WHERE user_id = :userId AND book_id IN (:ids) AND returned_at IS NULL " +
+                        "RETURNING id, book_id",
+                new MapSqlParameterSource()
+                        .addValue("returnedAt", Timestamp.valueOf(returnedAt))
+                        .addValue("finePerDay", finePerDay)
+                        .addValue("maxFine", maxFine)
+                        .addValue("userId", userId)
+                        .addValue("ids", bookIds),
+                rs -> { closed.put(rs.getLong("id"), rs.getLong("book_id")); });
+        return closed;
+    }
+
+    /**
+     * Livre rendu : vue de l'emprunt clos et stock après retour. {@code released} est faux si une
+     * réservation attendait le livre : le stock n'a pas bougé, l'exemplaire revient à HoldService.
+     */
+    public record ReturnedLoan(BorrowingView view, int stock, boolean released) {}
+
+    // Clôture, arrêt de l'amende et remise en stock en un aller-retour. Un double retour concurrent
+    // attend le verrou de ligne puis ne trouve plus d'emprunt actif : stock incrémenté une fois.
+    private static final String RETURN_LOAN = """
+            WITH closed AS (
+                UPDATE borrowings
+                SET returned_at = :returnedAt, fine = %s
+                WHERE %s AND returned_at IS NULL
+                RETURNING id, user_id, book_id, borrowed_at, due_at, returned_at, fine
+            ), stocked AS (
+                UPDATE books b SET stock = b.stock + 1
+                FROM closed
+                WHERE b.id = closed.book_id
+                  AND NOT EXISTS (SELECT 1 FROM holds h WHERE h.book_id = closed.book_id AND h.status = 'WAITING')
+                RETURNING b.id, b.stock
+            )
+            SELECT c.id, c.book_id, b.title, b.author, b.isbn, c.user_id, u.username,
+                   c.borrowed_at, c.due_at, c.returned_at, c.fine,
+                   COALESCE(s.stock, b.stock) AS stock, s.id IS NOT NULL AS released
+            FROM closed c
+            JOIN books b ON b.id = c.book_id
+            JOIN users u ON u.id = c.user_id
+            LEFT JOIN stocked s ON s.id = c.book_id
+            """;
+
+    /** Retour de l'emprunt actif (user_id, book_id), lu sur l'index unique partiel ; vide s'il n'y en a pas. */
+    public Optional<ReturnedLoan> returnActiveLoan(Long userId, Long bookId, LocalDateTime returnedAt,
+                                                   BigDecimal finePerDay, BigDecimal maxFine) {
+        return returnLoan("user_id = :userId AND book_id = :bookId", returnedAt, finePerDay, maxFine,
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("bookId", bookId));
+    }
+
+    /** Retour d'un emprunt par son id ; vide s'il n'existe pas ou est déjà rendu. */
+    public Optional<ReturnedLoan> returnLoan(Long borrowingId, LocalDateTime returnedAt,
+                                             BigDecimal finePerDay, BigDecimal maxFine) {
+        return returnLoan("id = :id", returnedAt, finePerDay, maxFine,
+                new MapSqlParameterSource("id", borrowingId));
+    }
+
+    private Optional<ReturnedLoan> returnLoan(String match, LocalDateTime returnedAt, BigDecimal finePerDay,
+                                              BigDecimal maxFine, MapSqlParameterSource params) {
+        params.addValue("returnedAt", Timestamp.valueOf(returnedAt))
+                .addValue("finePerDay", finePerDay)
+                .addValue("maxFine", maxFine);
+        List<ReturnedLoan> returned = jdbc.query(RETURN_LOAN.formatted(FINE_AT_RETURN, match), params,
+                (rs, i) -> new ReturnedLoan(new BorrowingView(rs.getLong("id"),
+                        rs.getLong("book_id"), rs.getString("title"), rs.getString("author"), rs.getString("isbn"),
+                        rs.getLong("user_id"), rs.getString("username"),
+                        rs.getTimestamp("borrowed_at").toLocalDateTime(),
+                        localDateTime(rs.getTimestamp("due_at")),
+                        rs.getTimestamp("returned_at").toLocalDateTime(),
+                        rs.getBigDecimal("fine")),
+                        rs.getInt("stock"), rs.getBoolean("released")));
+        return returned.stream().findFirst();
+    }
+
+    private static LocalDateTime localDateTime(Timestamp ts) {
+        return ts == null ? null : ts.toLocalDateTime();
+    }
+
+    private Map<Long, Integer> stockByBook(String sql, Collection<Long> bookIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        if (bookIds.isEmpty()) return stock;
+        jdbc.query(sql, new MapSqlParameterSource("ids", bookIds),
+                rs -> { stock.put(rs.getLong("id"), rs.getInt("stock")); });
+        return stock;
+    }
+}
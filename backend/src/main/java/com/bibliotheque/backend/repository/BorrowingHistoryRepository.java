@@ -0,0 +1,107 @@
+package com.bibliotheque.backend.repository;
+
+import com.bibliotheque.backend.dto.BorrowingView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Emprunts archivés (table partitionnée borrowings_history) : déplacement par lots depuis
+ * borrowings et lecture sous forme de BorrowingView, comme les emprunts courants.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BorrowingHistoryRepository {
+
+    private static final String COLUMNS = "id, user_id, book_id, borrowed_at, due_at, returned_at, overdue_at, fine";
+    private static final String VIEW = "SELECT h.id, bk.id, bk.title, bk.author, bk.isbn, u.id, u.username, " +
+            "h.borrowed_at, h.due_at, h.returned_at, h.fine " +
+            "FROM borrowings_history h JOIN books bk ON bk.id = h.book_id JOIN users u ON u.id = h.user_id ";
+
+    private static final RowMapper<BorrowingView> VIEW_MAPPER = (rs, i) -> new BorrowingView(
+            rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4), rs.getString(5),
+            rs.getLong(6), rs.getString(7), localDateTime(rs.getTimestamp(8)), localDateTime(rs.getTimestamp(9)),
+            localDateTime(rs.getTimestamp(10)), rs.getBigDecimal(11));
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** Plus ancienne date de retour encore présente dans borrowings (premier élément de l'index). */
+    public LocalDateTime oldestReturnedAt() {
+        Timestamp oldest = jdbc.getJdbcTemplate().queryForObject(
+                "SELECT MIN(returned_at) FROM borrowings WHERE returned_at IS NOT NULL", Timestamp.class);
+        return localDateTime(oldest);
+    }
+
+    /** Crée la partition de l'année si besoin. */
+    public void ensurePartition(int year) {
+        jdbc.getJdbcTemplate().execute("CREATE TABLE IF NOT EXISTS borrowings_history_" + year +
+                " PARTITION OF borrowings_history FOR VALUES FROM ('" + year + "-01-01') TO ('" + (year + 1) + "-01-01')");
+    }
+
+    /** Dernière ligne d'un lot archivé : curseur du lot suivant. */
+    public record ArchivedBatch(int count, LocalDateTime lastReturnedAt, long lastId) {}
+
+    /**
+     * Déplace au plus {@code limit} emprunts rendus avant {@code cutoff}, après le curseur
+     * (afterReturned, afterId), en une instruction. Les lignes verrouillées par une autre
+     * transaction sont laissées au passage suivant. Renvoie null quand il ne reste rien.
+     * {@code = ANY(ARRAY(...))} plutôt que {@code IN (...)} : suppression par la clé primaire,
+     * sans jointure par hachage sur toute la table.
+     */
+    public ArchivedBatch archiveReturnedBefore(LocalDateTime cutoff, LocalDateTime afterReturned, long afterId,
+                                               int limit) {
+        List<ArchivedBatch> last = jdbc.query("""
+                        WITH moved AS (
+                            DELETE FROM borrowings WHERE id = ANY(ARRAY(
+                                SELECT id FROM borrowings
+                                WHERE returned_at < :cutoff AND (returned_at, id) > (:afterReturned, :afterId)
+                                ORDER BY returned_at, id
+                                LIMIT :limit
+                                FOR UPDATE SKIP LOCKED))
+                            RETURNING %1$s
+                        ), copied AS (
+                            INSERT INTO borrowings_history (%1$s) SELECT %1$s FROM moved
+                        )
+                        SELECT count(*) OVER () AS moved, returned_at, id FROM moved
+                        ORDER BY returned_at DESC, id DESC
+                        LIMIT 1
+                        """.formatted(COLUMNS),
+                new MapSqlParameterSource()
+                        .addValue("cutoff", Timestamp.valueOf(cutoff))
+                        .addValue("afterReturned", Timestamp.valueOf(afterReturned))
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                (rs, i) -> new ArchivedBatch(rs.getInt("moved"), rs.getTimestamp("returned_at").toLocalDateTime(),
+                        rs.getLong("id")));
+        return last.isEmpty() ? null : last.get(0);
+    }
+
+    public List<BorrowingView> findViewsByUserId(Long userId) {
+        return jdbc.query(VIEW + "WHERE h.user_id = :userId ORDER BY h.id",
+                new MapSqlParameterSource("userId", userId), VIEW_MAPPER);
+    }
+
+    public List<BorrowingView> findViewsAfter(long after, int limit) {
+        return jdbc.query(VIEW + "WHERE h.id > :after ORDER BY h.id LIMIT :limit",
+                new MapSqlParameterSource().addValue("after", after).addValue("limit", limit), VIEW_MAPPER);
+    }
+
+    /** À consommer dans une transaction : les lignes arrivent par paquets de 500. */
+    public Stream<BorrowingView> streamAllViews() {
+        return jdbc.getJdbcTemplate().queryForStream(con -> {
+            var ps = con.prepareStatement(VIEW + "ORDER BY h.id");
+            ps.setFetchSize(500);
+            return ps;
+        }, VIEW_MAPPER);
+    }
+
+    private static LocalDateTime localDateTime(Timestamp ts) {
+        return ts == null ? null : ts.toLocalDateTime();
+    }
+}
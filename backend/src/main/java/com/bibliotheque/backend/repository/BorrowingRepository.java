@@ -1,24 +1,53 @@
 package com.bibliotheque.backend.repository;
 
+import com.bibliotheque.backend.dto.BorrowingView;
 import com.bibliotheque.backend.entity.Borrowing;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BorrowingRepository extends JpaRepository<Borrowing, Long> {
-    List<Borrowing> findByUserId(Long userId);
-    List<Borrowing> findByUserIdAndReturnedAtIsNull(Long userId);
 
-    @Query("SELECT b.book.id, b.book.title, b.book.author, COUNT(b) AS cnt " +
-            "FROM Borrowing b GROUP BY b.book.id, b.book.title, b.book.author ORDER BY cnt DESC")
-    List<Object[]> findTopBooks();
-
-    @Query("SELECT b.user.id, b.user.username, COUNT(b) AS cnt " +
-            "FROM Borrowing b GROUP BY b.user.id, b.user.username ORDER BY cnt DESC")
-    List<Object[]> findTopUsers();
+    // Projection : une seule requête avec jointures, sans charger les entités User/Book
+    String VIEW = "SELECT new com.bibliotheque.backend.dto.BorrowingView(" +
+            "b.id, bk.id, bk.title, bk.author, bk.isbn, u.id, u.username, " +
+            "b.borrowedAt, b.dueAt, b.returnedAt, b.fine) " +
+            "FROM Borrowing b JOIN b.book bk JOIN b.user u ";
 
     boolean existsByUserIdAndBookIdAndReturnedAtIsNull(Long userId, Long bookId);
 
     long countByReturnedAtIsNull();
-    List<Borrowing> findByReturnedAtIsNull();
+
+    @Query(VIEW + "WHERE u.id = :userId ORDER BY b.id")
+    List<BorrowingView> findViewsByUserId(@Param("userId") Long userId);
+
+    @Query(VIEW + "WHERE b.id IN :ids ORDER BY b.id")
+    List<BorrowingView> findViewsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(VIEW + "WHERE u.id = :userId AND bk.id IN :bookIds AND b.returnedAt IS NULL")
+    List<BorrowingView> findActiveViews(@Param("userId") Long userId, @Param("bookIds") Collection<Long> bookIds);
+
+    @Query(VIEW + "WHERE b.returnedAt IS NULL ORDER BY b.id")
+    List<BorrowingView> findActiveViews();
+
+    @Query(VIEW + "WHERE b.id > :after ORDER BY b.id")
+    List<BorrowingView> findViewsAfter(@Param("after") Long after, Limit limit);
+
+    @Query(VIEW + "WHERE b.id > :after AND b.returnedAt IS NULL ORDER BY b.id")
+    List<BorrowingView> findActiveViewsAfter(@Param("after") Long after, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(VIEW + "ORDER BY b.id")
+    Stream<BorrowingView> streamAllViews();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(VIEW + "WHERE b.returnedAt IS NULL ORDER BY b.id")
+    Stream<BorrowingView> streamActiveViews();
 }
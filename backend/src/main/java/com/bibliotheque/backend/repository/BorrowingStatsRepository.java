@@ -0,0 +1,103 @@
+package com.bibliotheque.backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Compteurs d'emprunts pré-agrégés (tables borrowing_totals et borrowing_daily) :
+ * le coût d'un classement dépend du catalogue et de la fenêtre, pas de la taille de l'historique.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BorrowingStatsRepository {
+
+    public static final String BOOK = "book";
+    public static final String USER = "user";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * Compte les emprunts de l'utilisateur sur ces livres (identifiants distincts). Les lignes sont
+     * verrouillées dans l'ordre (kind, subject_id) : pas d'interblocage entre emprunts groupés.
+     */
+    public void recordBorrows(Long userId, Collection<Long> bookIds, LocalDate day) {
+        if (bookIds.isEmpty()) return;
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("bookIds", bookIds)
+                .addValue("n", bookIds.size())
+                .addValue("day", Date.valueOf(day));
+        jdbc.update("INSERT INTO borrowing_totals (kind, subject_id, count) " +
+                "SELECT * FROM (SELECT 'book', id, 1 FROM unnest(ARRAY[:bookIds]::bigint[]) id " +
+                "UNION ALL SELECT 'user', :userId, :n) s(kind, subject_id, count) ORDER BY kind, subject_id " +
+                "ON CONFLICT (kind, subject_id) DO UPDATE SET count = borrowing_totals.count + EXCLUDED.count",
+                params);
+        jdbc.update("INSERT INTO borrowing_daily (kind, day, subject_id, count) " +
+                "SELECT * FROM (SELECT 'book', CAST(:day AS date), id, 1 FROM unnest(ARRAY[:bookIds]::bigint[]) id " +
+                "UNION ALL SELECT 'user', CAST(:day AS date), :userId, :n) s(kind, day, subject_id, count) " +
+                "ORDER BY kind, subject_id " +
+                "ON CONFLICT (kind, day, subject_id) DO UPDATE SET count = borrowing_daily.count + EXCLUDED.count",
+                params);
+    }
+
+    public long totalBorrowings() {
+        Long total = jdbc.getJdbcTemplate().queryForObject(
+                "SELECT COALESCE(SUM(count), 0) FROM borrowing_totals WHERE kind = 'user'", Long.class);
+        return total == null ? 0 : total;
+    }
+
+    /** Tous les compteurs de livres : (id, title, author, count). */
+    public List<Object[]> bookTotals() {
+        return jdbc.getJdbcTemplate().query("SELECT t.subject_id, b.title, b.author, t.count " +
+                        "FROM borrowing_totals t JOIN books b ON b.id = t.subject_id WHERE t.kind = 'book'",
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4)});
+    }
+
+    /** Tous les compteurs d'utilisateurs : (id, username, count). */
+    public List<Object[]> userTotals() {
+        return jdbc.getJdbcTemplate().query("SELECT t.subject_id, u.username, t.count " +
+                        "FROM borrowing_totals t JOIN users u ON u.id = t.subject_id WHERE t.kind = 'user'",
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getLong(3)});
+    }
+
+    /** Meilleurs livres depuis {@code since} inclus, lus sur les seules lignes de la fenêtre. */
+    public List<Map<String, Object>> topBooksSince(LocalDate since, int limit) {
+        return jdbc.query("WITH top AS (" + TOP_SINCE + ") " +
+                        "SELECT top.subject_id, b.title, b.author, top.cnt FROM top " +
+                        "JOIN books b ON b.id = top.subject_id ORDER BY top.cnt DESC, top.subject_id",
+                window(BOOK, since, limit),
+                (rs, i) -> row(rs.getLong(1), "title", rs.getString(2), "author", rs.getString(3), rs.getLong(4)));
+    }
+
+    public List<Map<String, Object>> topUsersSince(LocalDate since, int limit) {
+        return jdbc.query("WITH top AS (" + TOP_SINCE + ") " +
+                        "SELECT top.subject_id, u.username, top.cnt FROM top " +
+                        "JOIN users u ON u.id = top.subject_id ORDER BY top.cnt DESC, top.subject_id",
+                window(USER, since, limit),
+                (rs, i) -> row(rs.getLong(1), "username", rs.getString(2), rs.getLong(3)));
+    }
+
+    private static final String TOP_SINCE = "SELECT subject_id, SUM(count) AS cnt FROM borrowing_daily " +
+            "WHERE kind = :kind AND day >= :since GROUP BY subject_id ORDER BY cnt DESC, subject_id LIMIT :limit";
+
+    private static MapSqlParameterSource window(String kind, LocalDate since, int limit) {
+        return new MapSqlParameterSource()
+                .addValue("kind", kind)
+                .addValue("since", Date.valueOf(since))
+                .addValue("limit", limit);
+    }
+
+    // Même forme que Leaderboard.top : id, libellés, count
+    private static Map<String, Object> row(long id, Object... labelsThenCount) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", id);
+        for (int i = 0; i + 1 < labelsThenCount.length; i += 2) m.put((String) labelsThenCount[i], labelsThenCount[i + 1]);
+        m.put("count", labelsThenCount[labelsThenCount.length - 1]);
+        return m;
+    }
+}
@@ -0,0 +1,110 @@
+package com.bibliotheque.backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Historiques d'emprunts pour le modèle de recommandations (emprunts courants et archivés),
+ * lus en flux par tranches de lecteurs, sans passer par les entités.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CoBorrowingRepository {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    // Chaque table est lue dans l'ordre de son index (user_id, id) ; PostgreSQL fusionne les deux flux
+    private static final String HISTORIES = """
+            SELECT user_id, book_id FROM (
+                SELECT id, user_id, book_id FROM borrowings
+                WHERE user_id >= ? AND user_id < ? AND id <= ?
+                UNION ALL
+                SELECT id, user_id, book_id FROM borrowings_history
+                WHERE user_id >= ? AND user_id < ? AND id <= ?
+            ) l ORDER BY user_id, id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    @FunctionalInterface
+    public interface HistoryHandler {
+        /** Livres empruntés par un lecteur, du plus ancien au plus récent ; tableau réutilisé entre appels. */
+        void accept(long[] books, int length);
+    }
+
+    public long maxUserId() {
+        Long max = jdbc.getJdbcTemplate().queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    public long maxBorrowingId() {
+        Long max = jdbc.getJdbcTemplate().queryForObject(
+                "SELECT GREATEST((SELECT MAX(id) FROM borrowings), (SELECT MAX(id) FROM borrowings_history), 0)",
+                Long.class);
+        return max == null ? 0 : max;
+    }
+
+    /**
+     * Historique de chaque lecteur de [fromUser, toUser), emprunts d'id ≤ maxId. À appeler dans une
+     * transaction : les lignes arrivent par paquets de {@value #FETCH_SIZE}.
+     */
+    public void forEachHistory(long fromUser, long toUser, long maxId, HistoryHandler handler) {
+        ByUser rows = new ByUser(handler);
+        jdbc.getJdbcTemplate().query(con -> {
+            var ps = con.prepareStatement(HISTORIES);
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < 2; i++) {
+                ps.setLong(3 * i + 1, fromUser);
+                ps.setLong(3 * i + 2, toUser);
+                ps.setLong(3 * i + 3, maxId);
+            }
+            return ps;
+        }, rows);
+        rows.flush();
+    }
+
+    /** Derniers livres empruntés par le lecteur avant l'emprunt {@code beforeId}, du plus récent au plus ancien. */
+    public long[] recentBooks(long userId, long beforeId, int limit) {
+        return jdbc.queryForList("SELECT book_id FROM borrowings WHERE user_id = :userId AND id < :beforeId " +
+                        "ORDER BY id DESC LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("beforeId", beforeId)
+                        .addValue("limit", limit), Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Regroupe les lignes consécutives d'un même lecteur
+    private static final class ByUser implements RowCallbackHandler {
+        private final HistoryHandler handler;
+        private long[] books = new long[64];
+        private long userId = -1;
+        private int length;
+
+        ByUser(HistoryHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long user = rs.getLong(1);
+            if (user != userId) {
+                flush();
+                userId = user;
+            }
+            if (length == books.length) books = Arrays.copyOf(books, length * 2);
+            books[length++] = rs.getLong(2);
+        }
+
+        void flush() {
+            if (length > 0) handler.accept(books, length);
+            length = 0;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.bibliotheque.backend.repository;
+
+import com.bibliotheque.backend.dto.HoldView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Files de réservation par livre. La tête de file est lue sur l'index partiel idx_holds_queue
+ * (premier id WAITING du livre) : coût constant quelle que soit la longueur de la file.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HoldRepository {
+
+    public static final String WAITING = "WAITING";
+    public static final String READY = "READY";
+    public static final String HOLD_READY = "HOLD_READY";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public record OpenHold(long id, long userId, long bookId, String status) {}
+
+    public record ReadyHold(long id, long userId, long bookId, String title, LocalDateTime expiresAt) {}
+
+    /** Met le lecteur en file ; vide s'il a déjà une réservation ouverte sur ce livre. */
+    public Optional<Long> insertWaiting(Long userId, Long bookId, LocalDateTime now) {
+        List<Long> ids = jdbc.queryForList("""
+                        INSERT INTO holds (user_id, book_id, status, created_at)
+                        VALUES (:userId, :bookId, 'WAITING', :now)
+                        ON CONFLICT (user_id, book_id) WHERE status IN ('WAITING', 'READY') DO NOTHING
+                        RETURNING id
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("bookId", bookId)
+                        .addValue("now", Timestamp.valueOf(now)),
+                Long.class);
+        return ids.stream().findFirst();
+    }
+
+    /**
+     * Met l'exemplaire de côté pour la tête de file du livre ; vide si personne n'attend.
+     * SKIP LOCKED : deux retours simultanés servent deux lecteurs différents.
+     */
+    public Optional<ReadyHold> allocateNext(Long bookId, LocalDateTime now, LocalDateTime expiresAt) {
+        List<ReadyHold> ready = jdbc.query("""
+                        UPDATE holds h
+                        SET status = 'READY', ready_at = :now, expires_at = :expiresAt
+                        FROM books b
+                        WHERE h.id = (SELECT id FROM holds
+                                      WHERE book_id = :bookId AND status = 'WAITING'
+                                      ORDER BY id
+                                      LIMIT 1
+                                      FOR UPDATE SKIP LOCKED)
+                          AND b.id = h.book_id
+                        RETURNING h.id, h.user_id, h.book_id, b.title, h.expires_at
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("bookId", bookId)
+                        .addValue("now", Timestamp.valueOf(now))
+                        .addValue("expiresAt", Timestamp.valueOf(expiresAt)),
+                HoldRepository::readyHold);
+        return ready.stream().findFirst();
+    }
+
+    /** Clôt la réservation ouverte du lecteur sur ce livre si elle est dans l'état donné ; 0 ou 1. */
+    public int fulfil(Long userId, Long bookId, String status, LocalDateTime now) {
+        return jdbc.update("UPDATE holds SET status = 'FULFILLED', closed_at = :now " +
+                        "WHERE user_id = :userId AND book_id = :bookId AND status = :status",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("bookId", bookId)
+                        .addValue("status", status)
+                        .addValue("now", Timestamp.valueOf(now)));
+    }
+
+    /** Annule une réservation ouverte du lecteur ; renvoie son état avant annulation. */
+    public Optional<OpenHold> cancel(Long holdId, Long userId, LocalDateTime now) {
+        List<OpenHold> cancelled = jdbc.query("""
+                        WITH open AS (
+                            SELECT id, status FROM holds
+                            WHERE id = :id AND user_id = :userId AND status IN ('WAITING', 'READY')
+                            FOR UPDATE
+                        )
+                        UPDATE holds h SET status = 'CANCELLED', closed_at = :now
+                        FROM open
+                        WHERE h.id = open.id
+                        RETURNING h.id, h.user_id, h.book_id, open.status
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("id", holdId)
+                        .addValue("userId", userId)
+                        .addValue("now", Timestamp.valueOf(now)),
+                HoldRepository::openHold);
+        return cancelled.stream().findFirst();
+    }
+
+    /** Expire au plus {@code limit} exemplaires mis de côté et non empruntés à temps. */
+    public List<OpenHold> expireReady(LocalDateTime now, int limit) {
+        return jdbc.query("""
+                        WITH due AS (
+                            SELECT id FROM holds
+                            WHERE status = 'READY' AND expires_at < :now
+                            ORDER BY expires_at, id
+                            LIMIT :limit
+                            FOR UPDATE SKIP LOCKED
+                        )
+                        UPDATE holds h SET status = 'EXPIRED', closed_at = :now
+                        FROM due
+                        WHERE h.id = due.id
+                        RETURNING h.id, h.user_id, h.book_id, 'READY' AS status
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("now", Timestamp.valueOf(now))
+                        .addValue("limit", limit),
+                HoldRepository::openHold);
+    }
+
+    /** Livres en stock avec des lecteurs en file (stock remonté par l'administration, course au retour). */
+    public List<Long> findBooksWithStockAndWaiters(int limit) {
+        return jdbc.queryForList("""
+                        SELECT b.id FROM books b
+                        WHERE b.stock > 0
+                          AND EXISTS (SELECT 1 FROM holds h WHERE h.book_id = b.id AND h.status = 'WAITING')
+                        ORDER BY b.id
+                        LIMIT :limit
+                        """,
+                new MapSqlParameterSource("limit", limit), Long.class);
+    }
+
+    /** Réservations ouvertes dans l'ordre des files, pour reconstruire le miroir en mémoire. */
+    public List<OpenHold> findOpen() {
+        return jdbc.query("SELECT id, user_id, book_id, status FROM holds " +
+                        "WHERE status IN ('WAITING', 'READY') ORDER BY id",
+                HoldRepository::openHold);
+    }
+
+    public List<HoldView> findViewsByUserId(Long userId) {
+        return jdbc.query("""
+                        SELECT h.id, h.book_id, b.title, b.author, h.status, h.created_at, h.ready_at, h.expires_at
+                        FROM holds h JOIN books b ON b.id = h.book_id
+                        WHERE h.user_id = :userId AND h.status IN ('WAITING', 'READY')
+                        ORDER BY h.id
+                        """,
+                new MapSqlParameterSource("userId", userId),
+                (rs, i) -> new HoldView(rs.getLong("id"), rs.getLong("book_id"), rs.getString("title"),
+                        rs.getString("author"), rs.getString("status"), null,
+                        rs.getTimestamp("created_at").toLocalDateTime(),
+                        localDateTime(rs.getTimestamp("ready_at")), localDateTime(rs.getTimestamp("expires_at"))));
+    }
+
+    /** Prévient le lecteur que son exemplaire l'attend (pas d'emprunt associé : borrowing_id nul). */
+    public void queueReadyNotification(ReadyHold hold, LocalDateTime now) {
+        jdbc.update("INSERT INTO notifications (user_id, type, message, created_at) " +
+                        "VALUES (:userId, :type, :message, :createdAt)",
+                new MapSqlParameterSource()
+                        .addValue("userId", hold.userId())
+                        .addValue("type", HOLD_READY)
+                        .addValue("message", "Le livre « " + hold.title() + " » vous attend jusqu'au "
+                                + hold.expiresAt().format(DATE) + ".")
+                        .addValue("createdAt", Timestamp.valueOf(now)));
+    }
+
+    private static ReadyHold readyHold(ResultSet rs, int i) throws SQLException {
+        return new ReadyHold(rs.getLong("id"), rs.getLong("user_id"), rs.getLong("book_id"),
+                rs.getString("title"), rs.getTimestamp("expires_at").toLocalDateTime());
+    }
+
+    private static OpenHold openHold(ResultSet rs, int i) throws SQLException {
+        return new OpenHold(rs.getLong("id"), rs.getLong("user_id"), rs.getLong("book_id"), rs.getString("status"));
+    }
+
+    private static LocalDateTime localDateTime(Timestamp ts) {
+        return ts == null ? null : ts.toLocalDateTime();
+    }
+}
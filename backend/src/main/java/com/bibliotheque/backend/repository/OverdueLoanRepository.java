@@ -0,0 +1,74 @@
+package com.bibliotheque.backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Traitement des retards par lots : parcours de l'index partiel idx_borrowings_overdue_pending
+ * dans l'ordre (due_at, id), lignes verrouillées avec SKIP LOCKED pour ne pas attendre les retours en cours.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OverdueLoanRepository {
+
+    public static final String OVERDUE = "OVERDUE";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public record OverdueLoan(long id, long userId, String title, LocalDateTime dueAt, BigDecimal fine) {}
+
+    /** Marque en retard au plus {@code limit} emprunts échus après le curseur (afterDue, afterId). */
+    public List<OverdueLoan> markOverdue(LocalDateTime now, LocalDateTime afterDue, long afterId, int limit,
+                                         BigDecimal finePerDay, BigDecimal maxFine) {
+        return jdbc.query("""
+                        WITH due AS (
+                            SELECT id FROM borrowings
+                            WHERE returned_at IS NULL AND overdue_at IS NULL AND due_at < :now
+                              AND (due_at, id) > (:afterDue, :afterId)
+                            ORDER BY due_at, id
+                            LIMIT :limit
+                            FOR UPDATE SKIP LOCKED
+                        )
+                        UPDATE borrowings b
+                        SET overdue_at = :now,
+                            fine = %s
+                        FROM due, books bk
+                        WHERE b.id = due.id AND bk.id = b.book_id
+                        RETURNING b.id, b.user_id, bk.title, b.due_at, b.fine
+                        """.formatted(BorrowingBatchRepository.fineAt("b.due_at", ":now")),
+                new MapSqlParameterSource()
+                        .addValue("now", Timestamp.valueOf(now))
+                        .addValue("afterDue", Timestamp.valueOf(afterDue))
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit)
+                        .addValue("finePerDay", finePerDay)
+                        .addValue("maxFine", maxFine),
+                (rs, i) -> new OverdueLoan(rs.getLong("id"), rs.getLong("user_id"), rs.getString("title"),
+                        rs.getTimestamp("due_at").toLocalDateTime(), rs.getBigDecimal("fine")));
+    }
+
+    /** Met en file une notification par emprunt ; idempotent grâce à (borrowing_id, type). */
+    public void queueNotifications(List<OverdueLoan> loans, LocalDateTime now) {
+        SqlParameterSource[] rows = loans.stream()
+                .map(loan -> new MapSqlParameterSource()
+                        .addValue("userId", loan.userId())
+                        .addValue("borrowingId", loan.id())
+                        .addValue("type", OVERDUE)
+                        .addValue("message", "Le livre « " + loan.title() + " » devait être rendu le "
+                                + loan.dueAt().format(DATE) + ". Amende actuelle : " + loan.fine() + " €.")
+                        .addValue("createdAt", Timestamp.valueOf(now)))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate("INSERT INTO notifications (user_id, borrowing_id, type, message, created_at) " +
+                "VALUES (:userId, :borrowingId, :type, :message, :createdAt) " +
+                "ON CONFLICT (borrowing_id, type) DO NOTHING", rows);
+    }
+}
@@ -0,0 +1,13 @@
+package com.bibliotheque.backend.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Principal construit par JwtFilter à partir des claims du jeton :
+ * l'identifiant est disponible sans requête en base.
+ */
+public record AuthenticatedUser(Long id, String username, String role) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() { return username; }
+}
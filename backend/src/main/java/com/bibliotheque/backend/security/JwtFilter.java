@@ -1,21 +1,60 @@
 package com.bibliotheque.backend.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
+@Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
+    private static final String EVENTS_PATH = "/api/events/";
+
     private final JwtUtil jwtUtil;
+    private final SseTickets sseTickets;
+
+    // Jetons déjà vérifiés → authentification ; chaque entrée expire avec son jeton
+    private final Cache<String, VerifiedToken> verified;
+
+    private record VerifiedToken(UsernamePasswordAuthenticationToken auth, long expiresAt) {}
+
+    private final Timer verifyTimer;
+    private final Counter cachedCount;
+    private final Counter verifiedCount;
+    private final Counter rejectedCount;
+
+    public JwtFilter(JwtUtil jwtUtil, SseTickets sseTickets, MeterRegistry registry,
+                     @Value("${jwt.cache-size:10000}") long cacheSize) {
+        this.jwtUtil = jwtUtil;
+        this.sseTickets = sseTickets;
+        this.verifyTimer = Timer.builder("bibliotheque.jwt.verify").publishPercentileHistogram().register(registry);
+        this.cachedCount = authentications(registry, "cached");
+        this.verifiedCount = authentications(registry, "verified");
+        this.rejectedCount = authentications(registry, "rejected");
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(Expiry.<String, VerifiedToken>creating((token, v) ->
+                        Duration.ofMillis(Math.max(0, v.expiresAt() - System.currentTimeMillis()))))
+                .build();
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest req,
@@ -23,35 +62,74 @@ public class JwtFilter extends OncePerRequestFilter {
                                     FilterChain chain)
             throws ServletException, IOException {
 
-        String header = req.getHeader("Authorization");
+        String token = resolveToken(req);
 
-        if (header != null && header.toLowerCase().startsWith("bearer ")) {
-            String token = header.substring(7).trim(); // Trimming is better
+        if (token == null && req.getRequestURI().startsWith(EVENTS_PATH)) {
+            // Flux SSE : ticket à usage unique délivré par POST /api/events/ticket
+            String ticket = req.getParameter("ticket");
+            Authentication auth = ticket == null || ticket.isBlank() ? null : sseTickets.redeem(ticket.trim());
+            if (auth != null) SecurityContextHolder.getContext().setAuthentication(auth);
+            else if (ticket != null) rejectedCount.increment();
+        } else if (token != null) {
             try {
-                if (jwtUtil.validateToken(token)) {
-                    String username = jwtUtil.extractUsername(token);
-                    String role = jwtUtil.extractRole(token);
-
-                    if (username != null && role != null) {
-                        String cleanRole = role.trim().toUpperCase();
-                        var authority = new SimpleGrantedAuthority("ROLE_" + cleanRole);
-                        var auth = new UsernamePasswordAuthenticationToken(
-                                username, null, List.of(authority));
-
-                        SecurityContextHolder.getContext().setAuthentication(auth);
-                        System.err.println("Auth success: " + username + " role=" + cleanRole + " authorities=" + auth.getAuthorities());
+                VerifiedToken v = verified.getIfPresent(token);
+                if (v != null) {
+                    cachedCount.increment();
+                } else {
+                    v = verifyTimer.record(() -> authenticate(token));
+                    if (v != null) {
+                        verifiedCount.increment();
+                        verified.put(token, v);
                     } else {
-                        System.err.println("Auth fail: username or role is null. username=" + username + " role=" + role);
+                        rejectedCount.increment();
                     }
-                } else {
-                    System.err.println("Auth fail: validateToken returned false (Token maybe expired or invalid signature)");
                 }
+                if (v != null) {
+                    SecurityContextHolder.getContext().setAuthentication(v.auth());
+                    if (log.isTraceEnabled())
+                        log.trace("Authentifié : {} {}", v.auth().getName(), v.auth().getAuthorities());
+                }
+            } catch (JwtException e) {
+                rejectedCount.increment();
+                log.debug("Jeton refusé ({}) : {}", e.getClass().getSimpleName(), e.getMessage());
+                SecurityContextHolder.clearContext();
             } catch (Exception e) {
-                System.err.println("Auth fatal error: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+                rejectedCount.increment();
+                log.warn("Erreur d'authentification {} {}", req.getMethod(), req.getRequestURI(), e);
                 SecurityContextHolder.clearContext();
             }
         }
 
         chain.doFilter(req, res);
     }
+
+    // En-tête Bearer uniquement : jamais de JWT dans l'URL
+    private static String resolveToken(HttpServletRequest req) {
+        String header = req.getHeader("Authorization");
+        if (header != null && header.toLowerCase().startsWith("bearer "))
+            return header.substring(7).trim();
+        return null;
+    }
+
+    // Une seule vérification HMAC et un seul parsing par jeton
+    private VerifiedToken authenticate(String token) {
+        Claims claims = jwtUtil.getClaims(token);
+        String username = claims.getSubject();
+        String role = claims.get("role", String.class);
+
+        if (username == null || role == null) {
+            log.debug("Jeton sans utilisateur ou rôle : username={} role={}", username, role);
+            return null;
+        }
+        String cleanRole = role.trim().toUpperCase();
+        var principal = new AuthenticatedUser(claims.get("uid", Long.class), username, cleanRole);
+        var auth = new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_" + cleanRole)));
+        long expiresAt = claims.getExpiration() == null ? 0 : claims.getExpiration().getTime();
+        return new VerifiedToken(auth, expiresAt);
+    }
+
+    private static Counter authentications(MeterRegistry registry, String result) {
+        return Counter.builder("bibliotheque.jwt.authentications").tag("result", result).register(registry);
+    }
 }
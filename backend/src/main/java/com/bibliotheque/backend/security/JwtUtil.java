@@ -2,11 +2,14 @@ package com.bibliotheque.backend.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import java.security.Key;
 import java.util.Date;
 
+@Slf4j
 @Component
 public class JwtUtil {
 
@@ -16,17 +19,24 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private long expiration;
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // Clé HMAC et parser calculés une seule fois : JwtParser est immuable et thread-safe
+    private Key key;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        key = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
-    public String generateToken(String username, String role) {
+    public String generateToken(Long userId, String username, String role) {
         return Jwts.builder()
                 .setSubject(username)
+                .claim("uid", userId)
                 .claim("role", role)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(key(), SignatureAlgorithm.HS256)
+                .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -38,12 +48,9 @@ public class JwtUtil {
         return getClaims(token).get("role", String.class);
     }
 
-    private Claims getClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /** Vérifie la signature et l'expiration ; lève une JwtException si le jeton est invalide. */
+    public Claims getClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public boolean validateToken(String token) {
@@ -51,7 +58,7 @@ public class JwtUtil {
             getClaims(token);
             return true;
         } catch (JwtException e) {
-            System.err.println("JWT Validation Error: " + e.getMessage());
+            log.debug("Jeton JWT invalide : {}", e.getMessage());
             return false;
         }
     }
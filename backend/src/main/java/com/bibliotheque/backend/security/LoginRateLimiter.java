@@ -0,0 +1,69 @@
+package com.bibliotheque.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite les échecs d'authentification par compte (quelle que soit l'IP : pas de contournement en
+ * changeant d'adresse) et par IP (pas de balayage de comptes), sur une fenêtre fixe, avant tout
+ * calcul BCrypt. Seuls les échecs comptent : un bureau derrière une même IP qui se connecte
+ * normalement n'est jamais bloqué. Les inscriptions comptent toutes pour l'IP.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private static final String LIMITED = "Trop de tentatives, réessayez plus tard.";
+
+    private final int maxPerUser;
+    private final int maxPerIp;
+    private final Cache<String, AtomicInteger> failures;
+
+    public LoginRateLimiter(@Value("${auth.rate-limit.per-user:10}") int maxPerUser,
+                            @Value("${auth.rate-limit.per-ip:30}") int maxPerIp,
+                            @Value("${auth.rate-limit.window-seconds:60}") long windowSeconds) {
+        this.maxPerUser = maxPerUser;
+        this.maxPerIp = maxPerIp;
+        // L'entrée expire une fenêtre après le premier échec (les incréments ne la prolongent pas)
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .build();
+    }
+
+    /** Avant la connexion : 429 si le compte ou l'IP a épuisé ses échecs ; ne compte rien. */
+    public void check(String username, String ip) {
+        if (count("ip:" + ip) >= maxPerIp || (username != null && count("user:" + username) >= maxPerUser))
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, LIMITED);
+    }
+
+    /** Inscription : chaque tentative compte pour l'IP. */
+    public void checkRegistration(String ip) {
+        if (hit("ip:" + ip) > maxPerIp)
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, LIMITED);
+    }
+
+    public void failed(String username, String ip) {
+        hit("ip:" + ip);
+        if (username != null) hit("user:" + username);
+    }
+
+    // Le propriétaire connecté efface les échecs de son compte, pas ceux de l'IP
+    public void succeeded(String username) {
+        failures.invalidate("user:" + username);
+    }
+
+    private int count(String key) {
+        AtomicInteger n = failures.getIfPresent(key);
+        return n == null ? 0 : n.get();
+    }
+
+    private int hit(String key) {
+        return failures.get(key, k -> new AtomicInteger()).incrementAndGet();
+    }
+}
@@ -0,0 +1,44 @@
+package com.bibliotheque.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Tickets d'ouverture des flux SSE : EventSource n'envoie pas d'en-tête Authorization, et le JWT
+ * ne doit pas apparaître dans une URL (journaux d'accès, historique, Referer). Un ticket aléatoire
+ * est délivré contre le JWT, vit quelques secondes et ne sert qu'une fois.
+ */
+@Component
+public class SseTickets {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Cache<String, Authentication> tickets;
+
+    public SseTickets(@Value("${sse.ticket-ttl-ms:30000}") long ttlMs,
+                      @Value("${sse.ticket-cache-size:10000}") long cacheSize) {
+        this.tickets = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+    }
+
+    public String issue(Authentication auth) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(ticket, auth);
+        return ticket;
+    }
+
+    /** Authentification du ticket, retiré au passage ; null s'il est inconnu, expiré ou déjà utilisé. */
+    public Authentication redeem(String ticket) {
+        return tickets.asMap().remove(ticket);
+    }
+}
@@ -4,11 +4,14 @@ import com.bibliotheque.backend.dto.*;
 import com.bibliotheque.backend.entity.User;
 import com.bibliotheque.backend.repository.UserRepository;
 import com.bibliotheque.backend.security.JwtUtil;
+import com.bibliotheque.backend.security.PasswordHashingExecutor;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.*;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +21,17 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final PasswordHashingExecutor hashingExecutor;
+
+    // BCrypt s'exécute sur le pool dédié, pas sur le thread de la requête
+    public CompletableFuture<JwtResponse> registerAsync(RegisterRequest req) {
+        return hashingExecutor.submit(() -> register(req));
+    }
+
+    @Timed(value = "bibliotheque.login", histogram = true)
+    public CompletableFuture<JwtResponse> loginAsync(LoginRequest req) {
+        return hashingExecutor.submit(() -> login(req));
+    }
 
     public JwtResponse register(RegisterRequest req) {
         if (userRepository.existsByUsername(req.getUsername())) {
@@ -36,7 +50,7 @@ public class AuthService {
 
         userRepository.save(user);
 
-        String token = jwtUtil.generateToken(user.getUsername(), user.getRole());
+        String token = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getRole());
         return new JwtResponse(token, user.getRole(), user.getUsername(), user.getEmail(), user.getId(), user.getCreatedAt());
     }
 
@@ -45,7 +59,7 @@ public class AuthService {
                 new UsernamePasswordAuthenticationToken(req.getUsername(), req.getPassword())
         );
         User user = userRepository.findByUsername(req.getUsername()).orElseThrow();
-        String token = jwtUtil.generateToken(user.getUsername(), user.getRole());
+        String token = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getRole());
         return new JwtResponse(token, user.getRole(), user.getUsername(), user.getEmail(), user.getId(), user.getCreatedAt());
     }
 }
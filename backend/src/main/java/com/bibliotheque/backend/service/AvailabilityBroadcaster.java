@@ -0,0 +1,219 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.event.BorrowingEvent;
+import com.bibliotheque.backend.repository.BookRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Diffusion SSE des changements de stock et des compteurs généraux, à la place du polling.
+ *
+ * <p>Les événements reçus après commit marquent le livre ; toutes les {@code sse.flush-interval-ms},
+ * le stock des livres marqués est relu en une requête et publié dans un message sérialisé une
+ * seule fois pour tous les abonnés. Relire plutôt que garder le stock de l'événement : les
+ * écouteurs de deux transactions sur un même livre peuvent s'exécuter dans le désordre.
+ * Chaque abonné a une file bornée vidée par un petit pool d'écrivains ; un client qui ne suit
+ * pas (file pleine) est déconnecté, il se reconnecte et recharge la page.
+ */
+@Slf4j
+@Component
+public class AvailabilityBroadcaster {
+
+    static final String EVENT = "availability";
+
+    private final StatsService statsService;
+    private final BookRepository bookRepository;
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private final ExecutorService writers;
+    private final Counter dropped;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Livres modifiés depuis la dernière publication
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean statsChanged = new AtomicBoolean();
+
+    /** {@code stock} absent et {@code deleted} à true pour un livre supprimé (champs nuls omis). */
+    public record StockChange(long id, Integer stock, Boolean deleted) {}
+
+    public record Update(List<StockChange> books, Map<String, Long> stats) {}
+
+    @Autowired
+    public AvailabilityBroadcaster(StatsService statsService, BookRepository bookRepository, ObjectMapper objectMapper,
+                                   MeterRegistry registry,
+                                   @Value("${sse.buffer-size:16}") int bufferSize,
+                                   @Value("${sse.max-subscribers:10000}") int maxSubscribers,
+                                   @Value("${sse.timeout-ms:1800000}") long timeoutMs,
+                                   @Value("${sse.writer-threads:4}") int writerThreads) {
+        this(statsService, bookRepository, objectMapper, registry, bufferSize, maxSubscribers, timeoutMs,
+                Executors.newFixedThreadPool(writerThreads, r -> {
+                    Thread t = new Thread(r, "sse-writer");
+                    t.setDaemon(true);
+                    return t;
+                }));
+    }
+
+    AvailabilityBroadcaster(StatsService statsService, BookRepository bookRepository, ObjectMapper objectMapper,
+                            MeterRegistry registry, int bufferSize, int maxSubscribers, long timeoutMs,
+                            ExecutorService writers) {
+        this.statsService = statsService;
+        this.bookRepository = bookRepository;
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMs;
+        this.writers = writers;
+        this.dropped = Counter.builder("bibliotheque.sse.dropped").register(registry);
+        Gauge.builder("bibliotheque.sse.subscribers", subscribers, Set::size).register(registry);
+    }
+
+    /** Nouvel abonné, qui reçoit d'abord les compteurs courants ; null si la limite est atteinte. */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) return null;
+        Subscriber s = new Subscriber(new SseEmitter(timeoutMs), new ArrayBlockingQueue<>(bufferSize));
+        s.emitter.onCompletion(() -> subscribers.remove(s));
+        s.emitter.onTimeout(() -> subscribers.remove(s));
+        s.emitter.onError(e -> subscribers.remove(s));
+        subscribers.add(s);
+        offer(s, event(new Update(List.of(), statsService.getGeneralStats())));
+        return s.emitter;
+    }
+
+    // Après les compteurs de StatsService : les statistiques lues à la publication sont à jour.
+    // Marqué même sans abonné : un client peut s'abonner avant la publication suivante
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersion.BEFORE_BUMP)
+    public void onBorrowing(BorrowingEvent event) {
+        pending.add(event.bookId());
+        statsChanged.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersion.BEFORE_BUMP)
+    public void onBook(BookEvent event) {
+        pending.add(event.bookId());
+        statsChanged.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${sse.flush-interval-ms:500}")
+    public void flush() {
+        Update update = collect();
+        if (update != null) publish(event(update));
+    }
+
+    // Livres marqués, stock relu sur le primaire (transaction implicite du repository) ; null si
+    // rien à publier ou personne pour le recevoir
+    Update collect() {
+        boolean stats = statsChanged.getAndSet(false);
+        if (pending.isEmpty() && !stats) return null;
+
+        List<Long> ids = new ArrayList<>(pending.size());
+        for (Long id : pending) if (pending.remove(id)) ids.add(id);
+        if (subscribers.isEmpty()) return null;
+
+        Map<Long, Integer> stocks = new HashMap<>();
+        if (!ids.isEmpty())
+            for (Object[] row : bookRepository.findStocksByIds(ids)) stocks.put((Long) row[0], (Integer) row[1]);
+        List<StockChange> books = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Integer stock = stocks.get(id);
+            books.add(new StockChange(id, stock, stock == null ? true : null));
+        }
+        return new Update(books, statsService.getGeneralStats());
+    }
+
+    // Commentaire SSE périodique : garde la connexion ouverte et détecte les clients partis
+    @Scheduled(fixedDelayString = "${sse.heartbeat-ms:25000}")
+    public void heartbeat() {
+        if (!subscribers.isEmpty()) publish(SseEmitter.event().comment("ping").build());
+    }
+
+    private Set<DataWithMediaType> event(Update update) {
+        return SseEmitter.event().name(EVENT).data(objectMapper.writeValueAsString(update)).build();
+    }
+
+    private void publish(Set<DataWithMediaType> event) {
+        for (Subscriber s : subscribers) offer(s, event);
+    }
+
+    private void offer(Subscriber s, Set<DataWithMediaType> event) {
+        if (!s.queue.offer(event)) {
+            // Consommateur trop lent : fermé par son écrivain, jamais en bloquant la publication
+            if (subscribers.remove(s)) {
+                dropped.increment();
+                log.debug("Abonné SSE trop lent déconnecté ({} messages en attente)", s.queue.size());
+            }
+            s.closed = true;
+        }
+        schedule(s);
+    }
+
+    private void schedule(Subscriber s) {
+        if (s.draining.compareAndSet(false, true)) writers.execute(() -> drain(s));
+    }
+
+    private void drain(Subscriber s) {
+        try {
+            Set<DataWithMediaType> event;
+            while (!s.closed && (event = s.queue.poll()) != null) s.emitter.send(event);
+            if (s.closed) {
+                s.emitter.complete();
+                s.completed = true;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client déconnecté ou émetteur déjà terminé
+            subscribers.remove(s);
+            s.closed = true;
+            s.completed = true;
+        } finally {
+            s.draining.set(false);
+        }
+        // Travail arrivé pendant l'écriture : fermeture demandée ou nouveaux messages
+        if (s.closed ? !s.completed : !s.queue.isEmpty()) schedule(s);
+    }
+
+    @PreDestroy
+    void close() {
+        writers.shutdownNow();
+        for (Subscriber s : subscribers) {
+            try {
+                s.emitter.complete();
+            } catch (RuntimeException e) {
+                // Réponse déjà libérée par le serveur à l'arrêt
+            }
+        }
+        subscribers.clear();
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<Set<DataWithMediaType>> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean closed;
+        volatile boolean completed;
+
+        Subscriber(SseEmitter emitter, BlockingQueue<Set<DataWithMediaType>> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.dto.BookImportRow;
+import com.bibliotheque.backend.dto.ImportReport;
+import com.bibliotheque.backend.repository.BookBatchRepository;
+import com.bibliotheque.backend.repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Import massif du catalogue : le flux est lu ligne par ligne sur le thread de la requête,
+ * et les lots validés sont écrits par un thread dédié via une file bornée (contre-pression).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookImportService {
+
+    static final int BATCH_SIZE = 1000;
+    private static final int MAX_IN_FLIGHT_BATCHES = 4;
+    private static final int MAX_REPORTED_ERRORS = 50;
+    private static final long PROGRESS_EVERY = 50_000;
+    private static final List<BookImportRow> END = List.of();
+    private static final List<String> CSV_HEADER = List.of("title", "author", "isbn");
+    private static final List<String> CSV_HEADER_WITH_STOCK = List.of("title", "author", "isbn", "stock");
+
+    private final BookBatchRepository bookBatchRepository;
+    private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final StatsService statsService;
+    private final BookService bookService;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    public ImportReport importBooks(InputStream in, boolean csv) throws IOException {
+        long start = System.nanoTime();
+        long read = 0;
+        long lineNo = 0;
+        List<String> errors = new ArrayList<>();
+        AtomicLong written = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+
+        BlockingQueue<List<BookImportRow>> queue = new ArrayBlockingQueue<>(MAX_IN_FLIGHT_BATCHES);
+        ExecutorService writerThread = Executors.newSingleThreadExecutor();
+        Future<?> writer = writerThread.submit(() -> drain(queue, written, start));
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            // Dédoublonnage par isbn dans le lot : la dernière occurrence l'emporte
+            Map<String, BookImportRow> batch = new LinkedHashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank() || (csv && lineNo == 1 && isCsvHeader(line))) continue;
+                try {
+                    BookImportRow row = validate(csv ? parseCsv(line) : objectMapper.readValue(line, BookImportRow.class));
+                    batch.put(row.isbn(), row);
+                    read++;
+                } catch (RuntimeException e) {
+                    rejected.incrementAndGet();
+                    if (errors.size() < MAX_REPORTED_ERRORS) errors.add("Ligne " + lineNo + " : " + e.getMessage());
+                    continue;
+                }
+                if (batch.size() >= BATCH_SIZE) {
+                    enqueue(queue, new ArrayList<>(batch.values()), writer);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) enqueue(queue, new ArrayList<>(batch.values()), writer);
+            enqueue(queue, END, writer);
+            writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Import interrompu.");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Échec de l'écriture en base : " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            writer.cancel(true);
+            writerThread.shutdownNow();
+        }
+
+        bookService.evictCatalogCache();
+        statsService.reconcile();
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        return new ImportReport(read, written.get(), rejected.get(), errors,
+                elapsedMs, written.get() * 1000 / elapsedMs);
+    }
+
+    private void drain(BlockingQueue<List<BookImportRow>> queue, AtomicLong written, long start) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        try {
+            List<BookImportRow> batch;
+            while ((batch = queue.take()) != END) {
+                List<BookImportRow> rows = batch;
+                // Une transaction courte par lot : pas de verrou long sur la table
+                tx.executeWithoutResult(status -> bookBatchRepository.upsert(rows));
+                bookRepository.findByIsbnIn(rows.stream().map(BookImportRow::isbn).toList())
+                        .forEach(searchIndex::index);
+
+                long total = written.addAndGet(rows.size());
+                if (total / PROGRESS_EVERY != (total - rows.size()) / PROGRESS_EVERY)
+                    log.info("Import livres : {} lignes écrites ({} lignes/s)", total,
+                            total * 1_000_000_000L / Math.max(1, System.nanoTime() - start));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Bloque tant que la file est pleine, mais s'arrête si l'écrivain a échoué
+    private static void enqueue(BlockingQueue<List<BookImportRow>> queue, List<BookImportRow> batch,
+                                Future<?> writer) throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) writer.get();
+        }
+    }
+
+    private static BookImportRow validate(BookImportRow row) {
+        if (row == null) throw new IllegalArgumentException("ligne vide");
+        String title = trim(row.title()), author = trim(row.author()), isbn = trim(row.isbn());
+        if (title.isEmpty() || title.length() > 255) throw new IllegalArgumentException("titre manquant ou trop long");
+        if (author.isEmpty() || author.length() > 255) throw new IllegalArgumentException("auteur manquant ou trop long");
+        if (isbn.isEmpty() || isbn.length() > 20) throw new IllegalArgumentException("isbn manquant ou trop long");
+        int stock = row.stock() == null ? 1 : row.stock();
+        if (stock < 0) throw new IllegalArgumentException("stock négatif");
+        return new BookImportRow(title, author, isbn, stock);
+    }
+
+    private static String trim(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    // En-tête reconnu à ses colonnes exactes : un titre contenant « isbn » reste une ligne de données
+    static boolean isCsvHeader(String line) {
+        List<String> columns = Arrays.stream(line.split(",", -1))
+                .map(c -> c.trim().replace("\"", "").toLowerCase(Locale.ROOT))
+                .toList();
+        return columns.equals(CSV_HEADER) || columns.equals(CSV_HEADER_WITH_STOCK);
+    }
+
+    // CSV simple : séparateur virgule, champs entre guillemets avec "" pour un guillemet
+    static BookImportRow parseCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') { field.append('"'); i++; }
+                else if (c == '"') quoted = false;
+                else field.append(c);
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        if (fields.size() < 3) throw new IllegalArgumentException("3 colonnes attendues (title,author,isbn[,stock])");
+        Integer stock;
+        try {
+            stock = fields.size() > 3 && !fields.get(3).isBlank() ? Integer.valueOf(fields.get(3).trim()) : null;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("stock invalide");
+        }
+        return new BookImportRow(fields.get(0), fields.get(1), fields.get(2), stock);
+    }
+}
@@ -0,0 +1,357 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.entity.Book;
+import org.springframework.stereotype.Component;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé de trigrammes sur titre et auteur, tenu en mémoire.
+ * Tolère les fautes de frappe (similarité de trigrammes) et les recherches par préfixe.
+ *
+ * <p>Structures primitives pour tenir un catalogue d'un million de livres dans un tas ordinaire :
+ * chaque livre reçoit un numéro interne dense, chaque trigramme (alphabet normalisé de 37
+ * caractères) une liste triée de ces numéros dans un {@code int[]}. Les trigrammes présents dans
+ * plus de la moitié du catalogue (« le », « de »…) ne servent pas à la recherche tant que la
+ * requête en contient d'autres. Les ISBN ne sont pas découpés en trigrammes, tous commencent par
+ * 978 ou 979 : ils sont cherchés par correspondance exacte, avec ou sans tirets.
+ */
+@Component
+public class BookSearchIndex {
+
+    // Part minimale des trigrammes de la requête qu'un livre doit contenir
+    private static final double MIN_SIMILARITY = 0.4;
+    // Au-delà de cette part du catalogue, un trigramme est trop commun pour discriminer
+    private static final double STOP_SHARE = 0.5;
+    // Trigrammes de requête pris en compte (les plus rares) : le compteur par livre tient sur un octet
+    private static final int MAX_QUERY_GRAMS = 64;
+
+    private static final int ALPHABET = 37;
+    private static final int GRAMS = ALPHABET * ALPHABET * ALPHABET;
+
+    // Listes de numéros internes triées, par code de trigramme
+    private final int[][] postings = new int[GRAMS][];
+    private final int[] lengths = new int[GRAMS];
+
+    // Par numéro interne : identifiant du livre, titre et auteur normalisés (null : supprimé)
+    private long[] bookIds = new long[1024];
+    private String[] titles = new String[1024];
+    private String[] authors = new String[1024];
+    private long[] isbnKeys = new long[1024];
+    private int docs;
+    private int live;
+
+    private final LongIntMap docsById = new LongIntMap();
+    private final LongIntMap docsByIsbn = new LongIntMap();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    private record Hit(long id, double score, String title) {}
+
+    private static final Comparator<Hit> RANKING =
+            Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::title);
+
+    public boolean isReady() { return ready; }
+
+    public void rebuild(Collection<Book> books) {
+        clear();
+        books.forEach(this::index);
+        markReady();
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            Arrays.fill(postings, null);
+            Arrays.fill(lengths, 0);
+            bookIds = new long[1024];
+            titles = new String[1024];
+            authors = new String[1024];
+            isbnKeys = new long[1024];
+            docs = 0;
+            live = 0;
+            docsById.clear();
+            docsByIsbn.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void markReady() { ready = true; }
+
+    public void index(Book book) {
+        String title = normalize(book.getTitle()), author = normalize(book.getAuthor());
+        long isbnKey = isbnKey(normalizeIsbn(book.getIsbn()));
+
+        lock.writeLock().lock();
+        try {
+            int doc = docsById.get(book.getId());
+            if (doc >= 0) {
+                unlink(doc);
+            } else {
+                doc = newDoc(book.getId());
+            }
+            titles[doc] = title;
+            authors[doc] = author;
+            isbnKeys[doc] = isbnKey;
+            live++;
+            for (int g : codes(title, author)) insert(g, doc);
+            if (isbnKey >= 0) docsByIsbn.put(isbnKey, doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            int doc = docsById.get(id);
+            if (doc >= 0) unlink(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Identifiants des livres correspondants, du plus pertinent au moins pertinent. */
+    public List<Long> search(String query, int limit) {
+        String isbnQuery = normalizeIsbn(query);
+        boolean isbnLike = looksLikeIsbn(query);
+        String q = isbnLike ? isbnQuery : normalize(query);
+        if (q.isBlank() || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            if (isbnLike) {
+                int doc = docsByIsbn.get(isbnKey(isbnQuery));
+                if (doc >= 0 && titles[doc] != null) return List.of(bookIds[doc]);
+            }
+            return rank(q, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> rank(String q, int limit) {
+        // Le dernier mot est traité comme un préfixe : pas de trigramme de fin de mot
+        int[] queryGrams = codes(q, false);
+        if (queryGrams.length == 0) return List.of();
+
+        Integer[] order = new Integer[queryGrams.length];
+        for (int i = 0; i < order.length; i++) order[i] = queryGrams[i];
+        Arrays.sort(order, Comparator.comparingInt(g -> lengths[g]));
+        // Trigrammes trop communs écartés, sauf s'il ne reste qu'eux
+        int selective = 0;
+        while (selective < order.length && lengths[order[selective]] <= STOP_SHARE * live) selective++;
+        int used = Math.min(selective > 0 ? selective : order.length, MAX_QUERY_GRAMS);
+
+        // Compteur par livre des trigrammes de la requête qu'il contient
+        byte[] matched = new byte[docs];
+        for (int i = 0; i < used; i++) {
+            int[] list = postings[order[i]];
+            for (int j = 0, n = lengths[order[i]]; j < n; j++) matched[list[j]]++;
+        }
+
+        // Un livre atteignant le seuil apparaît forcément dans l'une des listes les plus rares :
+        // seules celles-ci fournissent des candidats
+        int required = (int) Math.ceil(MIN_SIMILARITY * used);
+        int candidateLists = used - required + 1;
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        for (int i = 0; i < candidateLists; i++) {
+            int[] list = postings[order[i]];
+            for (int j = 0, n = lengths[order[i]]; j < n; j++) {
+                int doc = list[j];
+                int count = matched[doc];
+                if (count < required) continue;
+                matched[doc] = 0;
+                best.add(new Hit(bookIds[doc], score(titles[doc], authors[doc], q, (double) count / used), titles[doc]));
+                if (best.size() > limit) best.poll();
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(RANKING);
+        return hits.stream().map(Hit::id).toList();
+    }
+
+    private static double score(String title, String author, String q, double similarity) {
+        double score = similarity;
+        if (title.equals(q)) score += 2;
+        else if (title.startsWith(q)) score += 1;
+        else if (title.contains(q)) score += 0.5;
+        if (author.contains(q)) score += 0.5;
+        return score;
+    }
+
+    private int newDoc(long id) {
+        if (docs == bookIds.length) {
+            int capacity = docs + (docs >> 1);
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+            isbnKeys = Arrays.copyOf(isbnKeys, capacity);
+        }
+        bookIds[docs] = id;
+        docsById.put(id, docs);
+        return docs++;
+    }
+
+    // Retire le livre des listes ; son numéro interne reste réservé pour une réindexation
+    private void unlink(int doc) {
+        if (titles[doc] == null) return;
+        for (int g : codes(titles[doc], authors[doc])) delete(g, doc);
+        if (isbnKeys[doc] >= 0 && docsByIsbn.get(isbnKeys[doc]) == doc) docsByIsbn.remove(isbnKeys[doc]);
+        titles[doc] = null;
+        authors[doc] = null;
+        live--;
+    }
+
+    private void insert(int gram, int doc) {
+        int[] list = postings[gram];
+        int n = lengths[gram];
+        if (list == null) list = postings[gram] = new int[4];
+        // Cas courant à la construction : numéros croissants, ajout en fin de liste
+        int at = n == 0 || list[n - 1] < doc ? n : Arrays.binarySearch(list, 0, n, doc);
+        if (at >= 0 && at < n) return;
+        if (at < 0) at = -at - 1;
+        if (n == list.length) list = postings[gram] = Arrays.copyOf(list, n + (n >> 1) + 1);
+        System.arraycopy(list, at, list, at + 1, n - at);
+        list[at] = doc;
+        lengths[gram] = n + 1;
+    }
+
+    private void delete(int gram, int doc) {
+        int[] list = postings[gram];
+        int n = lengths[gram];
+        int at = list == null ? -1 : Arrays.binarySearch(list, 0, n, doc);
+        if (at < 0) return;
+        System.arraycopy(list, at + 1, list, at, n - at - 1);
+        lengths[gram] = n - 1;
+    }
+
+    // Codes distincts des trigrammes du titre et de l'auteur
+    private static int[] codes(String title, String author) {
+        int[] t = codes(title, true), a = codes(author, true);
+        int[] all = Arrays.copyOf(t, t.length + a.length);
+        System.arraycopy(a, 0, all, t.length, a.length);
+        return Arrays.stream(all).distinct().toArray();
+    }
+
+    static int[] codes(String text, boolean closeLastWord) {
+        return grams(text, closeLastWord).stream().mapToInt(BookSearchIndex::code).toArray();
+    }
+
+    static Set<String> grams(String text, boolean closeLastWord) {
+        Set<String> result = new LinkedHashSet<>();
+        String[] words = text.trim().split(" +");
+        for (int w = 0; w < words.length; w++) {
+            if (words[w].isEmpty()) continue;
+            boolean close = closeLastWord || w < words.length - 1;
+            String padded = "  " + words[w] + (close ? " " : "");
+            for (int i = 0; i + 3 <= padded.length(); i++) result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    // Texte normalisé : espace, a-z, 0-9
+    private static int code(String gram) {
+        int code = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = gram.charAt(i);
+            code = code * ALPHABET + (c == ' ' ? 0 : c <= '9' ? 27 + c - '0' : 1 + c - 'a');
+        }
+        return code;
+    }
+
+    static String normalize(String s) {
+        if (s == null) return "";
+        String stripped = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").trim();
+    }
+
+    private static boolean looksLikeIsbn(String s) {
+        return s != null && s.matches("[0-9Xx\\- ]+") && s.chars().anyMatch(Character::isDigit);
+    }
+
+    private static String normalizeIsbn(String s) {
+        return s == null ? "" : s.replaceAll("[^0-9Xx]", "").toLowerCase(Locale.ROOT);
+    }
+
+    // ISBN normalisé en clé numérique : chiffres, « x » final éventuel et longueur (zéros de tête) ; -1 sinon
+    static long isbnKey(String isbn) {
+        boolean x = isbn.endsWith("x");
+        String digits = x ? isbn.substring(0, isbn.length() - 1) : isbn;
+        if (digits.isEmpty() || digits.length() > 15 || digits.indexOf('x') >= 0) return -1;
+        return (Long.parseLong(digits) * 2 + (x ? 1 : 0)) * 32 + isbn.length();
+    }
+
+    /** Table long → int à adressage ouvert (sondage linéaire), sans objets par entrée ; -1 si absent. */
+    static final class LongIntMap {
+        private long[] keys = new long[16];
+        private int[] values = new int[16];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); used[i]; i = (i + 1) & mask)
+                if (keys[i] == key) return values[i];
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (used[i] && keys[i] != key) i = (i + 1) & mask;
+            if (!used[i]) size++;
+            used[i] = true;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (used[i] && keys[i] != key) i = (i + 1) & mask;
+            if (!used[i]) return;
+            used[i] = false;
+            size--;
+            // Décalage arrière : les entrées suivantes de la grappe restent accessibles
+            for (int j = (i + 1) & mask; used[j]; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    used[i] = true;
+                    used[j] = false;
+                    i = j;
+                }
+            }
+        }
+
+        void clear() {
+            keys = new long[16];
+            values = new int[16];
+            used = new boolean[16];
+            size = 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) if (oldUsed[i]) put(oldKeys[i], oldValues[i]);
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) (Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask);
+        }
+    }
+}
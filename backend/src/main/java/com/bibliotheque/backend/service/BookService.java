@@ -1,30 +1,130 @@
 package com.bibliotheque.backend.service;
 
 import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.event.BorrowingEvent;
 import com.bibliotheque.backend.repository.BookRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service @RequiredArgsConstructor
 public class BookService {
+    // Cache Caffeine déclaré dans application.properties (spring.cache.*)
+    public static final String BOOKS_CACHE = "books";
+    private static final int VERSION_STRIPES = 4096;
+
     private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final ApplicationEventPublisher events;
+    private final CatalogVersion catalogVersion;
+
+    private static final Limit INDEX_BATCH = Limit.of(5000);
+
+    // Clé de cache versionnée, incrémentée après chaque écriture validée : une lecture commencée
+    // avant l'écriture range son résultat sous l'ancienne clé, que plus personne ne demande.
+    // Versions par tranche d'identifiants (mémoire bornée) plus une génération pour les imports.
+    private final AtomicLongArray bookVersions = new AtomicLongArray(VERSION_STRIPES);
+    private final AtomicLong generation = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSearchIndex() {
+        // Parcours du catalogue par lots pour ne jamais charger toute la table d'un coup
+        searchIndex.clear();
+        List<Book> batch = bookRepository.findByIdGreaterThanOrderByIdAsc(0L, INDEX_BATCH);
+        while (!batch.isEmpty()) {
+            batch.forEach(searchIndex::index);
+            batch = bookRepository.findByIdGreaterThanOrderByIdAsc(batch.get(batch.size() - 1).getId(), INDEX_BATCH);
+        }
+        searchIndex.markReady();
+    }
 
+    // Pas de cache du catalogue entier : une entrée énorme, invalidée à chaque emprunt ; les clients
+    // qui relisent la liste sont servis en 304 par l'ETag
     public List<Book> getAll() { return bookRepository.findAll(); }
+    // Pages et recherche servies sous l'ETag de CatalogVersion : lues sur le primaire (pas de
+    // transaction readOnly), un réplica en retard associerait une réponse périmée au nouvel ETag
+    public List<Book> getPage(long after, Limit limit) { return bookRepository.findByIdGreaterThanOrderByIdAsc(after, limit); }
+    public Stream<Book> streamAll() { return bookRepository.streamAll(); }
+    // Entrées en cache lues sur le primaire : une copie en retard y resterait jusqu'à l'expiration
+    @Cacheable(cacheNames = BOOKS_CACHE, key = "#root.target.cacheKey(#id)")
     public Book getById(Long id) { return bookRepository.findById(id).orElseThrow(); }
-    public List<Book> search(String q) { return bookRepository.search(q); }
+
+    @Timed(value = "bibliotheque.search", histogram = true)
+    public List<Book> search(String q, int limit) {
+        // Tant que l'index n'est pas construit, on retombe sur la recherche SQL
+        if (!searchIndex.isReady())
+            return bookRepository.search(q).stream().limit(limit).toList();
+
+        List<Long> ids = searchIndex.search(q, limit);
+        Map<Long, Book> byId = bookRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    public String cacheKey(Long id) {
+        return id + ":" + generation.get() + ":" + bookVersions.get(stripe(id));
+    }
+
+    // Le stock change à chaque emprunt/retour : nouvelle clé après commit
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersion.BEFORE_BUMP)
+    public void onBorrowing(BorrowingEvent event) { bookVersions.incrementAndGet(stripe(event.bookId())); }
+
+    // Même chose pour les écritures du catalogue, avant que CatalogVersion ne change d'ETag
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersion.BEFORE_BUMP)
+    public void onBook(BookEvent event) { bookVersions.incrementAndGet(stripe(event.bookId())); }
+
+    // Appelé après un import massif, qui ne publie pas d'événement par livre
+    @CacheEvict(cacheNames = BOOKS_CACHE, allEntries = true)
+    public void evictCatalogCache() {
+        generation.incrementAndGet();
+        catalogVersion.bump();
+    }
+
+    private static int stripe(Long id) { return (int) Math.floorMod(id, (long) VERSION_STRIPES); }
+
     public Book create(Book book) {
         if (book.getCreatedAt() == null) book.setCreatedAt(LocalDateTime.now());
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        searchIndex.index(saved);
+        events.publishEvent(new BookEvent(saved.getId(), null, saved.getStock()));
+        return saved;
     }
     public Book update(Long id, Book updated) {
-        Book book = getById(id);
+        // Lecture directe en base : ne jamais modifier l'instance partagée du cache
+        Book book = bookRepository.findById(id).orElseThrow();
+        Integer stockBefore = book.getStock();
         book.setTitle(updated.getTitle());
         book.setAuthor(updated.getAuthor());
         book.setIsbn(updated.getIsbn());
         book.setStock(updated.getStock());
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        searchIndex.index(saved);
+        events.publishEvent(new BookEvent(id, stockBefore, saved.getStock()));
+        return saved;
+    }
+    public void delete(Long id) {
+        bookRepository.findById(id).ifPresent(book -> {
+            bookRepository.delete(book);
+            searchIndex.remove(id);
+            events.publishEvent(new BookEvent(id, book.getStock(), null));
+        });
     }
-    public void delete(Long id) { bookRepository.deleteById(id); }
 }
@@ -0,0 +1,80 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.repository.BorrowingHistoryRepository;
+import com.bibliotheque.backend.repository.BorrowingHistoryRepository.ArchivedBatch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+
+/**
+ * Archivage des emprunts rendus depuis plus de {@code loans.archive.after-months} mois vers
+ * borrowings_history : lots bornés parcourus par curseur (returned_at, id), une transaction courte
+ * par lot. La table chaude ne garde que les emprunts actifs et l'historique récent.
+ */
+@Slf4j
+@Service
+public class BorrowingArchiveService {
+
+    private static final LocalDateTime START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final BorrowingHistoryRepository historyRepository;
+    private final TransactionTemplate tx;
+    private final Counter archived;
+    private final int afterMonths;
+    private final int batchSize;
+
+    public BorrowingArchiveService(BorrowingHistoryRepository historyRepository,
+                                   PlatformTransactionManager transactionManager, MeterRegistry registry,
+                                   @Value("${loans.archive.after-months:12}") int afterMonths,
+                                   @Value("${loans.archive.batch-size:5000}") int batchSize) {
+        this.historyRepository = historyRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.archived = Counter.builder("bibliotheque.borrowings.archived").register(registry);
+        this.afterMonths = afterMonths;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${loans.archive.cron:0 30 3 * * *}")
+    public int archiveReturnedLoans() {
+        return archiveReturnedBefore(LocalDateTime.now().minusMonths(afterMonths));
+    }
+
+    public int archiveReturnedBefore(LocalDateTime cutoff) {
+        LocalDateTime oldest = historyRepository.oldestReturnedAt();
+        if (oldest == null || !oldest.isBefore(cutoff)) return 0;
+        for (int year = oldest.getYear(); year <= cutoff.getYear(); year++)
+            historyRepository.ensurePartition(year);
+
+        long start = System.nanoTime();
+        LocalDateTime afterReturned = START;
+        long afterId = 0;
+        int total = 0, batches = 0;
+        while (true) {
+            // Sans curseur, chaque lot repasserait sur les entrées d'index mortes des lots précédents
+            LocalDateTime cursorReturned = afterReturned;
+            long cursorId = afterId;
+            ArchivedBatch batch = tx.execute(status ->
+                    historyRepository.archiveReturnedBefore(cutoff, cursorReturned, cursorId, batchSize));
+            if (batch == null) break;
+
+            afterReturned = batch.lastReturnedAt();
+            afterId = batch.lastId();
+            total += batch.count();
+            batches++;
+            archived.increment(batch.count());
+        }
+
+        if (total > 0) {
+            long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            log.info("Archivage : {} emprunts déplacés en {} lots, {} ms ({} emprunts/s)",
+                    total, batches, elapsedMs, total * 1000L / elapsedMs);
+        }
+        return total;
+    }
+}
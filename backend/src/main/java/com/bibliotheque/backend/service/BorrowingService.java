@@ -1,12 +1,24 @@
 package com.bibliotheque.backend.service;
 
+import com.bibliotheque.backend.dto.BatchItemResult;
+import com.bibliotheque.backend.dto.BorrowingView;
 import com.bibliotheque.backend.entity.*;
+import com.bibliotheque.backend.event.BorrowingEvent;
 import com.bibliotheque.backend.repository.*;
+import com.bibliotheque.backend.repository.BorrowingBatchRepository.ReturnedLoan;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -15,72 +27,222 @@ public class BorrowingService {
     private final BorrowingRepository borrowingRepository;
     private final BookRepository bookRepository;
     private final UserRepository userRepository;
+    private final BorrowingBatchRepository batchRepository;
+    private final ApplicationEventPublisher events;
+    private final LoanPolicy loanPolicy;
+    private final BorrowingStatsRepository statsRepository;
+    private final BorrowingHistoryRepository historyRepository;
+    private final HoldService holdService;
 
-    @Transactional
-    public Borrowing borrow(Long userId, Long bookId) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Livre introuvable."));
-
-        if (book.getStock() <= 0)
-            throw new RuntimeException("Livre non disponible (stock épuisé).");
-
-        if (borrowingRepository.existsByUserIdAndBookIdAndReturnedAtIsNull(userId, bookId))
-            throw new RuntimeException("Vous avez déjà emprunté ce livre.");
+    // Index unique partiel sur (user_id, book_id) WHERE returned_at IS NULL (voir db/migration)
+    static final String ACTIVE_LOAN_CONSTRAINT = "uq_borrowings_active_loan";
 
-        book.setStock(book.getStock() - 1);
-        bookRepository.save(book);
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable."));
-
-        // ← Construire sans @Builder pour éviter les nulls
+    @Transactional
+    @Timed(value = "bibliotheque.borrow", histogram = true)
+    public BorrowingView borrow(Long userId, Long bookId) {
+        LocalDateTime now = LocalDateTime.now();
+        // Exemplaire mis de côté pour ce lecteur : déjà retiré du stock à son retour
+        boolean held = holdService.hasReadyHold(userId, bookId) && holdService.claimReadyHold(userId, bookId, now);
+        // Un seul UPDATE conditionnel : pas de survente sous accès concurrent ; RETURNING donne le stock restant.
+        // Exemplaire mis de côté : déjà hors stock, le stock ne bouge pas (null dans l'évènement)
+        Integer stockAfter = held ? null : batchRepository.reserveStock(List.of(bookId)).get(bookId);
+        if (!held && stockAfter == null) {
+            // Miroir des réservations en retard : dernière vérification en base avant de refuser
+            held = holdService.claimReadyHold(userId, bookId, now);
+            if (!held && !bookRepository.existsById(bookId))
+                throw new RuntimeException("Livre introuvable.");
+            if (!held)
+                throw new RuntimeException("Livre non disponible (stock épuisé).");
+        }
+        // Références sans SELECT : seules les clés étrangères sont écrites
         Borrowing borrowing = new Borrowing();
-        borrowing.setUser(user);
-        borrowing.setBook(book);
-        borrowing.setBorrowedAt(LocalDateTime.now());
+        borrowing.setUser(userRepository.getReferenceById(userId));
+        borrowing.setBook(bookRepository.getReferenceById(bookId));
+        borrowing.setBorrowedAt(now);
+        borrowing.setDueAt(loanPolicy.dueAt(borrowing.getBorrowedAt()));
+
+        try {
+            Long id = borrowingRepository.saveAndFlush(borrowing).getId();
+            BorrowingView view = borrowingRepository.findViewsByIds(List.of(id)).get(0);
+            if (!held) holdService.fulfilWaiting(userId, bookId, now);
+            statsRepository.recordBorrows(userId, List.of(bookId), borrowing.getBorrowedAt().toLocalDate());
+            events.publishEvent(new BorrowingEvent(BorrowingEvent.Type.BORROWED, view, stockAfter));
+            return view;
+        } catch (DataIntegrityViolationException e) {
+            // L'exception annule la transaction, donc aussi la décrémentation du stock
+            if (isActiveLoanConflict(e))
+                throw new RuntimeException("Vous avez déjà emprunté ce livre.");
+            throw e;
+        }
+    }
 
-        return borrowingRepository.save(borrowing);
+    private static boolean isActiveLoanConflict(DataIntegrityViolationException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve)
+                return ACTIVE_LOAN_CONSTRAINT.equalsIgnoreCase(cve.getConstraintName());
+        }
+        return false;
     }
 
     @Transactional
-    public Borrowing returnBook(Long userId, Long bookId) {
-        Borrowing borrowing = borrowingRepository
-                .findByUserIdAndReturnedAtIsNull(userId).stream()
-                .filter(b -> b.getBook().getId().equals(bookId))
-                .findFirst()
+    @Timed(value = "bibliotheque.return", histogram = true)
+    public BorrowingView returnBook(Long userId, Long bookId) {
+        ReturnedLoan returned = batchRepository.returnActiveLoan(userId, bookId, LocalDateTime.now(),
+                        loanPolicy.getFinePerDay(), loanPolicy.getMaxFine())
                 .orElseThrow(() -> new RuntimeException("Aucun emprunt actif trouvé."));
+        return published(returned);
+    }
 
-        borrowing.setReturnedAt(LocalDateTime.now());
+    @Transactional
+    public BorrowingView returnBookByBorrowingId(Long borrowingId) {
+        ReturnedLoan returned = batchRepository.returnLoan(borrowingId, LocalDateTime.now(),
+                        loanPolicy.getFinePerDay(), loanPolicy.getMaxFine())
+                .orElseThrow(() -> borrowingRepository.existsById(borrowingId)
+                        ? new RuntimeException("Ce livre a déjà été retourné.")
+                        : new RuntimeException("Emprunt introuvable."));
+        return published(returned);
+    }
 
-        Book book = borrowing.getBook();
-        book.setStock(book.getStock() + 1);
-        bookRepository.save(book);
+    // Réservation en attente : l'exemplaire va à la tête de file (ou au stock si elle a été servie entre-temps)
+    private BorrowingView published(ReturnedLoan returned) {
+        BorrowingView view = returned.view();
+        Integer stock = returned.stock();
+        if (!returned.released()) stock = holdService.handOverReturnedCopy(view.getBook().getId(), view.getReturnedAt());
+        events.publishEvent(new BorrowingEvent(BorrowingEvent.Type.RETURNED, view, stock));
+        return view;
+    }
 
-        return borrowingRepository.save(borrowing);
+    static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * Emprunt groupé : chargement des livres en une requête, réservation ensembliste du stock,
+     * insertion des emprunts en un seul lot JDBC. Le résultat est rendu livre par livre.
+     * Les exemplaires mis de côté par une réservation ne sont pris que par l'emprunt unitaire.
+     */
+    @Transactional
+    public List<BatchItemResult> borrowAll(Long userId, List<Long> bookIds) {
+        List<Long> ids = batchIds(bookIds);
+        LocalDateTime now = LocalDateTime.now();
+
+        Set<Long> existing = ids.isEmpty() ? Set.of() : bookRepository.findExistingIds(ids);
+        Map<Long, Integer> stockAfter = batchRepository.reserveStock(existing);
+
+        List<Long> reserved = ids.stream().filter(stockAfter::containsKey).toList();
+        Set<Long> duplicates = new HashSet<>();
+        if (!reserved.isEmpty()) {
+            int[] inserted = batchRepository.insertActiveLoans(userId, reserved, now, loanPolicy.dueAt(now));
+            for (int i = 0; i < inserted.length; i++)
+                if (inserted[i] == 0) duplicates.add(reserved.get(i));
+        }
+        // Emprunt déjà actif : l'exemplaire réservé est rendu au stock
+        if (!duplicates.isEmpty()) batchRepository.releaseStock(duplicates);
+
+        List<Long> borrowed = reserved.stream().filter(id -> !duplicates.contains(id)).toList();
+        // Emprunt sur le stock d'un lecteur encore en file : sa réservation est satisfaite
+        for (Long id : borrowed) holdService.fulfilWaiting(userId, id, now);
+        statsRepository.recordBorrows(userId, borrowed, now.toLocalDate());
+        Map<Long, BorrowingView> views = borrowed.isEmpty() ? Map.of()
+                : borrowingRepository.findActiveViews(userId, borrowed).stream()
+                        .collect(Collectors.toMap(v -> v.getBook().getId(), Function.identity()));
+
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (!existing.contains(id)) {
+                results.add(BatchItemResult.failed(id, "Livre introuvable."));
+            } else if (!stockAfter.containsKey(id)) {
+                results.add(BatchItemResult.failed(id, "Livre non disponible (stock épuisé)."));
+            } else if (duplicates.contains(id)) {
+                results.add(BatchItemResult.failed(id, "Vous avez déjà emprunté ce livre."));
+            } else {
+                BorrowingView view = views.get(id);
+                events.publishEvent(new BorrowingEvent(BorrowingEvent.Type.BORROWED, view, stockAfter.get(id)));
+                results.add(BatchItemResult.ok(id, view));
+            }
+        }
+        return results;
     }
 
+    /** Retour groupé : clôture des emprunts et remise en stock en deux requêtes ensemblistes. */
     @Transactional
-    public Borrowing returnBookByBorrowingId(Long borrowingId) {
-        Borrowing borrowing = borrowingRepository.findById(borrowingId)
-                .orElseThrow(() -> new RuntimeException("Emprunt introuvable."));
+    public List<BatchItemResult> returnAll(Long userId, List<Long> bookIds) {
+        List<Long> ids = batchIds(bookIds);
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<Long, Long> closed = ids.isEmpty() ? Map.of()
+                : batchRepository.closeActiveLoans(userId, ids, now,
+                        loanPolicy.getFinePerDay(), loanPolicy.getMaxFine());
+        // Exemplaires attendus par une réservation : mis de côté, stock inchangé (absents de stockAfter)
+        List<Long> released = closed.values().stream()
+                .filter(id -> !holdService.allocateReturnedCopy(id, now)).toList();
+        Map<Long, Integer> stockAfter = batchRepository.releaseStock(released);
+        Map<Long, BorrowingView> views = closed.isEmpty() ? Map.of()
+                : borrowingRepository.findViewsByIds(closed.keySet()).stream()
+                        .collect(Collectors.toMap(v -> v.getBook().getId(), Function.identity()));
+
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            BorrowingView view = views.get(id);
+            if (view == null) {
+                results.add(BatchItemResult.failed(id, "Aucun emprunt actif trouvé."));
+            } else {
+                events.publishEvent(new BorrowingEvent(BorrowingEvent.Type.RETURNED, view, stockAfter.get(id)));
+                results.add(BatchItemResult.ok(id, view));
+            }
+        }
+        return results;
+    }
+
+    private static List<Long> batchIds(List<Long> bookIds) {
+        if (bookIds == null) return List.of();
+        List<Long> ids = bookIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.size() > MAX_BATCH_SIZE)
+            throw new RuntimeException("Trop de livres dans le lot (maximum " + MAX_BATCH_SIZE + ").");
+        return ids;
+    }
 
-        if (borrowing.getReturnedAt() != null)
-            throw new RuntimeException("Ce livre a déjà été retourné.");
+    // Les lectures d'historique couvrent les deux tiers : table chaude et borrowings_history
+    @Transactional(readOnly = true)
+    public List<BorrowingView> getUserBorrowings(Long userId) {
+        return mergeById(historyRepository.findViewsByUserId(userId), borrowingRepository.findViewsByUserId(userId),
+                Integer.MAX_VALUE);
+    }
 
-        borrowing.setReturnedAt(LocalDateTime.now());
+    @Transactional(readOnly = true)
+    public List<BorrowingView> getActive() {
+        return borrowingRepository.findActiveViews();
+    }
 
-        Book book = borrowing.getBook();
-        book.setStock(book.getStock() + 1);
-        bookRepository.save(book);
+    @Transactional(readOnly = true)
+    public List<BorrowingView> getPage(long after, Limit limit) {
+        return mergeById(historyRepository.findViewsAfter(after, limit.max()),
+                borrowingRepository.findViewsAfter(after, limit), limit.max());
+    }
+
+    @Transactional(readOnly = true)
+    public List<BorrowingView> getActivePage(long after, Limit limit) {
+        return borrowingRepository.findActiveViewsAfter(after, limit);
+    }
 
-        return borrowingRepository.save(borrowing);
+    /** Archives puis table chaude : chaque partie est triée par id, pas l'ensemble. */
+    public Stream<BorrowingView> streamAll() {
+        return Stream.concat(historyRepository.streamAllViews(), borrowingRepository.streamAllViews());
     }
 
-    public List<Borrowing> getUserBorrowings(Long userId) {
-        return borrowingRepository.findByUserId(userId);
+    public Stream<BorrowingView> streamActive() {
+        return borrowingRepository.streamActiveViews();
     }
 
-    public List<Borrowing> getAll() {
-        return borrowingRepository.findAll();
+    // Un emprunt n'est jamais dans les deux tiers à la fois : fusion de deux listes triées par id
+    private static List<BorrowingView> mergeById(List<BorrowingView> archived, List<BorrowingView> current, int limit) {
+        if (archived.isEmpty()) return current.size() <= limit ? current : current.subList(0, limit);
+        List<BorrowingView> merged = new ArrayList<>(Math.min(limit, archived.size() + current.size()));
+        int i = 0, j = 0;
+        while (merged.size() < limit && (i < archived.size() || j < current.size())) {
+            if (j == current.size() || (i < archived.size() && archived.get(i).getId() < current.get(j).getId()))
+                merged.add(archived.get(i++));
+            else
+                merged.add(current.get(j++));
+        }
+        return merged;
     }
 }
@@ -0,0 +1,36 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.event.BorrowingEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version du catalogue et des statistiques, base des ETags : incrémentée après chaque écriture
+ * de BookService ou BorrowingService. Part de l'heure de démarrage pour qu'un ETag émis par
+ * une instance précédente ne soit jamais reconnu.
+ */
+@Component
+public class CatalogVersion {
+
+    /** Ordre des écouteurs qui mettent à jour caches et compteurs : avant l'incrément. */
+    public static final int BEFORE_BUMP = Ordered.LOWEST_PRECEDENCE - 1;
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() { return version.get(); }
+
+    public void bump() { version.incrementAndGet(); }
+
+    // En dernier : une version lue avant la mise à jour des caches ne peut pas étiqueter un état périmé
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onBorrowing(BorrowingEvent event) { bump(); }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onBook(BookEvent event) { bump(); }
+}
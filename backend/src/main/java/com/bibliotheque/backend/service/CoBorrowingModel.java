@@ -0,0 +1,216 @@
+package com.bibliotheque.backend.service;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * « Les lecteurs de ce livre ont aussi emprunté » : pour chaque livre, les livres empruntés par
+ * les mêmes lecteurs à moins de {@code window} emprunts d'écart, avec leur nombre d'occurrences.
+ * Tables à adressage ouvert sur des long (identifiants > 0, ni Long ni Map imbriquée), réparties
+ * en segments verrouillés séparément : reconstruction parallèle et mises à jour concurrentes.
+ * Un livre garde au plus {@code maxNeighbours} voisins ; au-delà, le nouveau voisin remplace le
+ * moins fréquent en reprenant son compte (Space-Saving) : un voisin fréquent n'est jamais perdu.
+ * Le classement se fait sur le compte garanti (compte moins la part héritée), pour qu'un voisin
+ * rare tout juste entré ne passe pas devant les voisins réels.
+ */
+public final class CoBorrowingModel {
+
+    private static final int STRIPES = 64;
+
+    private final int window;
+    private final int maxNeighbours;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public CoBorrowingModel(int window, int maxNeighbours) {
+        this.window = window;
+        this.maxNeighbours = maxNeighbours;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    /**
+     * Emprunts d'un lecteur, du plus ancien au plus récent : chaque livre est associé aux window
+     * précédents et suivants. Une position met à jour sa seule liste (une recherche, un verrou)
+     * plutôt que deux listes par paire : mêmes comptes, bien moins d'accès mémoire dispersés.
+     */
+    public void addHistory(long[] books, int length) {
+        if (length < 2) return;
+        for (int i = 0; i < length; i++) {
+            Stripe stripe = stripe(books[i]);
+            stripe.lock.lock();
+            try {
+                Neighbours neighbours = stripe.find(books[i], true);
+                for (int j = Math.max(0, i - window); j < Math.min(length, i + window + 1); j++)
+                    if (books[j] != books[i]) neighbours.add(books[j], maxNeighbours);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /** Nouvel emprunt ; {@code previous} : livres empruntés juste avant, du plus récent au plus ancien. */
+    public void addBorrow(long bookId, long[] previous) {
+        for (int j = 0; j < Math.min(previous.length, window); j++) {
+            if (previous[j] == bookId) continue;
+            increment(bookId, previous[j]);
+            increment(previous[j], bookId);
+        }
+    }
+
+    /** Les k voisins les plus fréquents, du plus au moins fréquent (à égalité, le plus petit id d'abord). */
+    public long[] top(long bookId, int k) {
+        long[] ids;
+        int[] counts;
+        Stripe stripe = stripe(bookId);
+        stripe.lock.lock();
+        try {
+            Neighbours neighbours = stripe.find(bookId, false);
+            if (neighbours == null || neighbours.size == 0 || k <= 0) return new long[0];
+            ids = Arrays.copyOf(neighbours.ids, neighbours.size);
+            counts = new int[neighbours.size];
+            for (int i = 0; i < counts.length; i++) counts[i] = neighbours.counts[i] - neighbours.errors[i];
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        // Sélection partielle par insertion : O(voisins × k), sans tri de toute la liste
+        int m = Math.min(k, ids.length), size = 0;
+        long[] bestIds = new long[m];
+        int[] best = new int[m];
+        for (int i = 0; i < ids.length; i++) {
+            if (size == m && !before(counts[i], ids[i], best[m - 1], bestIds[m - 1])) continue;
+            int pos = size < m ? size++ : m - 1;
+            while (pos > 0 && before(counts[i], ids[i], best[pos - 1], bestIds[pos - 1])) {
+                best[pos] = best[pos - 1];
+                bestIds[pos] = bestIds[pos - 1];
+                pos--;
+            }
+            best[pos] = counts[i];
+            bestIds[pos] = ids[i];
+        }
+        return bestIds;
+    }
+
+    /** Livre supprimé : ses voisins sont oubliés ; chez les autres, il sort par éviction ou reconstruction. */
+    public void remove(long bookId) {
+        Stripe stripe = stripe(bookId);
+        stripe.lock.lock();
+        try {
+            Neighbours neighbours = stripe.find(bookId, false);
+            if (neighbours != null) neighbours.size = 0;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /** Nombre de livres ayant au moins un voisin. */
+    public int books() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (Neighbours n : stripe.values) if (n != null && n.size > 0) total++;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    private void increment(long bookId, long neighbour) {
+        Stripe stripe = stripe(bookId);
+        stripe.lock.lock();
+        try {
+            stripe.find(bookId, true).add(neighbour, maxNeighbours);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private static boolean before(int count, long id, int otherCount, long otherId) {
+        return count > otherCount || (count == otherCount && id < otherId);
+    }
+
+    private static long mix(long id) {
+        return id * 0x9E3779B97F4A7C15L;
+    }
+
+    private Stripe stripe(long bookId) {
+        return stripes[(int) (mix(bookId) >>> 58)];
+    }
+
+    // Livre → voisins, sondage linéaire ; 0 marque une case libre
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        long[] keys = new long[16];
+        Neighbours[] values = new Neighbours[16];
+        int size;
+
+        Neighbours find(long bookId, boolean create) {
+            int mask = keys.length - 1;
+            int i = (int) (mix(bookId) >>> 32) & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == bookId) return values[i];
+                i = (i + 1) & mask;
+            }
+            if (!create) return null;
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                return find(bookId, true);
+            }
+            keys[i] = bookId;
+            values[i] = new Neighbours();
+            size++;
+            return values[i];
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Neighbours[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Neighbours[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == 0) continue;
+                int i = (int) (mix(oldKeys[j]) >>> 32) & mask;
+                while (keys[i] != 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    // Voisins d'un livre en tableaux parallèles, parcourus linéairement (quelques dizaines d'entrées) ;
+    // errors : compte hérité à l'entrée du voisin, surestimation maximale de counts
+    private static final class Neighbours {
+        long[] ids = new long[4];
+        int[] counts = new int[4];
+        int[] errors = new int[4];
+        int size;
+
+        void add(long id, int max) {
+            // Un seul passage : recherche du voisin et, liste pleine, du moins fréquent à remplacer
+            int min = 0;
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    counts[i]++;
+                    return;
+                }
+                if (counts[i] < counts[min]) min = i;
+            }
+            if (size < max) {
+                if (size == ids.length) {
+                    int capacity = Math.min(max, size * 2);
+                    ids = Arrays.copyOf(ids, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                    errors = Arrays.copyOf(errors, capacity);
+                }
+                ids[size] = id;
+                errors[size] = 0;
+                counts[size++] = 1;
+                return;
+            }
+            ids[min] = id;
+            errors[min] = counts[min]++;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.event.HoldEvent;
+import com.bibliotheque.backend.repository.HoldRepository;
+import com.bibliotheque.backend.repository.HoldRepository.OpenHold;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Miroir en mémoire des files de réservation : évite toute requête sur holds au retour d'un livre
+ * sans file, ou à l'emprunt d'un lecteur sans réservation. La base reste la référence : un miroir
+ * en retard ne fait que renvoyer vers le chemin SQL. Mis à jour après commit, reconstruit au
+ * démarrage puis périodiquement (une seule instance, comme StatsService). Chaque file a son
+ * verrou explicite plutôt que synchronized : pas d'épinglage des threads virtuels.
+ */
+@Component
+@RequiredArgsConstructor
+public class HoldQueues {
+
+    private record Key(long userId, long bookId) {}
+
+    private static final class Queue {
+        final Set<Long> users = new LinkedHashSet<>();
+        final ReentrantLock lock = new ReentrantLock();
+    }
+
+    private final HoldRepository holdRepository;
+
+    // Livre → lecteurs en attente dans l'ordre d'arrivée ; file vide retirée de la map
+    private volatile Map<Long, Queue> waiting = new ConcurrentHashMap<>();
+    private volatile Set<Key> ready = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${holds.rebuild-interval-ms:300000}",
+            fixedDelayString = "${holds.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        Map<Long, Queue> w = new ConcurrentHashMap<>();
+        Set<Key> r = ConcurrentHashMap.newKeySet();
+        for (OpenHold h : holdRepository.findOpen()) {
+            if (HoldRepository.READY.equals(h.status())) r.add(new Key(h.userId(), h.bookId()));
+            else w.computeIfAbsent(h.bookId(), k -> new Queue()).users.add(h.userId());
+        }
+        waiting = w;
+        ready = r;
+    }
+
+    public boolean hasWaiting(Long bookId) {
+        return waiting.containsKey(bookId);
+    }
+
+    public boolean isWaiting(Long userId, Long bookId) {
+        Queue queue = waiting.get(bookId);
+        if (queue == null) return false;
+        queue.lock.lock();
+        try {
+            return queue.users.contains(userId);
+        } finally {
+            queue.lock.unlock();
+        }
+    }
+
+    public boolean isReady(Long userId, Long bookId) {
+        return ready.contains(new Key(userId, bookId));
+    }
+
+    /** Rang du lecteur dans la file du livre (1 = prochain servi), null s'il n'y est pas. */
+    public Integer position(Long userId, Long bookId) {
+        Queue queue = waiting.get(bookId);
+        if (queue == null) return null;
+        queue.lock.lock();
+        try {
+            int i = 1;
+            for (Long u : queue.users) {
+                if (u.equals(userId)) return i;
+                i++;
+            }
+        } finally {
+            queue.lock.unlock();
+        }
+        return null;
+    }
+
+    public int length(Long bookId) {
+        Queue queue = waiting.get(bookId);
+        if (queue == null) return 0;
+        queue.lock.lock();
+        try {
+            return queue.users.size();
+        } finally {
+            queue.lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHold(HoldEvent event) {
+        switch (event.type()) {
+            case PLACED -> waiting.compute(event.bookId(), (k, q) -> {
+                Queue queue = q == null ? new Queue() : q;
+                queue.lock.lock();
+                try {
+                    queue.users.add(event.userId());
+                } finally {
+                    queue.lock.unlock();
+                }
+                return queue;
+            });
+            case READY -> {
+                removeWaiting(event.userId(), event.bookId());
+                ready.add(new Key(event.userId(), event.bookId()));
+            }
+            case CLOSED -> {
+                removeWaiting(event.userId(), event.bookId());
+                ready.remove(new Key(event.userId(), event.bookId()));
+            }
+        }
+    }
+
+    // Réservations supprimées en cascade avec le livre
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBook(BookEvent event) {
+        if (!event.deleted()) return;
+        waiting.remove(event.bookId());
+        ready.removeIf(k -> k.bookId() == event.bookId());
+    }
+
+    private void removeWaiting(long userId, long bookId) {
+        waiting.computeIfPresent(bookId, (k, queue) -> {
+            queue.lock.lock();
+            try {
+                queue.users.remove(userId);
+                return queue.users.isEmpty() ? null : queue;
+            } finally {
+                queue.lock.unlock();
+            }
+        });
+    }
+}
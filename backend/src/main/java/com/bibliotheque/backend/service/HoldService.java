@@ -0,0 +1,209 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.dto.HoldView;
+import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.event.HoldEvent;
+import com.bibliotheque.backend.repository.BookRepository;
+import com.bibliotheque.backend.repository.BorrowingBatchRepository;
+import com.bibliotheque.backend.repository.BorrowingRepository;
+import com.bibliotheque.backend.repository.HoldRepository;
+import com.bibliotheque.backend.repository.HoldRepository.OpenHold;
+import com.bibliotheque.backend.repository.HoldRepository.ReadyHold;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Réservations : un livre épuisé peut être réservé, et chaque exemplaire rendu va directement
+ * à la tête de sa file (READY, mis de côté {@code holds.ready-days} jours) au lieu du stock.
+ * L'attribution se fait dans la transaction du retour ; les exemplaires non retirés à temps
+ * passent au suivant par le job d'expiration.
+ */
+@Slf4j
+@Service
+public class HoldService {
+
+    private final HoldRepository holdRepository;
+    private final HoldQueues queues;
+    private final BookRepository bookRepository;
+    private final BorrowingRepository borrowingRepository;
+    private final BorrowingBatchRepository batchRepository;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final Counter allocated;
+    private final Counter expired;
+    private final int readyDays;
+    private final int batchSize;
+
+    public HoldService(HoldRepository holdRepository, HoldQueues queues, BookRepository bookRepository,
+                       BorrowingRepository borrowingRepository, BorrowingBatchRepository batchRepository,
+                       ApplicationEventPublisher events, PlatformTransactionManager transactionManager,
+                       MeterRegistry registry,
+                       @Value("${holds.ready-days:3}") int readyDays,
+                       @Value("${holds.expiry.batch-size:500}") int batchSize) {
+        this.holdRepository = holdRepository;
+        this.queues = queues;
+        this.bookRepository = bookRepository;
+        this.borrowingRepository = borrowingRepository;
+        this.batchRepository = batchRepository;
+        this.events = events;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.allocated = Counter.builder("bibliotheque.holds.allocated").register(registry);
+        this.expired = Counter.builder("bibliotheque.holds.expired").register(registry);
+        this.readyDays = readyDays;
+        this.batchSize = batchSize;
+    }
+
+    @Transactional
+    public HoldView place(Long userId, Long bookId) {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new RuntimeException("Livre introuvable."));
+        if (book.getStock() > 0)
+            throw new RuntimeException("Livre disponible : empruntez-le directement.");
+        if (borrowingRepository.existsByUserIdAndBookIdAndReturnedAtIsNull(userId, bookId))
+            throw new RuntimeException("Vous avez déjà emprunté ce livre.");
+
+        LocalDateTime now = LocalDateTime.now();
+        Long id = holdRepository.insertWaiting(userId, bookId, now)
+                .orElseThrow(() -> new RuntimeException("Vous avez déjà une réservation pour ce livre."));
+        events.publishEvent(new HoldEvent(HoldEvent.Type.PLACED, userId, bookId));
+        return new HoldView(id, bookId, book.getTitle(), book.getAuthor(), HoldRepository.WAITING,
+                queues.length(bookId) + 1, now, null, null);
+    }
+
+    @Transactional
+    public void cancel(Long userId, Long holdId) {
+        LocalDateTime now = LocalDateTime.now();
+        OpenHold hold = holdRepository.cancel(holdId, userId, now)
+                .orElseThrow(() -> new RuntimeException("Réservation introuvable."));
+        events.publishEvent(new HoldEvent(HoldEvent.Type.CLOSED, userId, hold.bookId()));
+        if (HoldRepository.READY.equals(hold.status())) handOver(hold.bookId(), now);
+    }
+
+    @Transactional(readOnly = true)
+    public List<HoldView> getUserHolds(Long userId) {
+        List<HoldView> holds = holdRepository.findViewsByUserId(userId);
+        for (HoldView h : holds)
+            if (HoldRepository.WAITING.equals(h.getStatus())) h.setPosition(queues.position(userId, h.getBookId()));
+        return holds;
+    }
+
+    /**
+     * Exemplaire rendu, dans la transaction du retour : true s'il est mis de côté pour la tête
+     * de file (le stock ne change pas). Sans file connue, aucune requête.
+     */
+    public boolean allocateReturnedCopy(Long bookId, LocalDateTime now) {
+        return queues.hasWaiting(bookId) && allocate(bookId, now);
+    }
+
+    /**
+     * Exemplaire rendu alors qu'une réservation attendait (vu par la requête de retour) : à la tête
+     * de file, sinon au stock si la file a été servie entre-temps ; renvoie le stock remis à jour,
+     * null si l'exemplaire est mis de côté.
+     */
+    public Integer handOverReturnedCopy(Long bookId, LocalDateTime now) {
+        if (allocate(bookId, now)) return null;
+        return batchRepository.releaseStock(List.of(bookId)).get(bookId);
+    }
+
+    public boolean hasReadyHold(Long userId, Long bookId) {
+        return queues.isReady(userId, bookId);
+    }
+
+    /** Emprunt de l'exemplaire mis de côté pour ce lecteur : true si sa réservation READY est honorée. */
+    public boolean claimReadyHold(Long userId, Long bookId, LocalDateTime now) {
+        if (holdRepository.fulfil(userId, bookId, HoldRepository.READY, now) == 0) return false;
+        events.publishEvent(new HoldEvent(HoldEvent.Type.CLOSED, userId, bookId));
+        return true;
+    }
+
+    /** Emprunt sur le stock d'un lecteur encore en file : sa réservation est satisfaite. */
+    public void fulfilWaiting(Long userId, Long bookId, LocalDateTime now) {
+        if (queues.isWaiting(userId, bookId) && holdRepository.fulfil(userId, bookId, HoldRepository.WAITING, now) == 1)
+            events.publishEvent(new HoldEvent(HoldEvent.Type.CLOSED, userId, bookId));
+    }
+
+    /**
+     * Expire les exemplaires non retirés (au suivant, sinon au stock), puis sert les files des
+     * livres revenus en stock hors retour (stock modifié par l'administration, miroir en retard).
+     */
+    @Scheduled(initialDelayString = "${holds.expiry.interval-ms:60000}",
+            fixedDelayString = "${holds.expiry.interval-ms:60000}")
+    public int expireHolds() {
+        LocalDateTime now = LocalDateTime.now();
+        long start = System.nanoTime();
+        int total = 0;
+
+        while (true) {
+            Integer n = tx.execute(status -> {
+                List<OpenHold> batch = holdRepository.expireReady(now, batchSize);
+                for (OpenHold h : batch) {
+                    events.publishEvent(new HoldEvent(HoldEvent.Type.CLOSED, h.userId(), h.bookId()));
+                    handOver(h.bookId(), now);
+                }
+                return batch.size();
+            });
+            if (n == null || n == 0) break;
+            total += n;
+            expired.increment(n);
+        }
+
+        int served = 0;
+        for (Long bookId : holdRepository.findBooksWithStockAndWaiters(batchSize)) {
+            Integer n = tx.execute(status -> serveFromStock(bookId, now));
+            if (n != null) served += n;
+        }
+
+        if (total + served > 0) {
+            log.info("Réservations : {} expirées, {} servies depuis le stock, {} ms",
+                    total, served, (System.nanoTime() - start) / 1_000_000);
+        }
+        return total;
+    }
+
+    private boolean allocate(Long bookId, LocalDateTime now) {
+        Optional<ReadyHold> hold = holdRepository.allocateNext(bookId, now, now.plusDays(readyDays));
+        if (hold.isEmpty()) return false;
+        holdRepository.queueReadyNotification(hold.get(), now);
+        events.publishEvent(new HoldEvent(HoldEvent.Type.READY, hold.get().userId(), bookId));
+        allocated.increment();
+        return true;
+    }
+
+    // Exemplaire libéré hors retour : au suivant de la file, sinon au stock
+    private void handOver(Long bookId, LocalDateTime now) {
+        if (allocate(bookId, now)) return;
+        Integer stock = batchRepository.releaseStock(List.of(bookId)).get(bookId);
+        if (stock != null) events.publishEvent(new BookEvent(bookId, stock - 1, stock));
+    }
+
+    private int serveFromStock(Long bookId, LocalDateTime now) {
+        Integer before = null, stock = null;
+        int served = 0;
+        while (true) {
+            Map<Long, Integer> reserved = batchRepository.reserveStock(List.of(bookId));
+            if (reserved.isEmpty()) break;
+            if (before == null) before = reserved.get(bookId) + 1;
+            if (!allocate(bookId, now)) {
+                stock = batchRepository.releaseStock(List.of(bookId)).get(bookId);
+                break;
+            }
+            stock = reserved.get(bookId);
+            served++;
+        }
+        if (served > 0) events.publishEvent(new BookEvent(bookId, before, stock));
+        return served;
+    }
+}
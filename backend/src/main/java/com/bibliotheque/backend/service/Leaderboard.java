@@ -0,0 +1,86 @@
+package com.bibliotheque.backend.service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Classement maintenu incrémentalement : un incrément coûte O(log n),
+ * la lecture du top N coûte O(N) quel que soit l'historique.
+ * Verrou explicite plutôt que synchronized : pas d'épinglage des threads virtuels.
+ */
+final class Leaderboard {
+
+    private record Entry(long id, long count) {}
+
+    private static final Comparator<Entry> ORDER =
+            Comparator.comparingLong(Entry::count).reversed().thenComparingLong(Entry::id);
+
+    private final Map<Long, Entry> byId = new HashMap<>();
+    private final NavigableSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final Map<Long, Map<String, Object>> labels = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    void increment(long id, Map<String, Object> label) {
+        lock.lock();
+        try {
+            Entry previous = byId.get(id);
+            if (previous != null) ranking.remove(previous);
+            Entry next = new Entry(id, previous == null ? 1 : previous.count() + 1);
+            byId.put(id, next);
+            ranking.add(next);
+            if (label != null) labels.put(id, label);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.lock();
+        try {
+            Entry previous = byId.remove(id);
+            if (previous != null) ranking.remove(previous);
+            labels.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Remplace tout le classement ; chaque ligne est (id, libellés..., count). */
+    void reset(List<Object[]> rows, String... labelNames) {
+        lock.lock();
+        try {
+            byId.clear();
+            ranking.clear();
+            labels.clear();
+            for (Object[] row : rows) {
+                long id = ((Number) row[0]).longValue();
+                Entry entry = new Entry(id, ((Number) row[row.length - 1]).longValue());
+                byId.put(id, entry);
+                ranking.add(entry);
+                Map<String, Object> label = new LinkedHashMap<>();
+                for (int i = 0; i < labelNames.length; i++) label.put(labelNames[i], row[i + 1]);
+                labels.put(id, label);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    List<Map<String, Object>> top(int limit) {
+        lock.lock();
+        try {
+            List<Map<String, Object>> result = new ArrayList<>(Math.min(limit, ranking.size()));
+            for (Entry e : ranking) {
+                if (result.size() >= limit) break;
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("id", e.id());
+                m.putAll(labels.getOrDefault(e.id(), Map.of()));
+                m.put("count", e.count());
+                result.add(m);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
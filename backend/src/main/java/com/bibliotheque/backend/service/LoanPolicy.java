@@ -0,0 +1,34 @@
+package com.bibliotheque.backend.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/** Durée de prêt et barème des amendes de retard. */
+@Getter
+@Component
+public class LoanPolicy {
+
+    @Value("${loans.duration-days:14}")
+    private int durationDays;
+
+    @Value("${loans.fine-per-day:0.50}")
+    private BigDecimal finePerDay;
+
+    @Value("${loans.max-fine:20.00}")
+    private BigDecimal maxFine;
+
+    public LocalDateTime dueAt(LocalDateTime borrowedAt) {
+        return borrowedAt.plusDays(durationDays);
+    }
+
+    /** Amende à la date donnée : chaque jour de retard entamé est dû, dans la limite du plafond. */
+    public BigDecimal fine(LocalDateTime dueAt, LocalDateTime at) {
+        if (dueAt == null || !at.isAfter(dueAt)) return null;
+        long days = (Duration.between(dueAt, at).toMillis() + 86_399_999) / 86_400_000;
+        return finePerDay.multiply(BigDecimal.valueOf(days)).min(maxFine);
+    }
+}
@@ -0,0 +1,59 @@
+package com.bibliotheque.backend.service;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Écrit le résultat d'une requête ligne par ligne (NDJSON) pendant la lecture du curseur JDBC,
+ * sans jamais matérialiser la table entière en mémoire.
+ */
+@Component
+@RequiredArgsConstructor
+public class NdjsonExporter {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final int FLUSH_EVERY = 500;
+
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public <T> ResponseEntity<StreamingResponseBody> export(Supplier<Stream<T>> query) {
+        StreamingResponseBody body = out -> {
+            // Le curseur PostgreSQL n'est utilisé (fetch size) qu'à l'intérieur d'une transaction
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                try (Stream<T> rows = query.get()) {
+                    Iterator<T> it = rows.iterator();
+                    int n = 0;
+                    while (it.hasNext()) {
+                        out.write(objectMapper.writeValueAsBytes(it.next()));
+                        out.write('\n');
+                        if (++n % FLUSH_EVERY == 0) {
+                            out.flush();
+                            entityManager.clear();
+                        }
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+}
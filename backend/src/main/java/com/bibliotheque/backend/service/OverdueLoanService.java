@@ -0,0 +1,80 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.repository.OverdueLoanRepository;
+import com.bibliotheque.backend.repository.OverdueLoanRepository.OverdueLoan;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Passage en retard des emprunts échus : lots bornés parcourus par curseur (due_at, id),
+ * une transaction courte par lot (marquage, amende, notification), jamais de verrou sur la table.
+ */
+@Slf4j
+@Service
+public class OverdueLoanService {
+
+    private static final LocalDateTime START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final OverdueLoanRepository overdueLoanRepository;
+    private final LoanPolicy loanPolicy;
+    private final TransactionTemplate tx;
+    private final Counter processed;
+    private final int batchSize;
+
+    public OverdueLoanService(OverdueLoanRepository overdueLoanRepository, LoanPolicy loanPolicy,
+                              PlatformTransactionManager transactionManager, MeterRegistry registry,
+                              @Value("${loans.overdue.batch-size:1000}") int batchSize) {
+        this.overdueLoanRepository = overdueLoanRepository;
+        this.loanPolicy = loanPolicy;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.processed = Counter.builder("bibliotheque.overdue.processed").register(registry);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${loans.overdue.interval-ms:60000}",
+            fixedDelayString = "${loans.overdue.interval-ms:60000}")
+    public int processOverdueLoans() {
+        LocalDateTime now = LocalDateTime.now();
+        long start = System.nanoTime();
+        LocalDateTime afterDue = START;
+        long afterId = 0;
+        int total = 0, batches = 0;
+
+        while (true) {
+            LocalDateTime cursorDue = afterDue;
+            long cursorId = afterId;
+            List<OverdueLoan> batch = tx.execute(status -> {
+                List<OverdueLoan> loans = overdueLoanRepository.markOverdue(now, cursorDue, cursorId, batchSize,
+                        loanPolicy.getFinePerDay(), loanPolicy.getMaxFine());
+                if (!loans.isEmpty()) overdueLoanRepository.queueNotifications(loans, now);
+                return loans;
+            });
+            if (batch == null || batch.isEmpty()) break;
+
+            OverdueLoan last = batch.stream()
+                    .max(Comparator.comparing(OverdueLoan::dueAt).thenComparingLong(OverdueLoan::id))
+                    .orElseThrow();
+            afterDue = last.dueAt();
+            afterId = last.id();
+            total += batch.size();
+            batches++;
+            processed.increment(batch.size());
+        }
+
+        if (total > 0) {
+            long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            log.info("Retards : {} emprunts marqués en {} lots, {} ms ({} emprunts/s)",
+                    total, batches, elapsedMs, total * 1000L / elapsedMs);
+        }
+        return total;
+    }
+}
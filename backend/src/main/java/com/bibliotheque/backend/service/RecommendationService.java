@@ -0,0 +1,206 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.event.BorrowingEvent;
+import com.bibliotheque.backend.repository.BookRepository;
+import com.bibliotheque.backend.repository.CoBorrowingRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Recommandations « les lecteurs de ce livre ont aussi emprunté », servies depuis un
+ * CoBorrowingModel en mémoire : reconstruit au démarrage et chaque nuit à partir de tout
+ * l'historique (tranches de lecteurs réparties sur un ForkJoinPool), complété après chaque
+ * emprunt en arrière-plan. Une seule instance, comme StatsService.
+ */
+@Slf4j
+@Service
+public class RecommendationService {
+
+    private record Borrow(long id, long bookId, long[] previous) {}
+
+    private final CoBorrowingRepository repository;
+    private final BookRepository bookRepository;
+    private final CatalogVersion catalogVersion;
+    // Reconstruction lue sur le primaire, comme maxBorrowingId : un réplica en retard perdrait les
+    // emprunts qu'il n'a pas encore rejoués jusqu'à la reconstruction suivante
+    private final TransactionTemplate historyTx;
+    // Mises à jour incrémentales hors du thread de la requête : l'emprunt est déjà validé, une lecture
+    // lente ou en échec ne doit pas le transformer en erreur. File bornée ; un emprunt écarté est
+    // repris par la reconstruction suivante
+    private final ThreadPoolExecutor updates;
+    private final int window;
+    private final int maxNeighbours;
+    private final int parallelism;
+    private final int usersPerTask;
+
+    private volatile CoBorrowingModel model;
+    // Emprunts arrivés pendant une reconstruction, rejoués sur le nouveau modèle ; null hors reconstruction
+    private List<Borrow> pending;
+    private final ReentrantLock swap = new ReentrantLock();
+
+    public RecommendationService(CoBorrowingRepository repository, BookRepository bookRepository,
+                                 CatalogVersion catalogVersion, PlatformTransactionManager transactionManager,
+                                 @Value("${recommendations.window:10}") int window,
+                                 @Value("${recommendations.max-neighbours:50}") int maxNeighbours,
+                                 @Value("${recommendations.rebuild.parallelism:4}") int parallelism,
+                                 @Value("${recommendations.rebuild.users-per-task:20000}") int usersPerTask,
+                                 @Value("${recommendations.update-queue:10000}") int updateQueue) {
+        this.repository = repository;
+        this.bookRepository = bookRepository;
+        this.catalogVersion = catalogVersion;
+        this.historyTx = new TransactionTemplate(transactionManager);
+        this.updates = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(updateQueue),
+                r -> {
+                    Thread t = new Thread(r, "recommendations-update");
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> log.warn("Recommandations : file des mises à jour pleine, emprunt repris à la prochaine reconstruction"));
+        this.window = window;
+        this.maxNeighbours = maxNeighbours;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.usersPerTask = usersPerTask;
+        this.model = new CoBorrowingModel(window, maxNeighbours);
+    }
+
+    // Hors du thread de démarrage : sur un gros historique, la reconstruction prend des minutes
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread thread = new Thread(this::rebuild, "recommendations-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Scheduled(cron = "${recommendations.rebuild.cron:0 0 4 * * *}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        swap.lock();
+        try {
+            if (pending != null) return;
+            pending = new ArrayList<>();
+        } finally {
+            swap.unlock();
+        }
+
+        CoBorrowingModel fresh = new CoBorrowingModel(window, maxNeighbours);
+        boolean built = false;
+        long maxId = 0;
+        try {
+            maxId = repository.maxBorrowingId();
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new BuildTask(fresh, 1, repository.maxUserId() + 1, maxId));
+            } finally {
+                pool.shutdown();
+            }
+            built = true;
+        } finally {
+            swap.lock();
+            try {
+                if (built) {
+                    for (Borrow b : pending) if (b.id() > maxId) fresh.addBorrow(b.bookId(), b.previous());
+                    model = fresh;
+                }
+                pending = null;
+            } finally {
+                swap.unlock();
+            }
+        }
+        catalogVersion.bump();
+        log.info("Recommandations : {} livres, reconstruit en {} ms ({} threads)",
+                fresh.books(), (System.nanoTime() - start) / 1_000_000, parallelism);
+    }
+
+    // Sous l'ETag de CatalogVersion : livres lus sur le primaire, pas de transaction readOnly
+    @Timed(value = "bibliotheque.recommendations", histogram = true)
+    public List<Book> recommend(Long bookId, int limit) {
+        long[] top = model.top(bookId, limit);
+        if (top.length == 0) return List.of();
+        List<Long> ids = Arrays.stream(top).boxed().toList();
+        Map<Long, Book> byId = bookRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersion.BEFORE_BUMP)
+    public void onBorrowing(BorrowingEvent event) {
+        if (event.type() != BorrowingEvent.Type.BORROWED) return;
+        long id = event.borrowing().getId(), userId = event.userId(), bookId = event.bookId();
+        updates.execute(() -> addBorrow(id, userId, bookId));
+    }
+
+    private void addBorrow(long id, long userId, long bookId) {
+        try {
+            Borrow borrow = new Borrow(id, bookId, repository.recentBooks(userId, id, window));
+            swap.lock();
+            try {
+                model.addBorrow(borrow.bookId(), borrow.previous());
+                if (pending != null) pending.add(borrow);
+            } finally {
+                swap.unlock();
+            }
+            // Version déjà incrémentée au commit, avant cette mise à jour : l'ETag doit changer encore
+            catalogVersion.bump();
+        } catch (RuntimeException e) {
+            log.warn("Recommandations : emprunt {} non pris en compte, repris à la prochaine reconstruction : {}",
+                    id, e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersion.BEFORE_BUMP)
+    public void onBook(BookEvent event) {
+        if (event.deleted()) model.remove(event.bookId());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        updates.shutdownNow();
+    }
+
+    // Tranche de lecteurs [fromUser, toUser) : découpée jusqu'à usersPerTask, lue dans sa propre transaction
+    private final class BuildTask extends RecursiveAction {
+        private final CoBorrowingModel target;
+        private final long fromUser, toUser, maxId;
+
+        BuildTask(CoBorrowingModel target, long fromUser, long toUser, long maxId) {
+            this.target = target;
+            this.fromUser = fromUser;
+            this.toUser = toUser;
+            this.maxId = maxId;
+        }
+
+        @Override
+        protected void compute() {
+            if (toUser - fromUser <= usersPerTask) {
+                historyTx.executeWithoutResult(status ->
+                        repository.forEachHistory(fromUser, toUser, maxId, target::addHistory));
+                return;
+            }
+            long mid = (fromUser + toUser) >>> 1;
+            invokeAll(new BuildTask(target, fromUser, mid, maxId), new BuildTask(target, mid, toUser, maxId));
+        }
+    }
+}
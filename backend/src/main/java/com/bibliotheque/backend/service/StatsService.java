@@ -1,44 +1,185 @@
 package com.bibliotheque.backend.service;
 
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.event.BorrowingEvent;
 import com.bibliotheque.backend.repository.BorrowingRepository;
 import com.bibliotheque.backend.repository.BookRepository;
+import com.bibliotheque.backend.repository.BorrowingStatsRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Statistiques servies depuis la mémoire : compteurs et classements sont mis à jour à chaque
+ * emprunt/retour/modification du catalogue, puis réalignés périodiquement sur les compteurs
+ * pré-agrégés. Les classements sur N jours sont lus dans borrowing_daily et gardés une minute.
+ */
 @Service @RequiredArgsConstructor
 public class StatsService {
     private final BorrowingRepository borrowingRepository;
     private final BookRepository bookRepository;
+    private final BorrowingStatsRepository statsRepository;
+    private final CatalogVersion catalogVersion;
+
+    private static final int MAX_TOP_LIMIT = 100;
+    private static final int MAX_WINDOW_DAYS = 3660;
+
+    @Value("${stats.top-limit:10}")
+    private int defaultTopLimit;
+
+    private final AtomicLong totalBooks = new AtomicLong();
+    private final AtomicLong availableBooks = new AtomicLong();
+    private final AtomicLong unavailableBooks = new AtomicLong();
+    private final AtomicLong totalBorrowings = new AtomicLong();
+    private final AtomicLong activeBorrowings = new AtomicLong();
+    private final Leaderboard topBooks = new Leaderboard();
+    private final Leaderboard topUsers = new Leaderboard();
+    // Partagé par les écouteurs, exclusif pour le réalignement
+    private final ReentrantReadWriteLock counting = new ReentrantReadWriteLock();
+
+    private record WindowKey(String kind, int days, int limit) {}
+
+    // Fenêtres lues sur le primaire (pas de transaction readOnly) : mises en cache et servies sous
+    // l'ETag de CatalogVersion, une copie lue sur un réplica en retard y resterait attachée
+    private final Cache<WindowKey, List<Map<String, Object>>> windows = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${stats.reconcile-interval-ms:300000}",
+            fixedDelayString = "${stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        // Écouteurs en attente pendant les lectures : un évènement validé après la lecture est
+        // appliqué après le réalignement au lieu d'être écrasé par celui-ci
+        counting.writeLock().lock();
+        try {
+            totalBooks.set(bookRepository.count());
+            availableBooks.set(bookRepository.countByStockGreaterThan(0));
+            unavailableBooks.set(bookRepository.countByStockEquals(0));
+            totalBorrowings.set(statsRepository.totalBorrowings());
+            activeBorrowings.set(borrowingRepository.countByReturnedAtIsNull());
+            topBooks.reset(statsRepository.bookTotals(), "title", "author");
+            topUsers.reset(statsRepository.userTotals(), "username");
+        } finally {
+            counting.writeLock().unlock();
+        }
+        catalogVersion.bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersion.BEFORE_BUMP)
+    public void onBorrowing(BorrowingEvent event) {
+        counting.readLock().lock();
+        try {
+            count(event);
+        } finally {
+            counting.readLock().unlock();
+        }
+    }
+
+    private void count(BorrowingEvent event) {
+        if (event.type() == BorrowingEvent.Type.BORROWED) {
+            totalBorrowings.incrementAndGet();
+            activeBorrowings.incrementAndGet();
+            // Dernier exemplaire sorti du stock ; rien ne bouge pour un exemplaire mis de côté
+            if (event.stockChanged() && event.stockAfter() == 0) moveToUnavailable();
+            var book = event.borrowing().getBook();
+            var user = event.borrowing().getUser();
+            topBooks.increment(book.getId(), label("title", book.getTitle(), "author", book.getAuthor()));
+            topUsers.increment(user.getId(), label("username", user.getUsername()));
+        } else {
+            activeBorrowings.decrementAndGet();
+            if (event.stockChanged() && event.stockAfter() == 1) moveToAvailable();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(CatalogVersion.BEFORE_BUMP)
+    public void onBook(BookEvent event) {
+        counting.readLock().lock();
+        try {
+            count(event);
+        } finally {
+            counting.readLock().unlock();
+        }
+    }
+
+    private void count(BookEvent event) {
+        if (event.created()) {
+            totalBooks.incrementAndGet();
+            (event.stockAfter() > 0 ? availableBooks : unavailableBooks).incrementAndGet();
+        } else if (event.deleted()) {
+            totalBooks.decrementAndGet();
+            (event.stockBefore() > 0 ? availableBooks : unavailableBooks).decrementAndGet();
+            topBooks.remove(event.bookId());
+        } else if (event.stockBefore() > 0 && event.stockAfter() == 0) {
+            moveToUnavailable();
+        } else if (event.stockBefore() == 0 && event.stockAfter() > 0) {
+            moveToAvailable();
+        }
+    }
 
     public Map<String, Long> getGeneralStats() {
         Map<String, Long> stats = new HashMap<>();
-        stats.put("totalBooks", bookRepository.count());
-        stats.put("availableBooks", bookRepository.countByStockGreaterThan(0));
-        stats.put("unavailableBooks", bookRepository.countByStockEquals(0));
-        stats.put("totalBorrowings", borrowingRepository.count());
-        stats.put("activeBorrowings", borrowingRepository.countByReturnedAtIsNull());
+        stats.put("totalBooks", totalBooks.get());
+        stats.put("availableBooks", availableBooks.get());
+        stats.put("unavailableBooks", unavailableBooks.get());
+        stats.put("totalBorrowings", totalBorrowings.get());
+        stats.put("activeBorrowings", activeBorrowings.get());
         return stats;
     }
 
-    public List<Map<String, Object>> getTopBooks() {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Object[] row : borrowingRepository.findTopBooks()) {
-            Map<String, Object> m = new LinkedHashMap<>();
-            m.put("id", row[0]); m.put("title", row[1]);
-            m.put("author", row[2]); m.put("count", row[3]);
-            result.add(m);
-        }
-        return result;
+    /** Classement des livres, depuis toujours ou sur les {@code days} derniers jours (aujourd'hui inclus). */
+    public List<Map<String, Object>> getTopBooks(Integer limit, Integer days) {
+        if (days == null) return topBooks.top(topLimit(limit));
+        WindowKey key = new WindowKey(BorrowingStatsRepository.BOOK, windowDays(days), topLimit(limit));
+        return windows.get(key, k -> statsRepository.topBooksSince(since(k.days()), k.limit()));
     }
 
-    public List<Map<String, Object>> getTopUsers() {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Object[] row : borrowingRepository.findTopUsers()) {
-            Map<String, Object> m = new LinkedHashMap<>();
-            m.put("id", row[0]); m.put("username", row[1]); m.put("count", row[2]);
-            result.add(m);
-        }
-        return result;
+    public List<Map<String, Object>> getTopUsers(Integer limit, Integer days) {
+        if (days == null) return topUsers.top(topLimit(limit));
+        WindowKey key = new WindowKey(BorrowingStatsRepository.USER, windowDays(days), topLimit(limit));
+        return windows.get(key, k -> statsRepository.topUsersSince(since(k.days()), k.limit()));
+    }
+
+    private static int windowDays(int days) {
+        return Math.max(1, Math.min(days, MAX_WINDOW_DAYS));
+    }
+
+    private static LocalDate since(int days) {
+        return LocalDate.now().minusDays(days - 1);
+    }
+
+    private int topLimit(Integer limit) {
+        return limit == null ? defaultTopLimit : Math.max(1, Math.min(limit, MAX_TOP_LIMIT));
+    }
+
+    private void moveToUnavailable() {
+        availableBooks.decrementAndGet();
+        unavailableBooks.incrementAndGet();
+    }
+
+    private void moveToAvailable() {
+        unavailableBooks.decrementAndGet();
+        availableBooks.incrementAndGet();
+    }
+
+    private static Map<String, Object> label(Object... keyValues) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) m.put((String) keyValues[i], keyValues[i + 1]);
+        return m;
     }
 }
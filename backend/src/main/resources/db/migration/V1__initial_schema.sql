@@ -0,0 +1,28 @@
+-- Schéma initial, tel que généré jusqu'ici par Hibernate (ddl-auto=update).
+-- Une base existante est marquée à cette version sans exécution (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE IF NOT EXISTS users (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username      VARCHAR(50)  NOT NULL UNIQUE,
+    email         VARCHAR(100) NOT NULL UNIQUE,
+    password_hash VARCHAR(255) NOT NULL,
+    role          VARCHAR(10)  NOT NULL,
+    created_at    TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS books (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title      VARCHAR(255) NOT NULL,
+    author     VARCHAR(255) NOT NULL,
+    isbn       VARCHAR(20)  NOT NULL UNIQUE,
+    stock      INTEGER      NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS borrowings (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id     BIGINT       NOT NULL REFERENCES users (id),
+    book_id     BIGINT       NOT NULL REFERENCES books (id),
+    borrowed_at TIMESTAMP(6) NOT NULL,
+    returned_at TIMESTAMP(6)
+);
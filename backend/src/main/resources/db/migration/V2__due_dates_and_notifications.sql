@@ -0,0 +1,23 @@
+-- Échéances, retards et amendes (OverdueLoanService), file de notifications.
+-- IF NOT EXISTS : ces colonnes ont pu être créées par Hibernate avant l'arrivée de Flyway.
+
+-- Bases créées par database.sql, où l'email était ajouté par Hibernate
+ALTER TABLE users ADD COLUMN IF NOT EXISTS email VARCHAR(100);
+
+ALTER TABLE borrowings ADD COLUMN IF NOT EXISTS due_at TIMESTAMP(6);
+ALTER TABLE borrowings ADD COLUMN IF NOT EXISTS overdue_at TIMESTAMP(6);
+ALTER TABLE borrowings ADD COLUMN IF NOT EXISTS fine NUMERIC(10, 2);
+
+-- Emprunts antérieurs : échéance par défaut (loans.duration-days)
+UPDATE borrowings SET due_at = borrowed_at + INTERVAL '14 days' WHERE due_at IS NULL;
+
+CREATE TABLE IF NOT EXISTS notifications (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id      BIGINT       NOT NULL REFERENCES users (id),
+    borrowing_id BIGINT,
+    type         VARCHAR(30)  NOT NULL,
+    message      VARCHAR(500) NOT NULL,
+    created_at   TIMESTAMP(6) NOT NULL,
+    sent_at      TIMESTAMP(6),
+    CONSTRAINT uq_notifications_borrowing_type UNIQUE (borrowing_id, type)
+);
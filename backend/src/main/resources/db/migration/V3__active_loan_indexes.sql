@@ -0,0 +1,28 @@
+-- Index des requêtes sur les emprunts, construits sans bloquer les écritures (CONCURRENTLY,
+-- d'où executeInTransaction=false dans le .conf). Si une construction échoue, l'index reste
+-- INVALID : le supprimer avant de relancer la migration.
+
+-- Un seul emprunt actif par (utilisateur, livre) ; sert aussi « mes emprunts en cours »
+-- et le comptage des emprunts actifs (parcours d'index seul)
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_borrowings_active_loan
+    ON borrowings (user_id, book_id) WHERE returned_at IS NULL;
+
+-- Pagination par curseur des emprunts actifs (GET /api/borrowings/active)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_borrowings_active_id
+    ON borrowings (id) WHERE returned_at IS NULL;
+
+-- Emprunts actifs pas encore traités par OverdueLoanService, dans l'ordre de parcours (due_at, id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_borrowings_overdue_pending
+    ON borrowings (due_at, id) WHERE returned_at IS NULL AND overdue_at IS NULL;
+
+-- Historique d'un utilisateur (GET /api/borrowings/my)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_borrowings_user
+    ON borrowings (user_id, id);
+
+-- Clé étrangère vers books : classements par livre et suppression d'un livre
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_borrowings_book
+    ON borrowings (book_id);
+
+-- File des notifications à envoyer
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_notifications_pending
+    ON notifications (id) WHERE sent_at IS NULL;
@@ -0,0 +1,30 @@
+-- Compteurs d'emprunts pré-agrégés, tenus à jour dans la transaction de l'emprunt (BorrowingService) :
+-- les classements ne regroupent plus tout l'historique. kind = 'book' ou 'user'.
+
+CREATE TABLE IF NOT EXISTS borrowing_totals (
+    kind       VARCHAR(4) NOT NULL,
+    subject_id BIGINT     NOT NULL,
+    count      BIGINT     NOT NULL,
+    PRIMARY KEY (kind, subject_id)
+);
+
+-- Un compteur par jour : un classement sur N jours ne lit que les lignes de la fenêtre
+CREATE TABLE IF NOT EXISTS borrowing_daily (
+    kind       VARCHAR(4) NOT NULL,
+    day        DATE       NOT NULL,
+    subject_id BIGINT     NOT NULL,
+    count      INTEGER    NOT NULL,
+    PRIMARY KEY (kind, day, subject_id)
+);
+
+INSERT INTO borrowing_totals (kind, subject_id, count)
+SELECT 'book', book_id, COUNT(*) FROM borrowings GROUP BY book_id
+UNION ALL
+SELECT 'user', user_id, COUNT(*) FROM borrowings GROUP BY user_id
+ON CONFLICT DO NOTHING;
+
+INSERT INTO borrowing_daily (kind, day, subject_id, count)
+SELECT 'book', borrowed_at::date, book_id, COUNT(*) FROM borrowings GROUP BY borrowed_at::date, book_id
+UNION ALL
+SELECT 'user', borrowed_at::date, user_id, COUNT(*) FROM borrowings GROUP BY borrowed_at::date, user_id
+ON CONFLICT DO NOTHING;
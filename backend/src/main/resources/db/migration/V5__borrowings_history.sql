@@ -0,0 +1,21 @@
+-- Stockage froid des emprunts rendus depuis longtemps (BorrowingArchiveService) : la table
+-- borrowings ne garde que les emprunts actifs et récents, ses index restent petits.
+-- Partitions annuelles sur returned_at, créées par le job d'archivage au besoin.
+
+CREATE TABLE IF NOT EXISTS borrowings_history (
+    id          BIGINT       NOT NULL,
+    user_id     BIGINT       NOT NULL,
+    book_id     BIGINT       NOT NULL,
+    borrowed_at TIMESTAMP(6) NOT NULL,
+    due_at      TIMESTAMP(6),
+    returned_at TIMESTAMP(6) NOT NULL,
+    overdue_at  TIMESTAMP(6),
+    fine        NUMERIC(10, 2)
+) PARTITION BY RANGE (returned_at);
+
+CREATE INDEX IF NOT EXISTS idx_borrowings_history_user ON borrowings_history (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_borrowings_history_id ON borrowings_history (id);
+
+-- Curseur (returned_at, id) du job d'archivage, du plus ancien retour au plus récent
+CREATE INDEX IF NOT EXISTS idx_borrowings_returned
+    ON borrowings (returned_at, id) WHERE returned_at IS NOT NULL;
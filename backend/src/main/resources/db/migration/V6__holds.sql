@@ -0,0 +1,23 @@
+-- Réservations (HoldService) : file FIFO par livre, l'ordre d'arrivée est l'id.
+-- WAITING en file, READY exemplaire mis de côté jusqu'à expires_at, puis état final.
+
+CREATE TABLE IF NOT EXISTS holds (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id    BIGINT       NOT NULL REFERENCES users (id),
+    book_id    BIGINT       NOT NULL REFERENCES books (id) ON DELETE CASCADE,
+    status     VARCHAR(20)  NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    ready_at   TIMESTAMP(6),
+    expires_at TIMESTAMP(6),
+    closed_at  TIMESTAMP(6)
+);
+
+-- Une seule réservation ouverte par lecteur et par livre
+CREATE UNIQUE INDEX IF NOT EXISTS uq_holds_open
+    ON holds (user_id, book_id) WHERE status IN ('WAITING', 'READY');
+
+-- Tête de file d'un livre : premier id en attente, sans parcourir la file
+CREATE INDEX IF NOT EXISTS idx_holds_queue ON holds (book_id, id) WHERE status = 'WAITING';
+
+-- Expiration des exemplaires mis de côté, dans l'ordre des échéances
+CREATE INDEX IF NOT EXISTS idx_holds_ready_expiry ON holds (expires_at, id) WHERE status = 'READY';
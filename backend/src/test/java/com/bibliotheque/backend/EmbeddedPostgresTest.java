@@ -0,0 +1,78 @@
+package com.bibliotheque.backend;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application complète sur un PostgreSQL embarqué, démarré une fois pour toute la suite : les
+ * classes qui en héritent partagent le même contexte Spring. Pas de nettoyage entre les tests,
+ * chacun crée ses propres lecteurs et livres ; les tâches planifiées sont repoussées. MockMvc
+ * passe par la chaîne de sécurité (JwtFilter compris).
+ */
+@SpringBootTest(properties = {
+		"holds.expiry.interval-ms=3600000",
+		"holds.rebuild-interval-ms=3600000",
+		"loans.overdue.interval-ms=3600000",
+		"stats.reconcile-interval-ms=3600000",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+@AutoConfigureMockMvc
+public abstract class EmbeddedPostgresTest {
+
+	private static final EmbeddedPostgres POSTGRES = start();
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+
+	@Autowired
+	protected JdbcTemplate jdbc;
+
+	@Autowired
+	protected MockMvc mvc;
+
+	@DynamicPropertySource
+	static void datasource(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+		registry.add("spring.datasource.username", () -> "postgres");
+		registry.add("spring.datasource.password", () -> "");
+	}
+
+	private static EmbeddedPostgres start() {
+		try {
+			EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					postgres.close();
+				} catch (IOException ignored) {
+					// Arrêt de la JVM
+				}
+			}));
+			return postgres;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	protected long newUser() {
+		long n = SEQUENCE.incrementAndGet();
+		return jdbc.queryForObject("INSERT INTO users (username, email, password_hash, role, created_at) " +
+				"VALUES (?, ?, 'x', 'USER', now()) RETURNING id", Long.class, "lecteur" + n, "lecteur" + n + "@example.org");
+	}
+
+	protected long newBook(int stock) {
+		long n = SEQUENCE.incrementAndGet();
+		return jdbc.queryForObject("INSERT INTO books (title, author, isbn, stock, created_at) " +
+				"VALUES (?, 'Auteur', ?, ?, now()) RETURNING id", Long.class, "Livre " + n, "test-" + n, stock);
+	}
+
+	protected int stock(long bookId) {
+		return jdbc.queryForObject("SELECT stock FROM books WHERE id = ?", Integer.class, bookId);
+	}
+}
@@ -0,0 +1,146 @@
+package com.bibliotheque.backend.benchmark;
+
+import com.bibliotheque.backend.repository.BorrowingHistoryRepository;
+import com.bibliotheque.backend.service.BorrowingArchiveService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+
+/**
+ * Latence des requêtes sur les emprunts actifs selon le volume d'historique : mesure avec tout
+ * l'historique dans borrowings, puis après archivage vers borrowings_history.
+ *
+ * <p>Argument : nombre d'emprunts rendus générés, dont environ 80 % rendus depuis plus d'un an.
+ * Compter environ 200 Mo de disque et une minute de génération par million d'emprunts sur un
+ * cœur : {@code 10000000} tient en un quart d'heure, {@code 50000000} demande plus d'une heure.
+ * Rapport dans {@code target/archive-result.json}.
+ */
+public class ArchiveBenchmark {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().build();
+    private static final int USERS = 100_000;
+    private static final int ITERATIONS = 2_000;
+    private static final int SEED_CHUNK = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        long history = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000;
+        long active = Math.max(10_000, history / 100);
+        int books = (int) Math.max(20_000, active / USERS + 1);
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.builder().start()) {
+            DataSource ds = pg.getPostgresDatabase();
+            Flyway.configure()
+                    .dataSource(ds)
+                    .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                    .load()
+                    .migrate();
+            JdbcTemplate jdbc = new JdbcTemplate(ds);
+            seed(jdbc, history, active, books);
+
+            // Mesures sur une connexion ouverte une fois : la source embarquée n'a pas de pool
+            SingleConnectionDataSource single = new SingleConnectionDataSource(ds.getConnection(), true);
+            JdbcTemplate timed = new JdbcTemplate(single);
+            List<Row> rows = new ArrayList<>();
+            rows.addAll(measure(timed, "single-table", active, false));
+
+            BorrowingArchiveService archive = new BorrowingArchiveService(
+                    new BorrowingHistoryRepository(new NamedParameterJdbcTemplate(ds)),
+                    new DataSourceTransactionManager(ds), new SimpleMeterRegistry(), 12, 50_000);
+            long t0 = System.nanoTime();
+            int moved = archive.archiveReturnedBefore(LocalDateTime.now().minusMonths(12));
+            System.out.printf("%d emprunts archivés en %d s%n", moved, (System.nanoTime() - t0) / 1_000_000_000L);
+            // État stable : avec l'archivage en place, la table chaude n'a jamais contenu ces lignes
+            jdbc.execute("VACUUM FULL borrowings");
+            jdbc.execute("VACUUM ANALYZE borrowings");
+            jdbc.execute("VACUUM ANALYZE borrowings_history");
+
+            rows.addAll(measure(timed, "archived", active, true));
+            single.destroy();
+            System.out.printf("%d emprunts rendus, %d actifs%n", history, active);
+            print(rows, System.out);
+            File out = new File("target/archive-result.json");
+            out.getParentFile().mkdirs();
+            JSON.writerWithDefaultPrettyPrinter().writeValue(out, rows);
+        }
+    }
+
+    private static void seed(JdbcTemplate jdbc, long history, long active, int books) {
+        jdbc.update("INSERT INTO users (username, email, password_hash, role, created_at) " +
+                "SELECT 'user' || i, 'user' || i || '@example.org', 'x', 'USER', now() FROM generate_series(1, ?) i", USERS);
+        jdbc.update("INSERT INTO books (title, author, isbn, stock, created_at) " +
+                "SELECT 'Livre ' || i, 'Auteur', 'isbn' || i, 1, now() FROM generate_series(1, ?) i", books);
+        // Retours étalés sur cinq ans, par tranches pour suivre la progression
+        for (long from = 1; from <= history; from += SEED_CHUNK) {
+            long to = Math.min(history, from + SEED_CHUNK - 1);
+            jdbc.update("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at, returned_at) " +
+                    "SELECT 1 + i % ?, 1 + (i * 7) % ?, r - interval '10 days', r - interval '3 days', r " +
+                    "FROM generate_series(?::bigint, ?::bigint) i, LATERAL (SELECT now() - (i % 1800) * interval '1 day' AS r) t",
+                    USERS, books, from, to);
+            System.out.printf("Historique : %d / %d%n", to, history);
+        }
+        jdbc.update("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at) " +
+                "SELECT 1 + i % ?, 1 + i / ?, now() - interval '10 days', now() + (i % 21 - 7) * interval '1 day' " +
+                "FROM generate_series(0, ? - 1) i", USERS, USERS, active);
+        jdbc.execute("VACUUM ANALYZE");
+    }
+
+    private static List<Row> measure(JdbcTemplate jdbc, String layout, long active, boolean archived) {
+        List<Row> rows = new ArrayList<>();
+        long bytes = jdbc.queryForObject("SELECT pg_total_relation_size('borrowings')", Long.class);
+        rows.add(time(layout, "active loan exists", bytes, i -> {
+            long n = i % active;
+            return jdbc.queryForList("SELECT 1 FROM borrowings WHERE user_id = ? AND book_id = ? AND returned_at IS NULL",
+                    1 + n % USERS, 1 + n / USERS);
+        }));
+        rows.add(time(layout, "user active loans", bytes, i -> jdbc.queryForList(
+                "SELECT id FROM borrowings WHERE user_id = ? AND returned_at IS NULL", 1 + i % USERS)));
+        rows.add(time(layout, "active page", bytes, i -> jdbc.queryForList(
+                "SELECT id FROM borrowings WHERE returned_at IS NULL AND id > ? ORDER BY id LIMIT 50",
+                i * 37 % Math.max(1, active))));
+        rows.add(time(layout, "active count", bytes, i -> jdbc.queryForObject(
+                "SELECT count(*) FROM borrowings WHERE returned_at IS NULL", Long.class)));
+        rows.add(time(layout, "user history", bytes, i -> archived
+                ? jdbc.queryForList("SELECT id FROM borrowings_history WHERE user_id = ? " +
+                        "UNION ALL SELECT id FROM borrowings WHERE user_id = ?", 1 + i % USERS, 1 + i % USERS)
+                : jdbc.queryForList("SELECT id FROM borrowings WHERE user_id = ? ORDER BY id", 1 + i % USERS)));
+        return rows;
+    }
+
+    private static Row time(String layout, String query, long bytes, LongFunction<Object> run) {
+        for (int i = 0; i < ITERATIONS / 4; i++) run.apply(ThreadLocalRandom.current().nextLong(1_000_000));
+        long[] latencies = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long arg = ThreadLocalRandom.current().nextLong(1_000_000);
+            long t0 = System.nanoTime();
+            run.apply(arg);
+            latencies[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(latencies);
+        return new Row(layout, query, bytes / (1024 * 1024),
+                latencies[ITERATIONS / 2] / 1e6, latencies[ITERATIONS * 99 / 100] / 1e6);
+    }
+
+    private static void print(List<Row> rows, PrintStream out) {
+        out.printf("%-14s %-20s %10s %9s %9s%n", "layout", "query", "table MB", "p50 ms", "p99 ms");
+        for (Row r : rows)
+            out.printf("%-14s %-20s %10d %9.3f %9.3f%n", r.layout(), r.query(), r.hotTableMb(), r.p50Ms(), r.p99Ms());
+    }
+
+    record Row(String layout, String query, long hotTableMb, double p50Ms, double p99Ms) {}
+}
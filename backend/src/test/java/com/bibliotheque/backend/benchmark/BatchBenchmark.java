@@ -0,0 +1,128 @@
+package com.bibliotheque.backend.benchmark;
+
+import com.bibliotheque.backend.BackendApplication;
+import com.bibliotheque.backend.dto.BatchItemResult;
+import com.bibliotheque.backend.service.BorrowingService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Emprunt puis retour d'un lot de livres par un lecteur : borrowAll/returnAll contre la même
+ * suite d'appels unitaires borrow/returnBook, services appelés directement (sans HTTP) sur un
+ * PostgreSQL embarqué. Chaque appel unitaire est une transaction : c'est le coût évité par le lot.
+ *
+ * <p>Arguments : tailles de lot (défaut {@code 1 10 50 100}).
+ * Rapport dans {@code target/batch-result.json}.
+ */
+public class BatchBenchmark {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().build();
+    private static final int BOOKS = 10_000;
+    private static final int USERS = 100;
+    // Livres empruntés puis rendus par mode et par taille de lot, après chauffe
+    private static final int BOOKS_PER_RUN = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 10, 50, 100};
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (EmbeddedPostgres pg = EmbeddedPostgres.builder().start()) {
+            ConfigurableApplicationContext ctx = new SpringApplicationBuilder(BackendApplication.class).run(
+                    "--spring.datasource.url=" + pg.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=",
+                    "--server.port=0",
+                    "--holds.expiry.interval-ms=3600000",
+                    "--loans.overdue.interval-ms=3600000",
+                    "--stats.reconcile-interval-ms=3600000",
+                    "--logging.level.root=WARN");
+            try {
+                JdbcTemplate jdbc = ctx.getBean(JdbcTemplate.class);
+                jdbc.update("INSERT INTO users (username, email, password_hash, role, created_at) " +
+                        "SELECT 'lot' || i, 'lot' || i || '@example.org', 'x', 'USER', now() FROM generate_series(1, ?) i", USERS);
+                jdbc.update("INSERT INTO books (title, author, isbn, stock, created_at) " +
+                        "SELECT 'Livre ' || i, 'Auteur', 'lot' || i, 1000, now() FROM generate_series(1, ?) i", BOOKS);
+                jdbc.execute("VACUUM ANALYZE");
+                long firstUser = jdbc.queryForObject("SELECT min(id) FROM users WHERE username LIKE 'lot%'", Long.class);
+                long firstBook = jdbc.queryForObject("SELECT min(id) FROM books WHERE isbn LIKE 'lot%'", Long.class);
+
+                BorrowingService service = ctx.getBean(BorrowingService.class);
+                List<Row> rows = new ArrayList<>();
+                for (int size : sizes) {
+                    Workload w = new Workload(service, firstUser, firstBook, size);
+                    w.run(BOOKS_PER_RUN / 4, true);
+                    w.run(BOOKS_PER_RUN / 4, false);
+                    double batch = w.run(BOOKS_PER_RUN, true);
+                    double single = w.run(BOOKS_PER_RUN, false);
+                    rows.add(new Row(size, batch, single, batch / single));
+                }
+
+                print(rows, System.out);
+                File out = new File("target/batch-result.json");
+                out.getParentFile().mkdirs();
+                JSON.writerWithDefaultPrettyPrinter().writeValue(out, rows);
+            } finally {
+                ctx.close();
+            }
+        }
+    }
+
+    // Lecteurs et tranches du catalogue en tourniquet : pas de conflit avec un emprunt encore actif
+    private static final class Workload {
+        final BorrowingService service;
+        final long firstUser, firstBook;
+        final int size;
+        long round;
+
+        Workload(BorrowingService service, long firstUser, long firstBook, int size) {
+            this.service = service;
+            this.firstUser = firstUser;
+            this.firstBook = firstBook;
+            this.size = size;
+        }
+
+        // Livres empruntés et rendus par seconde
+        double run(int books, boolean batched) {
+            int rounds = Math.max(1, books / size);
+            long t0 = System.nanoTime();
+            for (int r = 0; r < rounds; r++, round++) {
+                long user = firstUser + round % USERS;
+                long start = firstBook + (round * size) % (BOOKS - size + 1);
+                List<Long> ids = LongStream.range(start, start + size).boxed().toList();
+                if (batched) {
+                    check(service.borrowAll(user, ids));
+                    check(service.returnAll(user, ids));
+                } else {
+                    for (Long id : ids) service.borrow(user, id);
+                    for (Long id : ids) service.returnBook(user, id);
+                }
+            }
+            return (double) rounds * size / ((System.nanoTime() - t0) / 1e9);
+        }
+
+        private static void check(List<BatchItemResult> results) {
+            for (BatchItemResult r : results)
+                if (!r.isSuccess()) throw new IllegalStateException(r.getBookId() + " : " + r.getError());
+        }
+    }
+
+    private static void print(List<Row> rows, PrintStream out) {
+        out.printf("%6s %14s %14s %8s%n", "lot", "lot livres/s", "unit. livres/s", "gain");
+        for (Row r : rows)
+            out.printf("%6d %14.0f %14.0f %7.1fx%n", r.batchSize(), r.batchBooksPerSecond(),
+                    r.singleBooksPerSecond(), r.speedup());
+    }
+
+    record Row(int batchSize, double batchBooksPerSecond, double singleBooksPerSecond, double speedup) {}
+}
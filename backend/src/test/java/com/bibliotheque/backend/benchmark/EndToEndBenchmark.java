@@ -0,0 +1,103 @@
+package com.bibliotheque.backend.benchmark;
+
+import com.bibliotheque.backend.BackendApplication;
+import com.bibliotheque.backend.dto.BookImportRow;
+import com.bibliotheque.backend.dto.RegisterRequest;
+import com.bibliotheque.backend.repository.BookBatchRepository;
+import com.bibliotheque.backend.service.AuthService;
+import com.bibliotheque.backend.service.BookService;
+import com.bibliotheque.backend.service.StatsService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Charge de bout en bout sans infrastructure : PostgreSQL embarqué, application démarrée
+ * sur un port libre, catalogue généré, puis LoadDriver (recherche, emprunt, retour).
+ * Rapport dans {@code target/e2e-result.json}, à conserver comme référence entre versions ;
+ * lecture répétée du catalogue (gzip, GET conditionnel) dans {@code target/e2e-polling.json},
+ * rafale de connexions (part de 429) dans {@code target/e2e-login.json}.
+ *
+ * <p>Arguments : livres, clients concurrents, durée en secondes ; d'autres propriétés Spring
+ * (ex. {@code --spring.profiles.active=virtual}) peuvent suivre.
+ */
+public class EndToEndBenchmark {
+
+    private static final String USERNAME = "benchmark";
+    private static final String PASSWORD = "benchmark-password";
+
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        // Lu par devtools avant le démarrage : sinon main() est relancé avec les arguments Spring
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (EmbeddedPostgres pg = EmbeddedPostgres.builder().start()) {
+            // En arguments de ligne de commande : prioritaires sur application.properties
+            List<String> springArgs = new ArrayList<>(List.of(
+                    "--spring.datasource.url=" + pg.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=",
+                    "--server.port=0",
+                    "--logging.level.root=WARN"));
+            springArgs.addAll(Arrays.asList(args).subList(Math.min(3, args.length), args.length));
+            ConfigurableApplicationContext ctx = new SpringApplicationBuilder(BackendApplication.class)
+                    .run(springArgs.toArray(String[]::new));
+            try {
+                List<String> tokens = seed(ctx, books, clients);
+                int port = ctx.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+                LoadDriver driver = new LoadDriver("http://localhost:" + port);
+                driver.useTokens(tokens);
+                LoadDriver.Report report = driver.run(clients, Duration.ofSeconds(seconds));
+                System.out.printf("%d livres, %d clients, %d s%n", books, clients, seconds);
+                report.print(System.out);
+                report.write(new File("target/e2e-result.json"));
+
+                LoadDriver.Report polling = driver.poll("/api/books", 200);
+                polling.print(System.out);
+                polling.write(new File("target/e2e-polling.json"));
+
+                LoadDriver.Report storm = driver.loginStorm(USERNAME + "-0", PASSWORD, clients, Duration.ofSeconds(seconds));
+                storm.print(System.out);
+                System.out.printf("connexions refusées (429) : %.1f %%%n", 100 * storm.share(" 429"));
+                storm.write(new File("target/e2e-login.json"));
+            } finally {
+                ctx.close();
+            }
+        }
+    }
+
+    // Catalogue puis un lecteur par client ; renvoie leurs jetons dans l'ordre des clients
+    private static List<String> seed(ConfigurableApplicationContext ctx, int books, int clients) {
+        BookBatchRepository batch = ctx.getBean(BookBatchRepository.class);
+        List<BookImportRow> rows = new ArrayList<>(1000);
+        for (int i = 1; i <= books; i++) {
+            rows.add(new BookImportRow("Livre " + i + (i % 2 == 0 ? " fondation" : " prince"),
+                    "Auteur " + (i % 500), String.valueOf(9_782_000_000_000L + i), 5));
+            if (rows.size() == 1000 || i == books) {
+                batch.upsert(rows);
+                rows.clear();
+            }
+        }
+
+        List<String> tokens = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            RegisterRequest user = new RegisterRequest();
+            user.setUsername(USERNAME + "-" + i);
+            user.setEmail(USERNAME + "-" + i + "@example.org");
+            user.setPassword(PASSWORD);
+            tokens.add(ctx.getBean(AuthService.class).register(user).getToken());
+        }
+
+        ctx.getBean(BookService.class).buildSearchIndex();
+        ctx.getBean(StatsService.class).reconcile();
+        return tokens;
+    }
+}
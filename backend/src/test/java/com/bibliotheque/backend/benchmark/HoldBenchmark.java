@@ -0,0 +1,106 @@
+package com.bibliotheque.backend.benchmark;
+
+import com.bibliotheque.backend.repository.HoldRepository;
+import com.bibliotheque.backend.repository.HoldRepository.ReadyHold;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coût de l'attribution d'un exemplaire rendu selon la longueur de la file de réservation :
+ * tête de file mise de côté (READY) et notification, comme dans la transaction d'un retour.
+ * La file garde sa longueur : le lecteur servi emprunte puis se remet en fin de file.
+ *
+ * <p>Arguments : longueurs de file (défaut {@code 10 1000 10000 100000}).
+ * Rapport dans {@code target/holds-result.json}.
+ */
+public class HoldBenchmark {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().build();
+    private static final int ITERATIONS = 2_000;
+    private static final int CATALOG = 20_000;
+    private static final int CLOSED_HOLDS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{10, 1_000, 10_000, 100_000};
+        int users = Arrays.stream(sizes).max().orElse(0);
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.builder().start()) {
+            DataSource ds = pg.getPostgresDatabase();
+            Flyway.configure()
+                    .dataSource(ds)
+                    .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                    .load()
+                    .migrate();
+            JdbcTemplate jdbc = new JdbcTemplate(ds);
+            jdbc.update("INSERT INTO users (username, email, password_hash, role, created_at) " +
+                    "SELECT 'user' || i, 'user' || i || '@example.org', 'x', 'USER', now() FROM generate_series(1, ?) i", users);
+            jdbc.update("INSERT INTO books (title, author, isbn, stock, created_at) " +
+                    "SELECT 'Livre ' || i, 'Auteur', 'isbn' || i, 0, now() FROM generate_series(1, ?) i",
+                    sizes.length + CATALOG);
+            // Historique de réservations closes sur tout le catalogue : statistiques réalistes pour
+            // le plan générique des requêtes préparées (book_id très sélectif)
+            jdbc.update("INSERT INTO holds (user_id, book_id, status, created_at, closed_at) " +
+                    "SELECT 1 + i % ?, ? + 1 + i % ?, 'FULFILLED', now(), now() FROM generate_series(0, ?) i",
+                    users, sizes.length, CATALOG, CLOSED_HOLDS - 1);
+            // Une file par livre mesuré
+            for (int b = 0; b < sizes.length; b++) {
+                jdbc.update("INSERT INTO holds (user_id, book_id, status, created_at) " +
+                        "SELECT i, ?, 'WAITING', now() FROM generate_series(1, ?) i", b + 1, sizes[b]);
+            }
+            jdbc.execute("VACUUM ANALYZE");
+
+            // Mesures sur une connexion ouverte une fois : la source embarquée n'a pas de pool
+            SingleConnectionDataSource single = new SingleConnectionDataSource(ds.getConnection(), true);
+            HoldRepository holds = new HoldRepository(new NamedParameterJdbcTemplate(single));
+            List<Row> rows = new ArrayList<>();
+            for (int b = 0; b < sizes.length; b++) rows.add(measure(holds, (long) b + 1, sizes[b]));
+            single.destroy();
+
+            print(rows, System.out);
+            File out = new File("target/holds-result.json");
+            out.getParentFile().mkdirs();
+            JSON.writerWithDefaultPrettyPrinter().writeValue(out, rows);
+        }
+    }
+
+    private static Row measure(HoldRepository holds, long bookId, int queueLength) {
+        for (int i = 0; i < ITERATIONS / 4; i++) cycle(holds, bookId);
+        long[] latencies = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) latencies[i] = cycle(holds, bookId);
+        Arrays.sort(latencies);
+        return new Row(queueLength, latencies[ITERATIONS / 2] / 1e3, latencies[ITERATIONS * 99 / 100] / 1e3);
+    }
+
+    // Attribution mesurée ; emprunt et remise en file du lecteur servi hors mesure
+    private static long cycle(HoldRepository holds, long bookId) {
+        LocalDateTime now = LocalDateTime.now();
+        long t0 = System.nanoTime();
+        ReadyHold hold = holds.allocateNext(bookId, now, now.plusDays(3)).orElseThrow();
+        holds.queueReadyNotification(hold, now);
+        long elapsed = System.nanoTime() - t0;
+        holds.fulfil(hold.userId(), bookId, HoldRepository.READY, now);
+        holds.insertWaiting(hold.userId(), bookId, now).orElseThrow();
+        return elapsed;
+    }
+
+    private static void print(List<Row> rows, PrintStream out) {
+        out.printf("%12s %9s %9s%n", "queue", "p50 µs", "p99 µs");
+        for (Row r : rows) out.printf("%12d %9.1f %9.1f%n", r.queueLength(), r.p50Us(), r.p99Us());
+    }
+
+    record Row(int queueLength, double p50Us, double p99Us) {}
+}
@@ -0,0 +1,89 @@
+package com.bibliotheque.backend.benchmark;
+
+import com.bibliotheque.backend.security.JwtFilter;
+import com.bibliotheque.backend.security.JwtUtil;
+import com.bibliotheque.backend.security.SseTickets;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de l'authentification par requête : ancien chemin (trois parsings, clé recalculée)
+ * comparé au parsing unique et au cache de jetons vérifiés de JwtFilter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    static final String SECRET = "bibliothequeSecretKey2024SuperLongKeyForHS256Algorithm!";
+
+    private JwtUtil jwtUtil;
+    private JwtFilter jwtFilter;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = newJwtUtil();
+        jwtFilter = new JwtFilter(jwtUtil, new SseTickets(30_000, 10_000), new SimpleMeterRegistry(), 10_000);
+        token = jwtUtil.generateToken(2L, "user1", "USER");
+    }
+
+    static JwtUtil newJwtUtil() {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "secret", SECRET);
+        ReflectionTestUtils.setField(util, "expiration", 86_400_000L);
+        ReflectionTestUtils.invokeMethod(util, "init");
+        return util;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(2L, "user1", "USER");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Claims singleParse() {
+        return jwtUtil.getClaims(token);
+    }
+
+    // Reproduit l'ancien JwtFilter : validate + extractUsername + extractRole, clé dérivée à chaque appel
+    @Benchmark
+    public Object legacyTripleParse() {
+        Claims claims = null;
+        for (int i = 0; i < 3; i++) {
+            claims = Jwts.parserBuilder()
+                    .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+        }
+        return claims;
+    }
+
+    @Benchmark
+    public Object filterWithCache() throws Exception {
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/books");
+        req.addHeader("Authorization", "Bearer " + token);
+        jwtFilter.doFilter(req, new MockHttpServletResponse(), new MockFilterChain());
+        Object auth = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return auth;
+    }
+}
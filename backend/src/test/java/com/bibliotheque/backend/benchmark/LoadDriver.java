@@ -0,0 +1,268 @@
+package com.bibliotheque.backend.benchmark;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Générateur de charge HTTP pour comparer les modes d'exécution du backend
+ * (threads plateforme vs virtuels, cache actif ou non...).
+ *
+ * <p>Chaque client enchaîne une recherche, la fiche, un emprunt et un retour sur « son » livre,
+ * puis le rapport donne débit et latences (p50/p99) par opération. Lancer l'application dans chaque mode
+ * puis : {@code ./mvnw -Pload-test verify -DskipTests -Dload.args="http://localhost:8080 charge charge-password 200 30"}
+ * (URL, préfixe des lecteurs, mot de passe, clients concurrents, durée en secondes).
+ * Le résultat est aussi écrit dans {@code target/load-result.json}.
+ *
+ * <p>Chaque client est un lecteur distinct ({@code charge-0}, {@code charge-1}...), créé s'il
+ * n'existe pas : pas de contention artificielle sur un seul compte. Ces connexions comptent pour
+ * le limiteur par IP ; au-delà de 30 clients, lancer l'application avec
+ * {@code --auth.rate-limit.per-ip} plus grand que le nombre de clients.
+ *
+ * <p>{@link #poll} mesure ensuite octets reçus et latence d'une lecture répétée du catalogue
+ * sans écriture : réponse brute, gzip, puis gzip avec If-None-Match (304).
+ *
+ * <p>{@link #loginStorm} termine par une rafale de connexions depuis une seule IP : part des
+ * réponses 429 du limiteur et latences par code de réponse ({@code target/load-login.json}).
+ */
+public class LoadDriver {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().build();
+    private static final String[] QUERIES = {"prince", "miser", "tolkien", "fondation", "978", "le"};
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final Map<String, Recorder> recorders = new ConcurrentSkipListMap<>();
+    // Un jeton par client, dans l'ordre des clients
+    private final List<String> tokens = new ArrayList<>();
+
+    LoadDriver(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = arg(args, 0, "http://localhost:8080");
+        String prefix = arg(args, 1, "charge");
+        String password = arg(args, 2, "charge-password");
+        int clients = Integer.parseInt(arg(args, 3, "50"));
+        int seconds = Integer.parseInt(arg(args, 4, "30"));
+
+        LoadDriver driver = new LoadDriver(baseUrl);
+        driver.signIn(prefix, password, clients);
+        Report report = driver.run(clients, Duration.ofSeconds(seconds));
+        report.print(System.out);
+        report.write(new File("target/load-result.json"));
+
+        Report polling = driver.poll("/api/books", 200);
+        polling.print(System.out);
+        polling.write(new File("target/load-polling.json"));
+
+        Report storm = driver.loginStorm(prefix + "-0", password, clients, Duration.ofSeconds(seconds));
+        storm.print(System.out);
+        System.out.printf("connexions refusées (429) : %.1f %%%n", 100 * storm.share(" 429"));
+        storm.write(new File("target/load-login.json"));
+    }
+
+    /** Connecte {@code clients} lecteurs {@code prefix-i}, en les inscrivant au besoin. */
+    void signIn(String prefix, String password, int clients) throws Exception {
+        tokens.clear();
+        for (int i = 0; i < clients; i++) {
+            String username = prefix + "-" + i;
+            HttpResponse<String> res = http.send(post("/api/auth/login",
+                    JSON.writeValueAsString(Map.of("username", username, "password", password))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (res.statusCode() != 200 && res.statusCode() != 429) {
+                res = http.send(post("/api/auth/register", JSON.writeValueAsString(Map.of("username", username,
+                        "email", username + "@example.org", "password", password))).build(),
+                        HttpResponse.BodyHandlers.ofString());
+            }
+            if (res.statusCode() != 200)
+                throw new IllegalStateException("Connexion impossible pour " + username + " : " + res.statusCode());
+            tokens.add(JSON.readTree(res.body()).get("token").asString());
+        }
+    }
+
+    /** Jetons déjà émis, un par client (lecteurs créés directement par l'appelant). */
+    void useTokens(List<String> clientTokens) {
+        tokens.clear();
+        tokens.addAll(clientTokens);
+    }
+
+    Report run(int clients, Duration duration) throws Exception {
+        List<Long> bookIds = new ArrayList<>();
+        for (JsonNode book : JSON.readTree(send(tokens.get(0), null, request("/api/books?size=500").GET()).body()))
+            bookIds.add(book.get("id").asLong());
+        if (bookIds.isEmpty()) throw new IllegalStateException("Catalogue vide");
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            long bookId = bookIds.get(i % bookIds.size());
+            String q = QUERIES[i % QUERIES.length];
+            String token = tokens.get(i % tokens.size());
+            pool.submit(() -> {
+                while (running.get()) {
+                    send(token, "GET /books/search", request("/api/books/search?q=" + q).GET());
+                    send(token, "GET /books/{id}", request("/api/books/" + bookId).GET());
+                    send(token, "POST /borrowings/borrow", post("/api/borrowings/borrow", "{\"bookId\":" + bookId + "}"));
+                    send(token, "POST /borrowings/return", post("/api/borrowings/return", "{\"bookId\":" + bookId + "}"));
+                }
+                return null;
+            });
+        }
+        // Préchauffage (JIT, pools, caches) exclu des mesures
+        Thread.sleep(Math.min(10_000, duration.toMillis() / 5));
+        recorders.clear();
+        long start = System.nanoTime();
+        Thread.sleep(duration.toMillis());
+        running.set(false);
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+        return new Report(recorders, (System.nanoTime() - start) / 1e9);
+    }
+
+    /** Lectures successives de {@code path} sans écriture concurrente, les trois variantes entrelacées. */
+    Report poll(String path, int requests) {
+        recorders.clear();
+        String token = tokens.get(0);
+        String etag = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            send(token, "GET " + path + " (identity)", request(path).GET());
+            HttpResponse<byte[]> res = send(token, "GET " + path + " (gzip)", request(path).header("Accept-Encoding", "gzip").GET());
+            if (etag == null && res != null) etag = res.headers().firstValue("ETag").orElse(null);
+            HttpRequest.Builder conditional = request(path).header("Accept-Encoding", "gzip").GET();
+            if (etag != null) conditional.header("If-None-Match", etag);
+            send(token, "GET " + path + " (If-None-Match)", conditional);
+        }
+        return new Report(recorders, (System.nanoTime() - start) / 1e9);
+    }
+
+    /** Connexions en boucle, sans pause ni jeton, chaque réponse classée par code HTTP. */
+    Report loginStorm(String username, String password, int clients, Duration duration) throws Exception {
+        String body = JSON.writeValueAsString(Map.of("username", username, "password", password));
+        recorders.clear();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            pool.submit(() -> {
+                while (running.get()) {
+                    long t0 = System.nanoTime();
+                    int status = 0;
+                    try {
+                        status = http.send(post("/api/auth/login", body).build(),
+                                HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        // compté comme erreur
+                    }
+                    recorders.computeIfAbsent("POST /auth/login " + (status == 0 ? "échec" : status),
+                            k -> new Recorder()).record(System.nanoTime() - t0, status == 200, 0);
+                }
+                return null;
+            });
+        }
+        Thread.sleep(duration.toMillis());
+        running.set(false);
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+        return new Report(recorders, (System.nanoTime() - start) / 1e9);
+    }
+
+    // Corps lu en octets bruts : le client HTTP ne décompresse pas, la taille mesurée est celle transférée
+    private HttpResponse<byte[]> send(String token, String op, HttpRequest.Builder builder) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        HttpResponse<byte[]> res = null;
+        try {
+            res = http.send(builder.header("Authorization", "Bearer " + token).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            ok = res.statusCode() < 400;
+        } catch (Exception e) {
+            // compté comme erreur
+        }
+        long bytes = res == null ? 0 : res.body().length;
+        if (op != null) recorders.computeIfAbsent(op, k -> new Recorder()).record(System.nanoTime() - t0, ok, bytes);
+        return res;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return request(path).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private static String arg(String[] args, int i, String def) {
+        return args.length > i ? args[i] : def;
+    }
+
+    static final class Recorder {
+        private final List<Long> latencies = new ArrayList<>();
+        private long errors;
+        private long bytes;
+
+        synchronized void record(long nanos, boolean ok, long bodyBytes) {
+            latencies.add(nanos);
+            if (!ok) errors++;
+            bytes += bodyBytes;
+        }
+
+        synchronized long[] sorted() {
+            return latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+    }
+
+    record Row(String operation, long requests, long errors, double perSecond, double p50Ms, double p99Ms,
+               long avgBytes) {}
+
+    record Report(Map<String, Recorder> recorders, double seconds) {
+        List<Row> rows() {
+            List<Row> rows = new ArrayList<>();
+            recorders.forEach((op, r) -> {
+                long[] l = r.sorted();
+                if (l.length == 0) return;
+                rows.add(new Row(op, l.length, r.errors, l.length / seconds,
+                        l[(int) (l.length * 0.50)] / 1e6, l[Math.min(l.length - 1, (int) (l.length * 0.99))] / 1e6,
+                        r.bytes / l.length));
+            });
+            return rows;
+        }
+
+        /** Part des requêtes dont l'opération se termine par {@code suffix}. */
+        double share(String suffix) {
+            List<Row> rows = rows();
+            long total = rows.stream().mapToLong(Row::requests).sum();
+            long matching = rows.stream().filter(r -> r.operation().endsWith(suffix)).mapToLong(Row::requests).sum();
+            return total == 0 ? 0 : (double) matching / total;
+        }
+
+        void print(PrintStream out) {
+            out.printf("%-34s %9s %7s %10s %9s %9s %10s%n",
+                    "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "bytes/req");
+            for (Row r : rows())
+                out.printf("%-34s %9d %7d %10.1f %9.2f %9.2f %10d%n",
+                        r.operation(), r.requests(), r.errors(), r.perSecond(), r.p50Ms(), r.p99Ms(), r.avgBytes());
+        }
+
+        // Format stable (une ligne par opération, ordre alphabétique) : à comparer d'une version à l'autre
+        void write(File file) {
+            file.getParentFile().mkdirs();
+            JSON.writerWithDefaultPrettyPrinter().writeValue(file, rows());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.bibliotheque.backend.benchmark;
+
+import com.bibliotheque.backend.service.CoBorrowingModel;
+import org.openjdk.jmh.annotations.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Top-K du modèle de recommandations sur un historique synthétique (popularité en loi de
+ * puissance), construit en parallèle comme au démarrage ; la durée de construction est affichée.
+ * Pour le million de livres et 100 millions d'emprunts (tient dans le tas par défaut, environ
+ * 4 min de construction par fork sur un cœur) :
+ * -Djmh.includes="Recommendation -p books=1000000 -p users=1000000".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class RecommendationBenchmark {
+
+    @Param({"100000"})
+    private int books;
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"100"})
+    private int loansPerUser;
+
+    private CoBorrowingModel model;
+    private long[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        model = new CoBorrowingModel(10, 50);
+        long start = System.nanoTime();
+        IntStream.range(0, users).parallel().forEach(u -> {
+            SplittableRandom random = new SplittableRandom(u);
+            long[] history = new long[loansPerUser];
+            for (int i = 0; i < history.length; i++) history[i] = book(random);
+            model.addHistory(history, history.length);
+        });
+        System.out.printf("%n%,d emprunts, %,d livres recommandables : construit en %d ms%n",
+                (long) users * loansPerUser, model.books(), (System.nanoTime() - start) / 1_000_000);
+
+        SplittableRandom random = new SplittableRandom(42);
+        queries = new long[4096];
+        for (int i = 0; i < queries.length; i++) queries[i] = book(random);
+    }
+
+    // Quelques livres très empruntés, une longue traîne
+    private long book(SplittableRandom random) {
+        double x = random.nextDouble();
+        return 1 + (long) (books * x * x * x);
+    }
+
+    @Benchmark
+    public long[] top10() {
+        return model.top(queries[next++ & (queries.length - 1)], 10);
+    }
+
+    @Benchmark
+    public long[] top10PopularBook() {
+        return model.top(1, 10);
+    }
+}
@@ -0,0 +1,72 @@
+package com.bibliotheque.backend.benchmark;
+
+import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.service.BookSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Recherche plein texte en mémoire sur un catalogue synthétique d'un million de livres, dans un
+ * tas de 2 Go ; latences échantillonnées, percentiles (p99) dans le rapport JMH. La mémoire retenue
+ * par l'index est affichée après sa construction.
+ * Catalogue plus petit : -Djmh.includes=SearchIndex -Djmh.args="-p books=100000".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SearchIndexBenchmark {
+
+    private static final String[] WORDS = {"prince", "misérables", "seigneur", "anneaux", "fondation", "empire",
+            "nuit", "voyage", "mer", "guerre", "paix", "rouge", "noir", "étranger", "peste", "château",
+            "jardin", "histoire", "secret", "ombre", "lumière", "temps", "mémoire", "ville"};
+    private static final String[] AUTHORS = {"Hugo", "Tolkien", "Asimov", "Camus", "Zola", "Dumas",
+            "Verne", "Proust", "Balzac", "Flaubert", "Saint-Exupéry", "Stendhal"};
+
+    @Param({"1000000"})
+    private int books;
+
+    private final BookSearchIndex index = new BookSearchIndex();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Runtime runtime = Runtime.getRuntime();
+        List<Book> catalog = LongStream.rangeClosed(1, books).mapToObj(id -> Book.builder()
+                .id(id)
+                .title(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + id)
+                .author(AUTHORS[random.nextInt(AUTHORS.length)])
+                .isbn(String.valueOf(9_782_000_000_000L + id))
+                .build()).toList();
+        index.rebuild(catalog);
+        catalog = null;
+        System.gc();
+        System.out.printf("%n%,d livres indexés : %d Mo retenus%n", books,
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+    }
+
+    @Benchmark
+    public List<Long> word() {
+        return index.search("fondation", 20);
+    }
+
+    @Benchmark
+    public List<Long> typo() {
+        return index.search("chateua jardn", 20);
+    }
+
+    @Benchmark
+    public List<Long> prefix() {
+        return index.search("lumi", 20);
+    }
+
+    @Benchmark
+    public List<Long> isbn() {
+        return index.search("978-2000000123", 20);
+    }
+}
@@ -0,0 +1,67 @@
+package com.bibliotheque.backend.benchmark;
+
+import com.bibliotheque.backend.dto.BorrowingView;
+import com.bibliotheque.backend.entity.Book;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût Jackson des réponses de liste : tableau JSON complet (GET /api/books, /api/borrowings)
+ * et NDJSON ligne par ligne comme NdjsonExporter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"50", "500"})
+    private int size;
+
+    private final ObjectMapper mapper = JsonMapper.builder().build();
+    private List<Book> books;
+    private List<BorrowingView> borrowings;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 15, 10, 30);
+        books = new ArrayList<>(size);
+        borrowings = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            Book book = Book.builder().id(i).title("Titre du livre " + i).author("Auteur " + (i % 97))
+                    .isbn("978-" + (2_000_000_000L + i)).stock((int) (i % 5)).createdAt(now).build();
+            books.add(book);
+            borrowings.add(new BorrowingView(i, book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                    i % 50, "user" + (i % 50), now.minusDays(i % 30), now.plusDays(14 - i % 30),
+                    i % 3 == 0 ? now : null, null));
+        }
+    }
+
+    @Benchmark
+    public byte[] books() {
+        return mapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] borrowings() {
+        return mapper.writeValueAsBytes(borrowings);
+    }
+
+    @Benchmark
+    public int borrowingsNdjson() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size * 256);
+        for (BorrowingView b : borrowings) {
+            out.writeBytes(mapper.writeValueAsBytes(b));
+            out.write('\n');
+        }
+        return out.size();
+    }
+}
@@ -0,0 +1,164 @@
+package com.bibliotheque.backend.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Démarrage de l'application empaquetée, dans chaque mode disponible : jar exécutable, jar
+ * extrait, contexte AOT, archive CDS, les deux, image native. Chaque démarrage est un processus
+ * neuf sur un PostgreSQL embarqué déjà migré ; on mesure le temps jusqu'à la première réponse
+ * 200 de /actuator/health et la mémoire résidente (VmRSS) à cet instant. Les modes sont alternés
+ * d'une série à l'autre pour que le cache disque profite à tous.
+ *
+ * <p>Arguments : nom du jar (sans .jar), nombre de séries (défaut 5). Les modes dont l'artefact
+ * manque (target/app, backend.jsa, image native) sont ignorés. Rapport dans
+ * {@code target/startup-result.json}, journal du dernier démarrage de chaque mode dans
+ * {@code target/startup-<mode>.log}.
+ */
+public class StartupBenchmark {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().build();
+    private static final Duration TIMEOUT = Duration.ofMinutes(3);
+
+    private record Mode(String name, List<String> command) {}
+
+    private record Row(String mode, int runs, long readyMsMedian, long readyMsMin, long rssMbMedian) {}
+
+    public static void main(String[] args) throws Exception {
+        String name = args.length > 0 ? args[0] : "backend-0.0.1-SNAPSHOT";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<Mode> modes = modes(name);
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.builder().start()) {
+            // Migrations faites une fois : chaque démarrage ne fait que les valider
+            Flyway.configure()
+                    .dataSource(pg.getPostgresDatabase())
+                    .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                    .load()
+                    .migrate();
+            List<String> springArgs = List.of(
+                    "--spring.datasource.url=" + pg.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=");
+
+            Map<String, long[]> ready = new LinkedHashMap<>();
+            Map<String, long[]> rss = new LinkedHashMap<>();
+            for (Mode mode : modes) {
+                ready.put(mode.name(), new long[runs]);
+                rss.put(mode.name(), new long[runs]);
+            }
+            for (int run = 0; run < runs; run++) {
+                for (Mode mode : modes) {
+                    long[] sample = start(mode, springArgs);
+                    ready.get(mode.name())[run] = sample[0];
+                    rss.get(mode.name())[run] = sample[1];
+                    System.out.printf("%-10s série %d : %,6d ms, %,5d Mo%n", mode.name(), run + 1, sample[0], sample[1]);
+                }
+            }
+
+            List<Row> rows = new ArrayList<>();
+            for (Mode mode : modes) {
+                long[] r = ready.get(mode.name());
+                rows.add(new Row(mode.name(), runs, median(r), Arrays.stream(r).min().orElse(0), median(rss.get(mode.name()))));
+            }
+            print(rows, System.out);
+            File out = new File("target/startup-result.json");
+            out.getParentFile().mkdirs();
+            JSON.writerWithDefaultPrettyPrinter().writeValue(out, rows);
+        }
+    }
+
+    private static List<Mode> modes(String name) {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String jar = "target/" + name + ".jar";
+        String extracted = "target/app/" + name + ".jar";
+        String archive = "-XX:SharedArchiveFile=target/app/backend.jsa";
+        String aot = "-Dspring.aot.enabled=true";
+
+        List<Mode> modes = new ArrayList<>();
+        if (!new File(jar).exists())
+            throw new IllegalStateException(jar + " introuvable : ./mvnw package d'abord");
+        modes.add(new Mode("jar", List.of(java, "-jar", jar)));
+        if (new File(extracted).exists()) {
+            modes.add(new Mode("extrait", List.of(java, "-jar", extracted)));
+            modes.add(new Mode("aot", List.of(java, aot, "-jar", extracted)));
+            if (new File("target/app/backend.jsa").exists()) {
+                modes.add(new Mode("cds", List.of(java, archive, "-jar", extracted)));
+                modes.add(new Mode("aot+cds", List.of(java, archive, aot, "-jar", extracted)));
+            }
+        }
+        if (new File("target/backend").canExecute()) modes.add(new Mode("native", List.of("target/backend")));
+        return modes;
+    }
+
+    // { ms jusqu'à la première réponse, Mo résidents à cet instant }
+    private static long[] start(Mode mode, List<String> springArgs) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>(mode.command());
+        command.addAll(springArgs);
+        command.add("--server.port=" + port);
+        File log = new File("target/startup-" + mode.name().replace('+', '-') + ".log");
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .timeout(Duration.ofSeconds(5)).build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+        try {
+            while (true) {
+                if (!process.isAlive())
+                    throw new IllegalStateException(mode.name() + " arrêté (code " + process.exitValue() + "), voir " + log);
+                if (System.nanoTime() - start > TIMEOUT.toNanos())
+                    throw new IllegalStateException(mode.name() + " pas prêt après " + TIMEOUT + ", voir " + log);
+                try {
+                    if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) break;
+                } catch (IOException notListening) {
+                    // Port pas encore ouvert
+                }
+                Thread.sleep(10);
+            }
+            long readyMs = (System.nanoTime() - start) / 1_000_000;
+            return new long[]{readyMs, rssKb(process.pid()) / 1024};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static long rssKb(long pid) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status")))
+            if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("\\D", ""));
+        return 0;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static void print(List<Row> rows, PrintStream out) {
+        out.printf("%n%-10s %12s %10s %10s%n", "mode", "prêt médian", "prêt min", "RSS");
+        for (Row r : rows)
+            out.printf("%-10s %,9d ms %,7d ms %,7d Mo%n", r.mode(), r.readyMsMedian(), r.readyMsMin(), r.rssMbMedian());
+    }
+}
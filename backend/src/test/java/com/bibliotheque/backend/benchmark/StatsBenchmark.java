@@ -0,0 +1,75 @@
+package com.bibliotheque.backend.benchmark;
+
+import com.bibliotheque.backend.dto.BorrowingView;
+import com.bibliotheque.backend.event.BorrowingEvent;
+import com.bibliotheque.backend.repository.BookRepository;
+import com.bibliotheque.backend.repository.BorrowingRepository;
+import com.bibliotheque.backend.repository.BorrowingStatsRepository;
+import com.bibliotheque.backend.service.CatalogVersion;
+import com.bibliotheque.backend.service.StatsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * StatsService : conversion des lignes d'agrégat en classements (réconciliation),
+ * lecture du top N et mise à jour incrémentale sur un emprunt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    private StatsService stats;
+
+    @Setup
+    public void setUp() {
+        List<Object[]> bookRows = new ArrayList<>(rows);
+        List<Object[]> userRows = new ArrayList<>(rows);
+        for (long i = 1; i <= rows; i++) {
+            bookRows.add(new Object[]{i, "Titre " + i, "Auteur " + i, rows - i + 1});
+            userRows.add(new Object[]{i, "user" + i, rows - i + 1});
+        }
+        BorrowingStatsRepository counters = mock(BorrowingStatsRepository.class);
+        when(counters.bookTotals()).thenReturn(bookRows);
+        when(counters.userTotals()).thenReturn(userRows);
+
+        stats = new StatsService(mock(BorrowingRepository.class), mock(BookRepository.class), counters,
+                new CatalogVersion());
+        ReflectionTestUtils.setField(stats, "defaultTopLimit", 10);
+        stats.reconcile();
+    }
+
+    @Benchmark
+    public StatsService reconcile() {
+        stats.reconcile();
+        return stats;
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> topBooks() {
+        return stats.getTopBooks(10, null);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> onBorrowing() {
+        long id = ThreadLocalRandom.current().nextLong(1, rows + 1);
+        stats.onBorrowing(new BorrowingEvent(BorrowingEvent.Type.BORROWED,
+                new BorrowingView(id, id, "Titre " + id, "Auteur " + id, "isbn", id, "user" + id,
+                        LocalDateTime.now(), null, null, null), 1));
+        return stats.getTopUsers(10, null);
+    }
+}
@@ -0,0 +1,61 @@
+package com.bibliotheque.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Réglages spring.datasource.hikari.* appliqués au pool primaire comme aux réplicas. Les pools
+ * ne sont pas démarrés : aucune base n'est nécessaire.
+ */
+class DataSourceConfigTests {
+
+	private final ApplicationContextRunner context = new ApplicationContextRunner()
+			.withUserConfiguration(Infrastructure.class, DataSourceConfig.class)
+			.withPropertyValues(
+					"spring.datasource.url=jdbc:postgresql://localhost:5432/bibliotheque",
+					"spring.datasource.hikari.maximum-pool-size=37",
+					"spring.datasource.hikari.minimum-idle=3",
+					"datasource.replicas.urls=jdbc:postgresql://replica:5432/bibliotheque",
+					"datasource.replicas.connection-timeout-ms=750");
+
+	@Test
+	void hikariSettingsReachEveryPool() {
+		context.run(ctx -> {
+			HikariDataSource primary = ctx.getBean("primaryDataSource", HikariDataSource.class);
+			assertThat(primary.getMaximumPoolSize()).isEqualTo(37);
+			assertThat(primary.getMinimumIdle()).isEqualTo(3);
+			assertThat(primary.getPoolName()).isEqualTo("primary");
+
+			HikariDataSource replica = (HikariDataSource) ctx.getBean(ReplicaRouter.class).replica("replica-1");
+			assertThat(replica.getMaximumPoolSize()).isEqualTo(37);
+			assertThat(replica.getMinimumIdle()).isEqualTo(3);
+			// Réglage propre aux réplicas appliqué après les réglages communs
+			assertThat(replica.getConnectionTimeout()).isEqualTo(750);
+			assertThat(replica.getJdbcUrl()).isEqualTo("jdbc:postgresql://replica:5432/bibliotheque");
+		});
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@EnableConfigurationProperties(DataSourceProperties.class)
+	static class Infrastructure {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		ReadYourWrites readYourWrites() {
+			return new ReadYourWrites(5000);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.bibliotheque.backend.config;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Index unique construit CONCURRENTLY sur des doublons : la construction échoue et laisse un index
+ * INVALID. Le contrôle d'après migration refuse de continuer tant que la cause reste, puis
+ * reconstruit l'index une fois les doublons retirés.
+ */
+class InvalidIndexRepairTests extends EmbeddedPostgresTest {
+
+	@Autowired
+	private InvalidIndexRepair repair;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@AfterEach
+	void dropTable() {
+		jdbc.execute("DROP TABLE IF EXISTS index_repair_test");
+	}
+
+	@Test
+	void invalidIndexFailsTheMigrationThenIsRebuilt() throws Exception {
+		jdbc.execute("CREATE TABLE index_repair_test (code int)");
+		jdbc.update("INSERT INTO index_repair_test VALUES (1), (1), (2)");
+		assertThatThrownBy(() -> jdbc.execute("CREATE UNIQUE INDEX CONCURRENTLY uq_index_repair_test ON index_repair_test (code)"))
+				.hasMessageContaining("uq_index_repair_test");
+		assertThat(valid()).isFalse();
+
+		try (Connection connection = dataSource.getConnection()) {
+			assertThatThrownBy(() -> repair.repair(connection))
+					.isInstanceOf(FlywayException.class)
+					.hasMessageContaining("uq_index_repair_test");
+
+			jdbc.update("DELETE FROM index_repair_test WHERE ctid = (SELECT max(ctid) FROM index_repair_test WHERE code = 1)");
+			repair.repair(connection);
+		}
+		assertThat(valid()).isTrue();
+	}
+
+	private boolean valid() {
+		return jdbc.queryForObject("SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+				"WHERE c.relname = 'uq_index_repair_test'", Boolean.class);
+	}
+}
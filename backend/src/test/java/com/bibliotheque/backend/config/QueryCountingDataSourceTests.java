@@ -0,0 +1,44 @@
+package com.bibliotheque.backend.config;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compteur de requêtes au niveau de la source de données : JdbcTemplate et Hibernate passent
+ * tous deux par la même connexion instrumentée ; un lot compte pour une requête.
+ */
+class QueryCountingDataSourceTests extends EmbeddedPostgresTest {
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Test
+	void jdbcTemplateAndHibernateAreBothCounted() {
+		long bookId = newBook(1);
+
+		QueryCountingDataSource.start();
+		int queries;
+		try {
+			jdbc.queryForObject("SELECT stock FROM books WHERE id = ?", Integer.class, bookId);
+			jdbc.batchUpdate("UPDATE books SET stock = stock WHERE id = ?",
+					List.of(new Object[]{bookId}, new Object[]{bookId}));
+			assertThat(bookRepository.findById(bookId)).isPresent();
+		} finally {
+			queries = QueryCountingDataSource.stop();
+		}
+
+		assertThat(queries).isEqualTo(3);
+	}
+
+	@Test
+	void nothingIsCountedOutsideARequest() {
+		jdbc.queryForObject("SELECT 1", Integer.class);
+
+		assertThat(QueryCountingDataSource.stop()).isZero();
+	}
+}
@@ -0,0 +1,193 @@
+package com.bibliotheque.backend.config;
+
+import com.bibliotheque.backend.security.AuthenticatedUser;
+import com.bibliotheque.backend.service.BookService;
+import com.bibliotheque.backend.service.RecommendationService;
+import com.bibliotheque.backend.service.StatsService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routage lecture/écriture sur trois instances locales (un primaire, deux réplicas) : lectures
+ * readOnly en tourniquet, écritures et transactions des repositories sur le primaire, lecteur
+ * qui vient d'écrire collé au primaire, réplica injoignable contourné, lectures sous ETag et
+ * identifiants explicites sur le primaire.
+ */
+class ReplicaRoutingTests {
+
+	private static EmbeddedPostgres primary, replica1, replica2;
+	private static HikariDataSource primaryPool, replica1Pool, replica2Pool, deadPool;
+
+	@BeforeAll
+	static void start() throws Exception {
+		primary = EmbeddedPostgres.builder().start();
+		replica1 = EmbeddedPostgres.builder().start();
+		replica2 = EmbeddedPostgres.builder().start();
+		primaryPool = pool(primary.getJdbcUrl("postgres", "postgres"));
+		replica1Pool = pool(replica1.getJdbcUrl("postgres", "postgres"));
+		replica2Pool = pool(replica2.getJdbcUrl("postgres", "postgres"));
+		// Aucun serveur sur ce port
+		deadPool = pool("jdbc:postgresql://localhost:1/postgres");
+	}
+
+	@AfterAll
+	static void stop() throws Exception {
+		for (HikariDataSource pool : List.of(primaryPool, replica1Pool, replica2Pool, deadPool)) pool.close();
+		primary.close();
+		replica1.close();
+		replica2.close();
+	}
+
+	@AfterEach
+	void clearUser() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void readOnlyTransactionsAlternateBetweenReplicas() {
+		Routing routing = new Routing(new ReadYourWrites(5000), replica1Pool, replica2Pool);
+		List<Integer> ports = new ArrayList<>();
+		for (int i = 0; i < 4; i++) ports.add(routing.port(true, null));
+
+		assertThat(ports).containsOnly(replica1.getPort(), replica2.getPort());
+		assertThat(ports.get(0)).isNotEqualTo(ports.get(1));
+		assertThat(ports.get(0)).isEqualTo(ports.get(2));
+	}
+
+	@Test
+	void writesAndRepositoryTransactionsStayOnThePrimary() {
+		Routing routing = new Routing(new ReadYourWrites(5000), replica1Pool, replica2Pool);
+
+		assertThat(routing.port(false, null)).isEqualTo(primary.getPort());
+		assertThat(routing.port(true, "org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById"))
+				.isEqualTo(primary.getPort());
+		assertThat(routing.port(true, "com.bibliotheque.backend.service.BorrowingService.getUserBorrowings"))
+				.isNotEqualTo(primary.getPort());
+	}
+
+	@Test
+	void explicitCredentialsGoToThePrimary() throws Exception {
+		ReplicaRouter router = new ReplicaRouter(new DriverManagerDataSource(primary.getJdbcUrl("postgres", "postgres")),
+				Map.of("replica-1", replica1Pool), new ReadYourWrites(5000), new SimpleMeterRegistry(), 2000);
+		try (Connection c = router.getConnection("postgres", "");
+			 ResultSet rs = c.createStatement().executeQuery("SELECT current_setting('port')::int")) {
+			rs.next();
+			assertThat(rs.getInt(1)).isEqualTo(primary.getPort());
+		}
+	}
+
+	// Réponses servies sous l'ETag de CatalogVersion : jamais lues sur un réplica en retard
+	@Test
+	void etaggedReadsAreNotReadOnlyTransactions() throws Exception {
+		List<Method> reads = List.of(
+				BookService.class.getMethod("getPage", long.class, Limit.class),
+				BookService.class.getMethod("search", String.class, int.class),
+				StatsService.class.getMethod("getTopBooks", Integer.class, Integer.class),
+				StatsService.class.getMethod("getTopUsers", Integer.class, Integer.class),
+				RecommendationService.class.getMethod("recommend", Long.class, int.class));
+		for (Method read : reads) {
+			Transactional tx = AnnotatedElementUtils.findMergedAnnotation(read, Transactional.class);
+			if (tx == null) tx = AnnotatedElementUtils.findMergedAnnotation(read.getDeclaringClass(), Transactional.class);
+			assertThat(tx == null || !tx.readOnly()).as(read.toString()).isTrue();
+		}
+	}
+
+	@Test
+	void recentWriterReadsThePrimaryUntilTheStickyWindowEnds() throws Exception {
+		ReadYourWrites readYourWrites = new ReadYourWrites(300);
+		Routing routing = new Routing(readYourWrites, replica1Pool, replica2Pool);
+		readYourWrites.wrote(42L);
+
+		signIn(7L);
+		assertThat(routing.port(true, null)).isNotEqualTo(primary.getPort());
+		signIn(42L);
+		assertThat(routing.port(true, null)).isEqualTo(primary.getPort());
+
+		Thread.sleep(500);
+		assertThat(routing.port(true, null)).isNotEqualTo(primary.getPort());
+	}
+
+	@Test
+	void unreachableReplicaIsSkippedThenThePrimaryServesReads() {
+		Routing routing = new Routing(new ReadYourWrites(5000), deadPool, replica1Pool);
+		for (int i = 0; i < 4; i++) assertThat(routing.port(true, null)).isEqualTo(replica1.getPort());
+
+		Routing alone = new Routing(new ReadYourWrites(5000), deadPool);
+		assertThat(alone.port(true, null)).isEqualTo(primary.getPort());
+		assertThat(alone.registry.counter("bibliotheque.datasource.replica.failover").count()).isEqualTo(1);
+	}
+
+	@Test
+	void healthCheckKeepsCaughtUpReplicasAndDropsUnreachableOnes() {
+		Routing routing = new Routing(new ReadYourWrites(5000), deadPool, replica1Pool);
+		routing.router.checkHealth();
+
+		Set<Integer> ports = new HashSet<>();
+		for (int i = 0; i < 4; i++) ports.add(routing.port(true, null));
+		assertThat(ports).containsExactly(replica1.getPort());
+		assertThat(routing.registry.counter("bibliotheque.datasource.replica.failover").count()).isZero();
+	}
+
+	private static void signIn(Long userId) {
+		AuthenticatedUser user = new AuthenticatedUser(userId, "user" + userId, "USER");
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(user, null, List.of()));
+	}
+
+	private static HikariDataSource pool(String url) {
+		HikariDataSource pool = new HikariDataSource();
+		pool.setJdbcUrl(url);
+		pool.setMaximumPoolSize(2);
+		pool.setConnectionTimeout(250);
+		pool.setInitializationFailTimeout(-1);
+		return pool;
+	}
+
+	// Même montage que DataSourceConfig, transactions JDBC au lieu de JPA
+	private static final class Routing {
+
+		final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		final ReplicaRouter router;
+		final DataSourceTransactionManager transactionManager;
+
+		Routing(ReadYourWrites readYourWrites, DataSource... replicas) {
+			Map<String, DataSource> named = new LinkedHashMap<>();
+			for (DataSource replica : replicas) named.put("replica-" + (named.size() + 1), replica);
+			router = new ReplicaRouter(primaryPool, named, readYourWrites, registry, 2000);
+			LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaryPool);
+			proxy.setReadOnlyDataSource(router);
+			transactionManager = new DataSourceTransactionManager(proxy);
+		}
+
+		// Port de l'instance qui a servi la transaction
+		int port(boolean readOnly, String name) {
+			TransactionTemplate tx = new TransactionTemplate(transactionManager);
+			tx.setReadOnly(readOnly);
+			tx.setName(name);
+			JdbcTemplate jdbc = new JdbcTemplate(transactionManager.getDataSource());
+			return tx.execute(status -> jdbc.queryForObject("SELECT current_setting('port')::int", Integer.class));
+		}
+	}
+}
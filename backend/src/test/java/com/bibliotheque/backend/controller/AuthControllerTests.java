@@ -0,0 +1,79 @@
+package com.bibliotheque.backend.controller;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Inscription et connexion asynchrones (hachage BCrypt hors du thread de la requête), puis
+ * blocage du compte après trop de mots de passe faux, quelle que soit l'adresse d'origine.
+ */
+class AuthControllerTests extends EmbeddedPostgresTest {
+
+	@Test
+	void registerThenLoginAsynchronously() throws Exception {
+		String username = "inscrit-" + UUID.randomUUID();
+		async(call("/api/auth/register", "10.1.0.1", """
+				{"username":"%s","email":"%s@example.org","password":"secret"}""".formatted(username, username)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.username").value(username))
+				.andExpect(jsonPath("$.token").isNotEmpty());
+
+		async(login(username, "secret", "10.1.0.2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.token").isNotEmpty());
+	}
+
+	@Test
+	void wrongPasswordsLockTheAccountOnly() throws Exception {
+		String username = "cible-" + UUID.randomUUID();
+		async(call("/api/auth/register", "10.2.0.1", """
+				{"username":"%s","email":"%s@example.org","password":"secret"}""".formatted(username, username)))
+				.andExpect(status().isOk());
+
+		// auth.rate-limit.per-user=10 : chaque échec vient d'une adresse différente
+		for (int i = 0; i < 10; i++) {
+			MvcResult failed = async(login(username, "faux", "10.2.1." + i)).andReturn();
+			assertThat(failed.getResponse().getStatus()).isNotEqualTo(200).isNotEqualTo(429);
+		}
+		// Refusé avant tout hachage, même avec le bon mot de passe
+		call("/api/auth/login", "10.2.2.1", credentials(username, "secret"))
+				.andExpect(request().asyncNotStarted())
+				.andExpect(status().isTooManyRequests());
+		// Les adresses utilisées restent ouvertes aux autres comptes
+		async(call("/api/auth/register", "10.2.1.0", """
+				{"username":"%s-bis","email":"%s-bis@example.org","password":"secret"}""".formatted(username, username)))
+				.andExpect(status().isOk());
+	}
+
+	private ResultActions login(String username, String password, String ip) throws Exception {
+		return call("/api/auth/login", ip, credentials(username, password));
+	}
+
+	private static String credentials(String username, String password) {
+		return """
+				{"username":"%s","password":"%s"}""".formatted(username, password);
+	}
+
+	private ResultActions call(String path, String ip, String body) throws Exception {
+		return mvc.perform(post(path).contentType(MediaType.APPLICATION_JSON).content(body)
+				.with(req -> {
+					req.setRemoteAddr(ip);
+					return req;
+				}));
+	}
+
+	private ResultActions async(ResultActions started) throws Exception {
+		return mvc.perform(asyncDispatch(started.andExpect(request().asyncStarted()).andReturn()));
+	}
+}
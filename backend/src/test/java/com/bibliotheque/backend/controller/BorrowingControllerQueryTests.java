@@ -0,0 +1,135 @@
+package com.bibliotheque.backend.controller;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.security.JwtUtil;
+import com.bibliotheque.backend.service.BorrowingArchiveService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Requêtes SQL par appel HTTP, relevées par QueryCountFilter : /my, la liste paginée et /active
+ * coûtent le même nombre de requêtes quel que soit le nombre d'emprunts renvoyés (pas de N+1),
+ * archives comprises ; la liste complète n'est jamais renvoyée d'un bloc.
+ */
+class BorrowingControllerQueryTests extends EmbeddedPostgresTest {
+
+	private static final LocalDateTime CUTOFF = LocalDateTime.of(2019, 6, 1, 0, 0);
+	// Jeton vérifié sans requête : une lecture de la table chaude, plus une des archives si elles sont lues
+	private static final long HOT_ONLY = 1, HOT_AND_ARCHIVE = 2;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private BorrowingArchiveService archiveService;
+
+	@Test
+	void myBorrowingsCostTheSameForTwoOrEightLoans() throws Exception {
+		long few = newUser(), many = newUser();
+		for (int i = 0; i < 2; i++) loan(few, null);
+		for (int i = 0; i < 4; i++) loan(many, null);
+		for (int i = 0; i < 4; i++) loan(many, "2018-0" + (i + 1) + "-10");
+		archiveService.archiveReturnedBefore(CUTOFF);
+
+		long fewQueries = queries("/api/borrowings/my", get("/api/borrowings/my").header("Authorization", token(few, "USER")), 2);
+		long manyQueries = queries("/api/borrowings/my", get("/api/borrowings/my").header("Authorization", token(many, "USER")), 8);
+
+		assertThat(fewQueries).isEqualTo(HOT_AND_ARCHIVE);
+		assertThat(manyQueries).isEqualTo(HOT_AND_ARCHIVE);
+	}
+
+	@Test
+	void pagesCostTheSameWhateverTheirSize() throws Exception {
+		long user = newUser();
+		long first = loan(user, "2018-05-02");
+		for (int i = 0; i < 3; i++) loan(user, "2018-06-0" + (i + 1));
+		for (int i = 0; i < 6; i++) loan(user, null);
+		archiveService.archiveReturnedBefore(CUTOFF);
+		String admin = token(newUser(), "ADMIN");
+
+		long small = queries("/api/borrowings",
+				get("/api/borrowings").param("after", String.valueOf(first - 1)).param("size", "2").header("Authorization", admin), 2);
+		// Page à cheval sur les archives et la table chaude
+		long large = queries("/api/borrowings",
+				get("/api/borrowings").param("after", String.valueOf(first - 1)).param("size", "8").header("Authorization", admin), 8);
+
+		assertThat(small).isEqualTo(HOT_AND_ARCHIVE);
+		assertThat(large).isEqualTo(HOT_AND_ARCHIVE);
+	}
+
+	@Test
+	void listWithoutParametersIsTheFirstPage() throws Exception {
+		long user = newUser();
+		for (int i = 0; i < 3; i++) loan(user, null);
+
+		// Base partagée : bien plus de 50 emprunts après les autres tests, ou au moins une page incomplète
+		long total = jdbc.queryForObject("SELECT count(*) FROM borrowings", Long.class)
+				+ jdbc.queryForObject("SELECT count(*) FROM borrowings_history", Long.class);
+		MvcResult result = mvc.perform(get("/api/borrowings").header("Authorization", token(newUser(), "ADMIN")))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value((int) Math.min(total, 50)))
+				.andReturn();
+		if (total > 50) assertThat(result.getResponse().getHeader("X-Next-Cursor")).isNotNull();
+	}
+
+	@Test
+	void activeCostsTheSameAfterMoreLoans() throws Exception {
+		String admin = token(newUser(), "ADMIN");
+		long before = queries("/api/borrowings/active", get("/api/borrowings/active").header("Authorization", admin), -1);
+
+		long user = newUser();
+		for (int i = 0; i < 8; i++) loan(user, null);
+		long after = queries("/api/borrowings/active", get("/api/borrowings/active").header("Authorization", admin), -1);
+		long page = queries("/api/borrowings/active",
+				get("/api/borrowings/active").param("size", "8").header("Authorization", admin), 8);
+
+		assertThat(before).isEqualTo(HOT_ONLY);
+		assertThat(after).isEqualTo(HOT_ONLY);
+		assertThat(page).isEqualTo(HOT_ONLY);
+	}
+
+	// Requêtes de l'appel, lues sur la distribution de son patron d'URL ; rows < 0 : taille non vérifiée
+	private long queries(String uri, MockHttpServletRequestBuilder request, int rows) throws Exception {
+		DistributionSummary summary = summary(uri);
+		double totalBefore = summary == null ? 0 : summary.totalAmount();
+		long countBefore = summary == null ? 0 : summary.count();
+
+		var result = mvc.perform(request).andExpect(status().isOk());
+		if (rows >= 0) result.andExpect(jsonPath("$.length()").value(rows));
+
+		summary = summary(uri);
+		assertThat(summary.count()).isEqualTo(countBefore + 1);
+		return Math.round(summary.totalAmount() - totalBefore);
+	}
+
+	private DistributionSummary summary(String uri) {
+		return registry.find("bibliotheque.db.queries").tags("method", "GET", "uri", uri).summary();
+	}
+
+	private String token(long userId, String role) {
+		return "Bearer " + jwtUtil.generateToken(userId, "lecteur", role);
+	}
+
+	// Emprunt de 14 jours rendu le jour donné ; null : encore en cours
+	private long loan(long userId, String returned) {
+		LocalDateTime returnedAt = returned == null ? null : LocalDateTime.parse(returned + "T10:00:00");
+		LocalDateTime borrowedAt = (returnedAt == null ? LocalDateTime.now() : returnedAt).minusDays(14);
+		return jdbc.queryForObject("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at, returned_at) " +
+						"VALUES (?, ?, ?, ?, ?) RETURNING id", Long.class,
+				userId, newBook(1), borrowedAt, borrowedAt.plusDays(14), returnedAt);
+	}
+}
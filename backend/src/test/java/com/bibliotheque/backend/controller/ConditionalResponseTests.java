@@ -0,0 +1,78 @@
+package com.bibliotheque.backend.controller;
+
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.service.CatalogVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GET conditionnel : 304 sans calculer la réponse tant que la version du catalogue n'a pas bougé,
+ * nouvel ETag après une écriture, ETag distinct pour une fenêtre glissante.
+ */
+class ConditionalResponseTests {
+
+	private final CatalogVersion version = new CatalogVersion();
+	private final AtomicInteger computed = new AtomicInteger();
+	private final Supplier<ResponseEntity<String>> body = () -> {
+		computed.incrementAndGet();
+		return ResponseEntity.ok("catalogue");
+	};
+
+	@Test
+	void matchingEtagIsNotModifiedWithoutComputingTheBody() {
+		ResponseEntity<String> first = ConditionalResponse.of(get(null), version, body);
+		assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(first.getBody()).isEqualTo("catalogue");
+		assertThat(first.getHeaders().getCacheControl()).contains("no-cache").contains("private");
+		String etag = first.getHeaders().getETag();
+
+		ResponseEntity<String> second = ConditionalResponse.of(get(etag), version, body);
+		assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(second.getBody()).isNull();
+		assertThat(computed).hasValue(1);
+	}
+
+	@Test
+	void writeChangesTheEtag() {
+		String etag = ConditionalResponse.of(get(null), version, body).getHeaders().getETag();
+
+		// Écouteur après commit d'une écriture du catalogue
+		version.onBook(new BookEvent(1L, 1, 2));
+
+		ResponseEntity<String> after = ConditionalResponse.of(get(etag), version, body);
+		assertThat(after.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(after.getHeaders().getETag()).isNotEqualTo(etag);
+		assertThat(computed).hasValue(2);
+	}
+
+	@Test
+	void windowVariantIsPartOfTheEtag() {
+		String today = ConditionalResponse.of(get(null), version, "2026-10-17", body).getHeaders().getETag();
+		assertThat(today).endsWith("-2026-10-17\"");
+
+		assertThat(ConditionalResponse.of(get(today), version, "2026-10-17", body).getStatusCode())
+				.isEqualTo(HttpStatus.NOT_MODIFIED);
+		// Lendemain, sans écriture : la fenêtre a glissé, la réponse est recalculée
+		assertThat(ConditionalResponse.of(get(today), version, "2026-10-18", body).getStatusCode())
+				.isEqualTo(HttpStatus.OK);
+		// ETag de la version sans fenêtre : pas interchangeable
+		String plain = ConditionalResponse.of(get(null), version, body).getHeaders().getETag();
+		assertThat(ConditionalResponse.of(get(plain), version, "2026-10-18", body).getStatusCode())
+				.isEqualTo(HttpStatus.OK);
+		assertThat(computed).hasValue(4);
+	}
+
+	private static ServletWebRequest get(String ifNoneMatch) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books");
+		if (ifNoneMatch != null) request.addHeader("If-None-Match", ifNoneMatch);
+		return new ServletWebRequest(request, new MockHttpServletResponse());
+	}
+}
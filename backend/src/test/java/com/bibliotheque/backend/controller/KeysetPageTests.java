@@ -0,0 +1,103 @@
+package com.bibliotheque.backend.controller;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.security.JwtUtil;
+import com.bibliotheque.backend.service.NdjsonExporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pages par curseur de GET /api/books : suite des pages sans trou ni doublon, pas de curseur sur
+ * la dernière, taille bornée, curseur invalide refusé ; export NDJSON au-delà d'un lot de 500.
+ */
+class KeysetPageTests extends EmbeddedPostgresTest {
+
+	private static final JsonMapper JSON = JsonMapper.builder().build();
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	private String token;
+	private long start;
+
+	@BeforeEach
+	void catalog() {
+		token = "Bearer " + jwtUtil.generateToken(newUser(), "lecteur", "USER");
+		// Plus d'une page maximale après le curseur de départ
+		start = jdbc.queryForObject("SELECT coalesce(max(id), 0) FROM books", Long.class);
+		for (int i = 0; i < KeysetPage.MAX_SIZE + 20; i++) newBook(1);
+	}
+
+	@Test
+	void pagesFollowEachOtherUntilTheLastOne() throws Exception {
+		List<Long> seen = new ArrayList<>();
+		String cursor = String.valueOf(start);
+		int pages = 0;
+		while (cursor != null) {
+			MvcResult page = books("?after=" + cursor + "&size=100");
+			List<Long> ids = ids(page);
+			// Le curseur est le dernier identifiant de la page
+			cursor = page.getResponse().getHeader(KeysetPage.NEXT_CURSOR);
+			if (cursor != null) assertThat(cursor).isEqualTo(String.valueOf(ids.get(ids.size() - 1)));
+			else assertThat(ids.size()).isLessThan(100);
+			seen.addAll(ids);
+			pages++;
+		}
+		assertThat(seen).isEqualTo(jdbc.queryForList("SELECT id FROM books WHERE id > ? ORDER BY id", Long.class, start));
+		assertThat(pages).isEqualTo(seen.size() / 100 + 1);
+	}
+
+	@Test
+	void sizeIsClamped() throws Exception {
+		MvcResult page = books("?after=" + start + "&size=100000");
+		assertThat(ids(page)).hasSize(KeysetPage.MAX_SIZE);
+		assertThat(page.getResponse().getHeader(KeysetPage.NEXT_CURSOR)).isNotNull();
+
+		assertThat(ids(books("?after=" + start + "&size=0"))).hasSize(1);
+	}
+
+	@Test
+	void invalidCursorIsRejected() throws Exception {
+		mvc.perform(get("/api/books?after=abc").header("Authorization", token)).andExpect(status().isBadRequest());
+		mvc.perform(get("/api/books?after=-1").header("Authorization", token)).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void ndjsonExportStreamsTheWholeCatalog() throws Exception {
+		MvcResult started = mvc.perform(get("/api/books").header("Authorization", token)
+						.accept(NdjsonExporter.NDJSON))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		List<Long> ids = new ArrayList<>();
+		for (String line : body.split("\n")) ids.add(JSON.readTree(line).get("id").asLong());
+		assertThat(ids).hasSizeGreaterThan(KeysetPage.MAX_SIZE)
+				.containsAll(jdbc.queryForList("SELECT id FROM books WHERE id > ?", Long.class, start));
+	}
+
+	private MvcResult books(String query) throws Exception {
+		return mvc.perform(get("/api/books" + query).header("Authorization", token))
+				.andExpect(status().isOk())
+				.andReturn();
+	}
+
+	private static List<Long> ids(MvcResult page) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		for (JsonNode book : JSON.readTree(page.getResponse().getContentAsString())) ids.add(book.get("id").asLong());
+		return ids;
+	}
+}
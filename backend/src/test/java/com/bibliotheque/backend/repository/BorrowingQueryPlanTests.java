@@ -0,0 +1,128 @@
+package com.bibliotheque.backend.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Garde-fou sur les plans d'exécution : schéma créé par les migrations Flyway, volume réaliste
+ * (400 000 emprunts sur deux ans dont 10 % actifs, un tiers d'entre eux échus), et chaque requête
+ * chaude doit passer par un index.
+ */
+class BorrowingQueryPlanTests {
+
+	private static EmbeddedPostgres postgres;
+	private static JdbcTemplate jdbc;
+
+	@BeforeAll
+	static void seed() throws Exception {
+		postgres = EmbeddedPostgres.builder().start();
+		Flyway.configure()
+				.dataSource(postgres.getPostgresDatabase())
+				.configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+				.load()
+				.migrate();
+		jdbc = new JdbcTemplate(postgres.getPostgresDatabase());
+
+		jdbc.update("INSERT INTO users (username, email, password_hash, role, created_at) " +
+				"SELECT 'user' || i, 'user' || i || '@example.org', 'x', 'USER', now() FROM generate_series(1, 5000) i");
+		jdbc.update("INSERT INTO books (title, author, isbn, stock, created_at) " +
+				"SELECT 'Livre ' || i, 'Auteur', 'isbn' || i, 1, now() FROM generate_series(1, 20000) i");
+		jdbc.update("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at, returned_at) " +
+				"SELECT 1 + i % 5000, 1 + (i * 7) % 20000, now() - (30 + i % 730) * interval '1 day', " +
+				"now() - interval '16 days', now() " +
+				"FROM generate_series(1, 360000) i");
+		jdbc.update("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at) " +
+				"SELECT 1 + i % 5000, 1 + i / 5000, now() - interval '10 days', now() + (i % 21 - 7) * interval '1 day' " +
+				"FROM generate_series(0, 39999) i");
+		jdbc.update("INSERT INTO borrowing_daily (kind, day, subject_id, count) " +
+				"SELECT 'book', borrowed_at::date, book_id, COUNT(*) FROM borrowings GROUP BY 2, 3");
+		// Files de 5 000 lecteurs sur 10 livres, derrière un historique de réservations closes
+		jdbc.update("INSERT INTO holds (user_id, book_id, status, created_at, closed_at) " +
+				"SELECT 1 + i % 5000, 1 + i % 20000, 'FULFILLED', now(), now() FROM generate_series(0, 99999) i");
+		jdbc.update("INSERT INTO holds (user_id, book_id, status, created_at) " +
+				"SELECT 1 + i % 5000, 1 + i / 5000, 'WAITING', now() FROM generate_series(0, 49999) i");
+		jdbc.execute("VACUUM ANALYZE");
+	}
+
+	@AfterAll
+	static void stop() throws Exception {
+		postgres.close();
+	}
+
+	@Test
+	void activeLoanLookupsUseThePartialUniqueIndex() {
+		assertIndexed("SELECT 1 FROM borrowings WHERE user_id = 50 AND book_id = 350 AND returned_at IS NULL",
+				"uq_borrowings_active_loan");
+		assertIndexed("SELECT * FROM borrowings WHERE user_id = 50 AND returned_at IS NULL",
+				"uq_borrowings_active_loan");
+	}
+
+	@Test
+	void activeLoanCountAndPagesStayOnPartialIndexes() {
+		assertIndexed("SELECT count(*) FROM borrowings WHERE returned_at IS NULL", null);
+		assertIndexed("SELECT * FROM borrowings WHERE returned_at IS NULL AND id > 1000 ORDER BY id LIMIT 50",
+				"idx_borrowings_active_id");
+	}
+
+	@Test
+	void overdueScanWalksThePendingIndex() {
+		assertIndexed("SELECT id FROM borrowings WHERE returned_at IS NULL AND overdue_at IS NULL " +
+				"AND due_at < now() AND (due_at, id) > ('1970-01-01', 0) ORDER BY due_at, id LIMIT 1000",
+				"idx_borrowings_overdue_pending");
+	}
+
+	@Test
+	void archiveCursorWalksTheReturnedIndex() {
+		assertIndexed("SELECT id FROM borrowings WHERE returned_at < now() - interval '1 year' " +
+				"AND (returned_at, id) > ('1970-01-01', 0) ORDER BY returned_at, id LIMIT 5000",
+				"idx_borrowings_returned");
+	}
+
+	@Test
+	void userHistoryUsesTheUserIndex() {
+		assertIndexed("SELECT * FROM borrowings WHERE user_id = 50 ORDER BY id", "idx_borrowings_user");
+	}
+
+	@Test
+	void windowedLeaderboardReadsOnlyTheWindow() {
+		String plan = String.join("\n", jdbc.queryForList("EXPLAIN SELECT subject_id, SUM(count) AS cnt " +
+				"FROM borrowing_daily WHERE kind = 'book' AND day >= current_date - 29 " +
+				"GROUP BY subject_id ORDER BY cnt DESC, subject_id LIMIT 10", String.class));
+		assertThat(plan).as(plan).contains("borrowing_daily_pkey").doesNotContain("Seq Scan");
+	}
+
+	// Plan générique, celui des requêtes préparées par le driver : holds_pkey parcourrait toute la table
+	@Test
+	void holdQueueHeadIsReadFromTheQueueIndex() {
+		String plan = jdbc.execute((ConnectionCallback<String>) c -> {
+			try (Statement st = c.createStatement()) {
+				st.execute("SET plan_cache_mode = force_generic_plan");
+				st.execute("PREPARE head(bigint) AS SELECT id FROM holds " +
+						"WHERE book_id = $1 AND status = 'WAITING' ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED");
+				StringBuilder lines = new StringBuilder();
+				try (ResultSet rs = st.executeQuery("EXPLAIN EXECUTE head(3)")) {
+					while (rs.next()) lines.append(rs.getString(1)).append('\n');
+				}
+				st.execute("DEALLOCATE head");
+				return lines.toString();
+			}
+		});
+		assertThat(plan).as(plan).contains("idx_holds_queue").doesNotContain("Sort").doesNotContain("Seq Scan");
+	}
+
+	private static void assertIndexed(String sql, String index) {
+		String plan = String.join("\n", jdbc.queryForList("EXPLAIN " + sql, String.class));
+		assertThat(plan).as(plan).doesNotContain("Seq Scan on borrowings");
+		if (index != null) assertThat(plan).as(plan).contains(index);
+	}
+}
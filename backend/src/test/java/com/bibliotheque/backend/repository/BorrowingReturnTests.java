@@ -0,0 +1,198 @@
+package com.bibliotheque.backend.repository;
+
+import com.bibliotheque.backend.repository.BorrowingBatchRepository.ReturnedLoan;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retour unitaire en une requête : même nombre de requêtes et même latence pour un lecteur avec
+ * un emprunt actif ou mille, et un double retour concurrent ne clôt l'emprunt qu'une fois.
+ */
+class BorrowingReturnTests {
+
+	private static final long LIGHT_USER = 1, HEAVY_USER = 2, HOLDER = 3;
+	private static final int HEAVY_LOANS = 1000;
+	private static final BigDecimal FINE_PER_DAY = new BigDecimal("0.50"), MAX_FINE = new BigDecimal("20.00");
+
+	private static EmbeddedPostgres postgres;
+	private static DataSource dataSource;
+	private static SingleConnectionDataSource measured, setup;
+	private static JdbcTemplate jdbc;
+	private static BorrowingBatchRepository repository;
+	private static final AtomicInteger statements = new AtomicInteger();
+
+	@BeforeAll
+	static void seed() throws Exception {
+		postgres = EmbeddedPostgres.builder().start();
+		dataSource = postgres.getPostgresDatabase();
+		Flyway.configure()
+				.dataSource(dataSource)
+				.configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+				.load()
+				.migrate();
+		// Connexions ouvertes une fois : la source embarquée n'a pas de pool
+		setup = new SingleConnectionDataSource(dataSource.getConnection(), true);
+		measured = new SingleConnectionDataSource(dataSource.getConnection(), true);
+		jdbc = new JdbcTemplate(setup);
+		repository = new BorrowingBatchRepository(new NamedParameterJdbcTemplate(new CountingDataSource(measured)));
+
+		jdbc.update("INSERT INTO users (username, email, password_hash, role, created_at) " +
+				"SELECT 'user' || i, 'user' || i || '@example.org', 'x', 'USER', now() FROM generate_series(1, 5000) i");
+		jdbc.update("INSERT INTO books (title, author, isbn, stock, created_at) " +
+				"SELECT 'Livre ' || i, 'Auteur', 'isbn' || i, 5, now() FROM generate_series(1, 2000) i");
+		// Historique et emprunts des autres lecteurs autour des deux lecteurs mesurés
+		jdbc.update("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at, returned_at) " +
+				"SELECT 4 + i % 4996, 1 + i % 2000, now() - interval '40 days', now() - interval '26 days', " +
+				"now() - interval '30 days' FROM generate_series(1, 100000) i");
+		jdbc.update("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at) " +
+				"SELECT ?, i, now() - interval '20 days', now() - interval '6 days' FROM generate_series(1, ?) i",
+				HEAVY_USER, HEAVY_LOANS);
+		jdbc.update("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at) " +
+				"VALUES (?, 1, now() - interval '20 days', now() - interval '6 days')", LIGHT_USER);
+		jdbc.execute("VACUUM ANALYZE");
+	}
+
+	@AfterAll
+	static void stop() throws Exception {
+		measured.destroy();
+		setup.destroy();
+		postgres.close();
+	}
+
+	@Test
+	void returnCostDoesNotGrowWithTheUsersActiveLoans() {
+		long light = medianReturnNanos(LIGHT_USER, i -> 1L);
+		long heavy = medianReturnNanos(HEAVY_USER, i -> 1L + i % HEAVY_LOANS);
+
+		assertThat(countStatements(() -> returnAndReborrow(LIGHT_USER, 1L))).isEqualTo(1);
+		assertThat(countStatements(() -> returnAndReborrow(HEAVY_USER, 7L))).isEqualTo(1);
+		assertThat(heavy).as("médiane %d ns (1000 emprunts) contre %d ns (1 emprunt)", heavy, light)
+				.isLessThan(2 * light + 1_000_000);
+	}
+
+	@Test
+	void returnClosesTheLoanStopsTheFineAndRestocks() {
+		int stock = stock(1500);
+		borrow(LIGHT_USER, 1500);
+		ReturnedLoan returned = repository.returnActiveLoan(LIGHT_USER, 1500L, LocalDateTime.now(),
+				FINE_PER_DAY, MAX_FINE).orElseThrow();
+
+		assertThat(returned.released()).isTrue();
+		assertThat(returned.stock()).isEqualTo(stock + 1).isEqualTo(stock(1500));
+		assertThat(returned.view().getReturnedAt()).isNotNull();
+		assertThat(returned.view().getFine()).isEqualByComparingTo("3.50");
+		assertThat(repository.returnLoan(returned.view().getId(), LocalDateTime.now(), FINE_PER_DAY, MAX_FINE))
+				.isEmpty();
+	}
+
+	@Test
+	void concurrentDoubleReturnClosesTheLoanOnce() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			for (int round = 0; round < 20; round++) {
+				int stock = stock(1600);
+				borrow(LIGHT_USER, 1600);
+				CyclicBarrier start = new CyclicBarrier(2);
+				// Une connexion par retour
+				Callable<Optional<ReturnedLoan>> ret = () -> {
+					BorrowingBatchRepository own = new BorrowingBatchRepository(new NamedParameterJdbcTemplate(dataSource));
+					start.await();
+					return own.returnActiveLoan(LIGHT_USER, 1600L, LocalDateTime.now(), FINE_PER_DAY, MAX_FINE);
+				};
+				Future<Optional<ReturnedLoan>> a = pool.submit(ret), b = pool.submit(ret);
+
+				assertThat(a.get().isPresent() ^ b.get().isPresent()).isTrue();
+				assertThat(stock(1600)).isEqualTo(stock + 1);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void waitingHoldKeepsTheCopyOutOfStock() {
+		int stock = stock(1700);
+		borrow(LIGHT_USER, 1700);
+		jdbc.update("INSERT INTO holds (user_id, book_id, status, created_at) VALUES (?, 1700, 'WAITING', now())", HOLDER);
+		ReturnedLoan returned = repository.returnActiveLoan(LIGHT_USER, 1700L, LocalDateTime.now(),
+				FINE_PER_DAY, MAX_FINE).orElseThrow();
+
+		assertThat(returned.released()).isFalse();
+		assertThat(returned.stock()).isEqualTo(stock).isEqualTo(stock(1700));
+	}
+
+	private static long medianReturnNanos(long userId, IntFunction<Long> book) {
+		for (int i = 0; i < 100; i++) returnAndReborrow(userId, book.apply(i));
+		long[] latencies = new long[400];
+		for (int i = 0; i < latencies.length; i++) latencies[i] = returnAndReborrow(userId, book.apply(i));
+		Arrays.sort(latencies);
+		return latencies[latencies.length / 2];
+	}
+
+	// Retour mesuré, réemprunt hors mesure pour garder le même nombre d'emprunts actifs
+	private static long returnAndReborrow(long userId, long bookId) {
+		long t0 = System.nanoTime();
+		repository.returnActiveLoan(userId, bookId, LocalDateTime.now(), FINE_PER_DAY, MAX_FINE).orElseThrow();
+		long elapsed = System.nanoTime() - t0;
+		borrow(userId, bookId);
+		return elapsed;
+	}
+
+	private static void borrow(long userId, long bookId) {
+		jdbc.update("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at) " +
+				"VALUES (?, ?, now() - interval '20 days', now() - interval '6 days')", userId, bookId);
+	}
+
+	private static int countStatements(Runnable run) {
+		int before = statements.get();
+		run.run();
+		return statements.get() - before;
+	}
+
+	private static int stock(long bookId) {
+		return jdbc.queryForObject("SELECT stock FROM books WHERE id = ?", Integer.class, bookId);
+	}
+
+	// Compte les requêtes envoyées par le repository (le réemprunt passe par jdbc, non compté)
+	private static final class CountingDataSource extends DelegatingDataSource {
+
+		CountingDataSource(DataSource target) {
+			super(target);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			Connection target = super.getConnection();
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+					(proxy, method, args) -> {
+						if (method.getName().startsWith("prepare") || method.getName().equals("createStatement"))
+							statements.incrementAndGet();
+						try {
+							return method.invoke(target, args);
+						} catch (InvocationTargetException e) {
+							throw e.getTargetException();
+						}
+					});
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.bibliotheque.backend.repository;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.dto.BorrowingView;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lister N emprunts : une seule requête (statistiques Hibernate), aucune entité User ou Book
+ * chargée, quel que soit N.
+ */
+class BorrowingViewQueryTests extends EmbeddedPostgresTest {
+
+	private static final int LOANS = 40;
+
+	@Autowired
+	private BorrowingRepository borrowingRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+	private long userId;
+
+	@BeforeEach
+	void seed() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		userId = newUser();
+		for (int i = 0; i < LOANS; i++) {
+			jdbc.update("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at, returned_at) " +
+					"VALUES (?, ?, now(), now() + interval '14 days', CASE WHEN ? % 2 = 0 THEN now() END)",
+					userId, newBook(1), i);
+		}
+	}
+
+	@Test
+	void userBorrowingsAreOneStatement() {
+		List<BorrowingView> views = once(() -> borrowingRepository.findViewsByUserId(userId));
+
+		assertThat(views).hasSize(LOANS);
+		assertThat(views).allSatisfy(v -> {
+			assertThat(v.getBook().getTitle()).startsWith("Livre ");
+			assertThat(v.getUser().getUsername()).startsWith("lecteur");
+		});
+	}
+
+	@Test
+	void activeAndKeysetListingsAreOneStatement() {
+		List<BorrowingView> all = borrowingRepository.findViewsByUserId(userId);
+
+		assertThat(once(() -> borrowingRepository.findActiveViews())).hasSizeGreaterThanOrEqualTo(LOANS / 2);
+		assertThat(once(() -> borrowingRepository.findViewsAfter(all.get(0).getId() - 1, Limit.of(LOANS))))
+				.hasSize(LOANS);
+		assertThat(once(() -> borrowingRepository.findActiveViewsAfter(all.get(0).getId() - 1, Limit.of(LOANS))))
+				.hasSize(LOANS / 2);
+	}
+
+	// Une requête préparée, aucune entité chargée
+	private <T> T once(Supplier<T> query) {
+		long statements = statistics.getPrepareStatementCount();
+		long entities = statistics.getEntityLoadCount();
+		T result = query.get();
+		assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount() - entities).isZero();
+		return result;
+	}
+}
@@ -0,0 +1,87 @@
+package com.bibliotheque.backend.security;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Lecteur identifié par la claim "uid" du jeton : emprunter et lister ses emprunts ne lisent pas
+ * la table users. Jeton plus ancien, sans uid : repli sur une recherche par nom.
+ */
+class JwtUserIdTests extends EmbeddedPostgresTest {
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+	private long userId;
+	private String username;
+
+	@BeforeEach
+	void signUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		userId = newUser();
+		username = jdbc.queryForObject("SELECT username FROM users WHERE id = ?", String.class, userId);
+	}
+
+	@Test
+	void tokenWithUidNeverQueriesUsers() throws Exception {
+		String token = jwtUtil.generateToken(userId, username, "USER");
+		long bookId = newBook(2);
+		long loads = userLoads(), queries = userQueries();
+
+		mvc.perform(post("/api/borrowings/borrow").header("Authorization", "Bearer " + token)
+						.contentType(MediaType.APPLICATION_JSON).content("{\"bookId\":" + bookId + "}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.user.id").value(userId));
+		mvc.perform(get("/api/borrowings/my").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].user.username").value(username));
+
+		assertThat(userLoads()).isEqualTo(loads);
+		assertThat(userQueries()).isEqualTo(queries);
+	}
+
+	@Test
+	void tokenWithoutUidFallsBackToTheUsername() throws Exception {
+		String token = jwtUtil.generateToken(null, username, "USER");
+		long queries = userQueries();
+
+		mvc.perform(get("/api/borrowings/my").header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+		mvc.perform(post("/api/borrowings/borrow").header("Authorization", "Bearer " + token)
+						.contentType(MediaType.APPLICATION_JSON).content("{\"bookId\":" + newBook(1) + "}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.user.id").value(userId));
+
+		assertThat(userQueries()).isEqualTo(queries + 2);
+	}
+
+	private long userLoads() {
+		return statistics.getEntityStatistics(User.class.getName()).getLoadCount();
+	}
+
+	// Requêtes JPQL portant sur l'entité User (findByUsername et autres)
+	private long userQueries() {
+		return Arrays.stream(statistics.getQueries())
+				.filter(q -> q.matches("(?is).*\\bfrom\\s+(\\S+\\.)?User\\b.*"))
+				.mapToLong(q -> statistics.getQueryStatistics(q).getExecutionCount())
+				.sum();
+	}
+}
@@ -0,0 +1,65 @@
+package com.bibliotheque.backend.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Limites d'authentification : échecs par compte quelle que soit l'IP, échecs par IP quel que
+ * soit le compte ; les connexions réussies ne consomment rien, les inscriptions si.
+ */
+class LoginRateLimiterTests {
+
+	private final LoginRateLimiter limiter = new LoginRateLimiter(3, 5, 60);
+
+	@Test
+	void failuresOnOneAccountFromManyAddressesLockIt() {
+		for (int i = 0; i < 3; i++) {
+			limiter.check("alice", "10.0.0." + i);
+			limiter.failed("alice", "10.0.0." + i);
+		}
+		assertTooMany(() -> limiter.check("alice", "10.0.0.99"));
+		// Les autres comptes de ces adresses ne sont pas touchés
+		assertThatCode(() -> limiter.check("bob", "10.0.0.1")).doesNotThrowAnyException();
+	}
+
+	@Test
+	void failuresFromOneAddressOnManyAccountsLockTheAddress() {
+		for (int i = 0; i < 5; i++) limiter.failed("compte" + i, "10.0.0.1");
+		assertTooMany(() -> limiter.check("nouveau", "10.0.0.1"));
+		assertThatCode(() -> limiter.check("nouveau", "10.0.0.2")).doesNotThrowAnyException();
+	}
+
+	@Test
+	void successfulLoginsAreNotCounted() {
+		for (int i = 0; i < 50; i++) {
+			limiter.check("alice", "10.0.0.1");
+			limiter.succeeded("alice");
+		}
+		assertThatCode(() -> limiter.check("alice", "10.0.0.1")).doesNotThrowAnyException();
+	}
+
+	@Test
+	void successClearsTheAccountButNotTheAddress() {
+		for (int i = 0; i < 3; i++) limiter.failed("alice", "10.0.0.1");
+		limiter.succeeded("alice");
+		assertThatCode(() -> limiter.check("alice", "10.0.0.2")).doesNotThrowAnyException();
+
+		for (int i = 0; i < 2; i++) limiter.failed("bob", "10.0.0.1");
+		assertTooMany(() -> limiter.check("carol", "10.0.0.1"));
+	}
+
+	@Test
+	void everyRegistrationCountsForTheAddress() {
+		for (int i = 0; i < 5; i++) limiter.checkRegistration("10.0.0.1");
+		assertTooMany(() -> limiter.checkRegistration("10.0.0.1"));
+	}
+
+	private static void assertTooMany(Runnable call) {
+		assertThatThrownBy(call::run).isInstanceOfSatisfying(ResponseStatusException.class,
+				e -> assertThat(e.getStatusCode().value()).isEqualTo(429));
+	}
+}
@@ -0,0 +1,56 @@
+package com.bibliotheque.backend.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pool de hachage saturé (thread occupé, file pleine) : rejet immédiat en 429 sans bloquer
+ * l'appelant, puis reprise dès qu'une place se libère.
+ */
+class PasswordHashingExecutorTests {
+
+	private final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	void stop() {
+		release.countDown();
+		executor.shutdown();
+	}
+
+	@Test
+	void saturatedPoolRejectsWith429() throws Exception {
+		CountDownLatch running = new CountDownLatch(1);
+		CompletableFuture<String> busy = executor.submit(() -> {
+			running.countDown();
+			await();
+			return "premier";
+		});
+		assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<String> queued = executor.submit(() -> "en file");
+
+		assertThatThrownBy(() -> executor.submit(() -> "de trop"))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode().value()).isEqualTo(429));
+
+		release.countDown();
+		assertThat(busy.get(5, TimeUnit.SECONDS)).isEqualTo("premier");
+		assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("en file");
+		assertThat(executor.submit(() -> "ensuite").get(5, TimeUnit.SECONDS)).isEqualTo("ensuite");
+	}
+
+	private void await() {
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
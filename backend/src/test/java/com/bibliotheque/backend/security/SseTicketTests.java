@@ -0,0 +1,52 @@
+package com.bibliotheque.backend.security;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Ouverture du flux SSE : ticket délivré contre le JWT en en-tête, accepté une seule fois ; le
+ * JWT lui-même n'est plus accepté dans l'URL.
+ */
+class SseTicketTests extends EmbeddedPostgresTest {
+
+	private static final String STREAM = "/api/events/availability";
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Test
+	void ticketOpensTheStreamOnce() throws Exception {
+		String jwt = jwtUtil.generateToken(newUser(), "lecteur", "USER");
+		String body = mvc.perform(post("/api/events/ticket").header("Authorization", "Bearer " + jwt))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		String ticket = JsonMapper.builder().build().readTree(body).get("ticket").asString();
+		assertThat(ticket).isNotBlank().doesNotContain(jwt);
+
+		MvcResult stream = mvc.perform(get(STREAM).param("ticket", ticket))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		stream.getRequest().getAsyncContext().complete();
+
+		// Rejoué (journal d'accès, historique) : refusé
+		mvc.perform(get(STREAM).param("ticket", ticket)).andExpect(status().isForbidden());
+	}
+
+	@Test
+	void jwtIsNotAcceptedInTheUrl() throws Exception {
+		String jwt = jwtUtil.generateToken(newUser(), "lecteur", "USER");
+		mvc.perform(get(STREAM).param("access_token", jwt)).andExpect(status().isForbidden());
+		mvc.perform(get(STREAM).param("ticket", jwt)).andExpect(status().isForbidden());
+		// Ticket demandé sans authentification
+		mvc.perform(post("/api/events/ticket")).andExpect(status().isForbidden());
+	}
+}
@@ -0,0 +1,149 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Diffusion SSE sans serveur : fusion par livre avec le stock relu en base, déconnexion d'un
+ * abonné dont la file déborde, limite d'abonnés.
+ */
+class AvailabilityBroadcasterTests {
+
+	private final StatsService stats = mock(StatsService.class);
+	private final BookRepository books = mock(BookRepository.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	// Écrivains à l'arrêt : les files des abonnés ne se vident pas
+	private final PausedExecutor writers = new PausedExecutor();
+
+	@Test
+	void changesAreCoalescedWithTheCommittedStock() {
+		AvailabilityBroadcaster broadcaster = broadcaster(16, 10);
+		when(stats.getGeneralStats()).thenReturn(Map.of("totalBooks", 2L));
+		when(books.findStocksByIds(anyCollection())).thenReturn(List.<Object[]>of(new Object[]{1L, 3}));
+
+		// Marqué avant tout abonnement : pas perdu pour l'abonné arrivé avant la publication
+		broadcaster.onBook(new BookEvent(1L, 5, 4));
+		assertThat(broadcaster.subscribe()).isNotNull();
+		// Écouteurs dans le désordre : le stock publié est celui de la base, pas du dernier écouteur
+		broadcaster.onBook(new BookEvent(1L, 4, 3));
+		broadcaster.onBook(new BookEvent(1L, 3, 5));
+		broadcaster.onBook(new BookEvent(2L, 1, null));
+
+		AvailabilityBroadcaster.Update update = broadcaster.collect();
+		assertThat(update.books()).containsExactlyInAnyOrder(
+				new AvailabilityBroadcaster.StockChange(1L, 3, null),
+				new AvailabilityBroadcaster.StockChange(2L, null, true));
+		assertThat(update.stats()).containsEntry("totalBooks", 2L);
+		verify(books, times(1)).findStocksByIds(argThat((Collection<Long> ids) -> Set.copyOf(ids).equals(Set.of(1L, 2L))));
+
+		assertThat(broadcaster.collect()).isNull();
+		verifyNoMoreInteractions(books);
+	}
+
+	@Test
+	void slowSubscriberIsDisconnectedWhenItsQueueOverflows() {
+		AvailabilityBroadcaster broadcaster = broadcaster(2, 10);
+		when(books.findStocksByIds(anyCollection())).thenReturn(List.of());
+		broadcaster.subscribe();
+
+		// Compteurs initiaux + une publication : file pleine sans perte
+		broadcaster.onBook(new BookEvent(1L, 1, 0));
+		broadcaster.flush();
+		assertThat(subscribers()).isEqualTo(1);
+		assertThat(dropped()).isZero();
+
+		broadcaster.onBook(new BookEvent(1L, 0, 1));
+		broadcaster.flush();
+		assertThat(subscribers()).isZero();
+		assertThat(dropped()).isEqualTo(1);
+
+		// Rien n'est relu tant que personne n'écoute
+		broadcaster.onBook(new BookEvent(1L, 1, 0));
+		broadcaster.flush();
+		verify(books, times(2)).findStocksByIds(anyCollection());
+		// L'écrivain ferme l'émetteur et ne se replanifie pas
+		writers.runAll();
+		assertThat(writers.tasks).isEmpty();
+	}
+
+	@Test
+	void subscribersAreCapped() {
+		AvailabilityBroadcaster broadcaster = broadcaster(1, 2);
+		assertThat(broadcaster.subscribe()).isNotNull();
+		assertThat(broadcaster.subscribe()).isNotNull();
+		assertThat(broadcaster.subscribe()).isNull();
+		assertThat(subscribers()).isEqualTo(2);
+
+		// Une déconnexion libère une place
+		broadcaster.onBook(new BookEvent(1L, 1, 0));
+		when(books.findStocksByIds(anyCollection())).thenReturn(List.of());
+		broadcaster.flush();
+		assertThat(subscribers()).isZero();
+		assertThat(broadcaster.subscribe()).isNotNull();
+	}
+
+	private AvailabilityBroadcaster broadcaster(int bufferSize, int maxSubscribers) {
+		return new AvailabilityBroadcaster(stats, books, JsonMapper.builder().build(), registry,
+				bufferSize, maxSubscribers, 60_000, writers);
+	}
+
+	private double subscribers() {
+		return registry.get("bibliotheque.sse.subscribers").gauge().value();
+	}
+
+	private double dropped() {
+		return registry.get("bibliotheque.sse.dropped").counter().count();
+	}
+
+	private static final class PausedExecutor extends AbstractExecutorService {
+		final List<Runnable> tasks = new ArrayList<>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty()) tasks.remove(0).run();
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return List.of();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return false;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return false;
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return false;
+		}
+	}
+}
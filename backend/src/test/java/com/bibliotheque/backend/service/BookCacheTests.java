@@ -0,0 +1,60 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.event.BookEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cache par livre à clé versionnée : une écriture validée change la clé, et une lecture commencée
+ * avant l'écriture ne peut pas réinstaller une copie périmée sous la clé courante.
+ */
+class BookCacheTests extends EmbeddedPostgresTest {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BorrowingService borrowingService;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void bookIsLoadedOnceUntilItChanges() {
+		long bookId = newBook(3);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long loads = statistics.getEntityStatistics(Book.class.getName()).getLoadCount();
+
+		assertThat(bookService.getById(bookId).getStock()).isEqualTo(3);
+		assertThat(bookService.getById(bookId).getStock()).isEqualTo(3);
+		assertThat(statistics.getEntityStatistics(Book.class.getName()).getLoadCount()).isEqualTo(loads + 1);
+
+		borrowingService.borrow(newUser(), bookId);
+		assertThat(bookService.getById(bookId).getStock()).isEqualTo(2);
+	}
+
+	@Test
+	void stalePutAfterAWriteIsNeverServed() {
+		long bookId = newBook(3);
+		String keyBeforeWrite = bookService.cacheKey(bookId);
+		Book stale = bookService.getById(bookId);
+
+		// Écriture validée pendant la lecture : la lecture range son résultat sous l'ancienne clé
+		jdbc.update("UPDATE books SET stock = 2 WHERE id = ?", bookId);
+		bookService.onBook(new BookEvent(bookId, 3, 2));
+		cacheManager.getCache(BookService.BOOKS_CACHE).put(keyBeforeWrite, stale);
+
+		assertThat(bookService.getById(bookId).getStock()).isEqualTo(2);
+	}
+}
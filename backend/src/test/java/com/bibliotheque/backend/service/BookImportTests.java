@@ -0,0 +1,62 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.dto.ImportReport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Réimport du catalogue pendant que des exemplaires sont sortis : le stock en rayon reste le
+ * nombre d'exemplaires du flux moins les emprunts en cours. En-tête CSV reconnu à ses colonnes.
+ */
+class BookImportTests extends EmbeddedPostgresTest {
+
+	private static final AtomicLong ISBN = new AtomicLong();
+
+	@Autowired
+	private BookImportService importService;
+
+	@Autowired
+	private BorrowingService borrowingService;
+
+	@Test
+	void reimportKeepsCopiesOnLoanOffTheShelf() throws Exception {
+		String isbn = "import-" + ISBN.incrementAndGet();
+		importCsv("Les Misérables,Victor Hugo," + isbn + ",3");
+		long bookId = jdbc.queryForObject("SELECT id FROM books WHERE isbn = ?", Long.class, isbn);
+		borrowingService.borrow(newUser(), bookId);
+		borrowingService.borrow(newUser(), bookId);
+		assertThat(stock(bookId)).isEqualTo(1);
+
+		importCsv("Les Misérables,Victor Hugo," + isbn + ",3");
+		assertThat(stock(bookId)).isEqualTo(1);
+
+		importCsv("Les Misérables,Victor Hugo," + isbn + ",5");
+		assertThat(stock(bookId)).isEqualTo(3);
+
+		// Moins d'exemplaires que d'emprunts en cours : rien en rayon, jamais négatif
+		importCsv("Les Misérables,Victor Hugo," + isbn + ",1");
+		assertThat(stock(bookId)).isZero();
+	}
+
+	@Test
+	void onlyTheRealHeaderIsSkipped() throws Exception {
+		String first = "import-" + ISBN.incrementAndGet(), second = "import-" + ISBN.incrementAndGet();
+
+		assertThat(importCsv("Title, Author, ISBN, Stock", "Germinal,Émile Zola," + first + ",2").getRowsWritten())
+				.isEqualTo(1);
+		assertThat(importCsv("Guide de l'ISBN,Agence ISBN," + second + ",1").getRowsWritten()).isEqualTo(1);
+		assertThat(jdbc.queryForObject("SELECT title FROM books WHERE isbn = ?", String.class, second))
+				.isEqualTo("Guide de l'ISBN");
+	}
+
+	private ImportReport importCsv(String... lines) throws Exception {
+		byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+		return importService.importBooks(new ByteArrayInputStream(body), true);
+	}
+}
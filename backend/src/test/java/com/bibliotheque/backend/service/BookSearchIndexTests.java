@@ -0,0 +1,92 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSearchIndexTests {
+
+	private final BookSearchIndex index = new BookSearchIndex();
+
+	@BeforeEach
+	void setUp() {
+		index.rebuild(List.of(
+				book(1L, "Le Petit Prince", "Antoine de Saint-Exupéry", "978-2070408504"),
+				book(2L, "Les Misérables", "Victor Hugo", "978-2253096337"),
+				book(3L, "Le Seigneur des Anneaux", "J.R.R. Tolkien", "978-2266286268"),
+				book(4L, "Fondation", "Isaac Asimov", "978-2070463619")));
+	}
+
+	@Test
+	void matchesPrefixAndIgnoresAccents() {
+		assertThat(index.search("miser", 10)).first().isEqualTo(2L);
+		assertThat(index.search("exupery", 10)).first().isEqualTo(1L);
+	}
+
+	@Test
+	void toleratesTypos() {
+		assertThat(index.search("tolkein", 10)).first().isEqualTo(3L);
+		assertThat(index.search("fondaton", 10)).first().isEqualTo(4L);
+	}
+
+	@Test
+	void findsIsbnWithOrWithoutDashes() {
+		assertThat(index.search("978-2070463619", 10)).first().isEqualTo(4L);
+		assertThat(index.search("9782253096337", 10)).first().isEqualTo(2L);
+	}
+
+	@Test
+	void honoursLimitAndTracksUpdates() {
+		assertThat(index.search("le", 1)).hasSize(1);
+
+		index.index(book(4L, "Fondation et Empire", "Isaac Asimov", "978-2070463619"));
+		assertThat(index.search("empire", 10)).containsExactly(4L);
+
+		index.remove(4L);
+		assertThat(index.search("asimov", 10)).isEmpty();
+	}
+
+	@Test
+	void isbnChangeAndRemovalUpdateTheExactLookup() {
+		index.index(book(5L, "Programmation", "Anonyme", "0-306-40615-X"));
+		assertThat(index.search("030640615X", 10)).containsExactly(5L);
+		// Zéro de tête significatif : un autre ISBN
+		assertThat(index.search("30640615X", 10)).doesNotContain(5L);
+
+		index.index(book(5L, "Programmation", "Anonyme", "978-0306406157"));
+		assertThat(index.search("030640615X", 10)).doesNotContain(5L);
+		assertThat(index.search("9780306406157", 10)).containsExactly(5L);
+
+		index.remove(5L);
+		assertThat(index.search("9780306406157", 10)).isEmpty();
+	}
+
+	@Test
+	void commonGramsDoNotDrownSelectiveOnes() {
+		// « le » présent dans la plupart des titres : la requête est portée par « fondation »
+		List<Book> catalog = new ArrayList<>();
+		for (long id = 1; id <= 200; id++) catalog.add(book(id, "Le livre " + id, "Auteur", "isbn-" + id));
+		catalog.add(book(500L, "Le cycle de Fondation", "Isaac Asimov", "isbn-500"));
+		index.rebuild(catalog);
+
+		assertThat(index.search("le fondation", 5)).first().isEqualTo(500L);
+		assertThat(index.search("le", 5)).hasSize(5);
+	}
+
+	@Test
+	void longIntMapSurvivesRemovalsInsideClusters() {
+		BookSearchIndex.LongIntMap map = new BookSearchIndex.LongIntMap();
+		for (long k = 0; k < 10_000; k++) map.put(k * 1_024, (int) k);
+		for (long k = 0; k < 10_000; k += 3) map.remove(k * 1_024);
+		for (long k = 0; k < 10_000; k++)
+			assertThat(map.get(k * 1_024)).isEqualTo(k % 3 == 0 ? -1 : (int) k);
+	}
+
+	private static Book book(Long id, String title, String author, String isbn) {
+		return Book.builder().id(id).title(title).author(author).isbn(isbn).stock(1).build();
+	}
+}
@@ -0,0 +1,85 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.dto.BorrowingView;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Archivage avec une date limite : chaque emprunt rendu avant la limite passe une seule fois dans
+ * la partition de son année, les autres restent, et les lectures d'historique renvoient les mêmes
+ * emprunts avant et après.
+ */
+class BorrowingArchiveTests extends EmbeddedPostgresTest {
+
+	private static final LocalDateTime CUTOFF = LocalDateTime.of(2019, 6, 1, 0, 0);
+
+	@Autowired
+	private BorrowingArchiveService archiveService;
+
+	@Autowired
+	private BorrowingService borrowingService;
+
+	@Test
+	void oldReturnsMoveOnceAndReadsAreUnchanged() {
+		long userId = newUser();
+		List<Long> old = new ArrayList<>(), recent = new ArrayList<>();
+		old.add(loan(userId, "2018-03-01"));
+		old.add(loan(userId, "2018-11-20"));
+		old.add(loan(userId, "2019-02-14"));
+		recent.add(loan(userId, "2020-05-01"));
+		recent.add(loan(userId, null));
+		long first = old.get(0);
+
+		List<Long> userBefore = ids(borrowingService.getUserBorrowings(userId));
+		List<Long> pageBefore = ids(borrowingService.getPage(first - 1, Limit.of(5)));
+		assertThat(userBefore).hasSize(5);
+		assertThat(pageBefore).isEqualTo(userBefore);
+
+		assertThat(archiveService.archiveReturnedBefore(CUTOFF)).isEqualTo(old.size());
+		assertThat(archiveService.archiveReturnedBefore(CUTOFF)).isZero();
+
+		for (Long id : old) {
+			assertThat(count("borrowings", id)).isZero();
+			assertThat(count("borrowings_history", id)).isEqualTo(1);
+		}
+		for (Long id : recent) {
+			assertThat(count("borrowings", id)).isEqualTo(1);
+			assertThat(count("borrowings_history", id)).isZero();
+		}
+		assertThat(partition(old.get(0))).isEqualTo("borrowings_history_2018");
+		assertThat(partition(old.get(1))).isEqualTo("borrowings_history_2018");
+		assertThat(partition(old.get(2))).isEqualTo("borrowings_history_2019");
+
+		assertThat(ids(borrowingService.getUserBorrowings(userId))).isEqualTo(userBefore);
+		assertThat(ids(borrowingService.getPage(first - 1, Limit.of(5)))).isEqualTo(pageBefore);
+	}
+
+	// Emprunt de 14 jours rendu le jour donné ; null : encore en cours
+	private long loan(long userId, String returned) {
+		LocalDateTime returnedAt = returned == null ? null : LocalDateTime.parse(returned + "T10:00:00");
+		LocalDateTime borrowedAt = (returnedAt == null ? LocalDateTime.now() : returnedAt).minusDays(14);
+		return jdbc.queryForObject("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at, returned_at) " +
+						"VALUES (?, ?, ?, ?, ?) RETURNING id", Long.class,
+				userId, newBook(1), borrowedAt, borrowedAt.plusDays(14), returnedAt);
+	}
+
+	private int count(String table, long id) {
+		return jdbc.queryForObject("SELECT count(*) FROM " + table + " WHERE id = ?", Integer.class, id);
+	}
+
+	private String partition(long id) {
+		return jdbc.queryForObject("SELECT tableoid::regclass::text FROM borrowings_history WHERE id = ?",
+				String.class, id);
+	}
+
+	private static List<Long> ids(List<BorrowingView> views) {
+		return views.stream().map(BorrowingView::getId).toList();
+	}
+}
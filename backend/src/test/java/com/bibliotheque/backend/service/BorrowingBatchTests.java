@@ -0,0 +1,135 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.dto.BatchItemResult;
+import com.bibliotheque.backend.security.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Emprunts et retours groupés : un résultat par livre demandé (doublons fusionnés), échecs
+ * partiels sans effet sur les autres livres, lot borné à MAX_BATCH_SIZE ; mêmes règles par HTTP.
+ */
+class BorrowingBatchTests extends EmbeddedPostgresTest {
+
+	@Autowired
+	private BorrowingService borrowingService;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Test
+	void borrowAllReportsEachBook() {
+		long user = newUser();
+		long available = newBook(2), empty = newBook(0), alreadyBorrowed = newBook(3), missing = missingBook();
+		borrowingService.borrow(user, alreadyBorrowed);
+
+		List<BatchItemResult> results = borrowingService.borrowAll(user,
+				List.of(available, empty, available, alreadyBorrowed, missing));
+
+		assertThat(results).extracting(BatchItemResult::getBookId)
+				.containsExactly(available, empty, alreadyBorrowed, missing);
+		assertThat(results).extracting(BatchItemResult::isSuccess).containsExactly(true, false, false, false);
+		assertThat(results).extracting(BatchItemResult::getError).containsExactly(null,
+				"Livre non disponible (stock épuisé).", "Vous avez déjà emprunté ce livre.", "Livre introuvable.");
+		assertThat(results.get(0).getBorrowing().getBook().getId()).isEqualTo(available);
+		assertThat(results.get(0).getBorrowing().getUser().getId()).isEqualTo(user);
+
+		// Doublon compté une fois ; exemplaire réservé pour l'emprunt déjà actif rendu au stock
+		assertThat(stock(available)).isEqualTo(1);
+		assertThat(stock(empty)).isZero();
+		assertThat(stock(alreadyBorrowed)).isEqualTo(2);
+		assertThat(activeLoans(user)).isEqualTo(2);
+	}
+
+	@Test
+	void returnAllReportsEachBook() {
+		long user = newUser(), other = newUser();
+		long first = newBook(1), second = newBook(1), notBorrowed = newBook(1), borrowedByOther = newBook(1);
+		borrowingService.borrowAll(user, List.of(first, second));
+		borrowingService.borrow(other, borrowedByOther);
+
+		List<BatchItemResult> results = borrowingService.returnAll(user,
+				List.of(first, second, first, notBorrowed, borrowedByOther));
+
+		assertThat(results).extracting(BatchItemResult::getBookId)
+				.containsExactly(first, second, notBorrowed, borrowedByOther);
+		assertThat(results).extracting(BatchItemResult::isSuccess).containsExactly(true, true, false, false);
+		assertThat(results.get(2).getError()).isEqualTo("Aucun emprunt actif trouvé.");
+		assertThat(results.get(0).getBorrowing().getReturnedAt()).isNotNull();
+		assertThat(stock(first)).isEqualTo(1);
+		assertThat(stock(second)).isEqualTo(1);
+		assertThat(stock(borrowedByOther)).isZero();
+		assertThat(activeLoans(user)).isZero();
+		assertThat(activeLoans(other)).isEqualTo(1);
+	}
+
+	@Test
+	void batchIsBounded() {
+		long user = newUser(), book = newBook(1);
+		List<Long> ids = new ArrayList<>(LongStream.rangeClosed(1, BorrowingService.MAX_BATCH_SIZE)
+				.map(i -> -i).boxed().toList());
+		// Exactement MAX_BATCH_SIZE identifiants distincts : accepté
+		assertThat(borrowingService.borrowAll(user, ids)).hasSize(BorrowingService.MAX_BATCH_SIZE);
+
+		ids.add(book);
+		assertThatThrownBy(() -> borrowingService.borrowAll(user, ids))
+				.hasMessage("Trop de livres dans le lot (maximum " + BorrowingService.MAX_BATCH_SIZE + ").");
+		assertThatThrownBy(() -> borrowingService.returnAll(user, ids))
+				.hasMessage("Trop de livres dans le lot (maximum " + BorrowingService.MAX_BATCH_SIZE + ").");
+		assertThat(stock(book)).isEqualTo(1);
+	}
+
+	@Test
+	void batchEndpoints() throws Exception {
+		long user = newUser(), book = newBook(1), empty = newBook(0);
+		String token = "Bearer " + jwtUtil.generateToken(user, "lecteur", "USER");
+
+		batch("/api/borrowings/borrow/batch", token, "[%d, %d]".formatted(book, empty))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].success").value(true))
+				.andExpect(jsonPath("$[0].borrowing.book.id").value(book))
+				.andExpect(jsonPath("$[1].success").value(false))
+				.andExpect(jsonPath("$[1].error").value("Livre non disponible (stock épuisé)."));
+
+		batch("/api/borrowings/return/batch", token, "[%d, %d]".formatted(book, empty))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].success").value(true))
+				.andExpect(jsonPath("$[1].error").value("Aucun emprunt actif trouvé."));
+
+		String tooMany = LongStream.rangeClosed(1, BorrowingService.MAX_BATCH_SIZE + 1)
+				.mapToObj(String::valueOf).toList().toString();
+		batch("/api/borrowings/borrow/batch", token, tooMany)
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").value("Trop de livres dans le lot (maximum " + BorrowingService.MAX_BATCH_SIZE + ")."));
+		batch("/api/borrowings/return/batch", token, tooMany).andExpect(status().isBadRequest());
+		assertThat(stock(book)).isEqualTo(1);
+	}
+
+	private ResultActions batch(String path, String token, String ids) throws Exception {
+		return mvc.perform(post(path).header("Authorization", token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"bookIds\": " + ids + "}"));
+	}
+
+	private long missingBook() {
+		return jdbc.queryForObject("SELECT coalesce(max(id), 0) + 1000000 FROM books", Long.class);
+	}
+
+	private int activeLoans(long userId) {
+		return jdbc.queryForObject("SELECT count(*) FROM borrowings WHERE user_id = ? AND returned_at IS NULL",
+				Integer.class, userId);
+	}
+}
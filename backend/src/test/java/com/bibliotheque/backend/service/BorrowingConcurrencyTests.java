@@ -0,0 +1,128 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 200 lecteurs empruntent en même temps le même livre : exactement autant d'emprunts que
+ * d'exemplaires, les autres sont refusés, et le stock finit à zéro sans jamais passer dessous.
+ * Un même lecteur ne peut avoir qu'un emprunt actif par livre, même en parallèle. L'emprunt n'a
+ * pas à charger les entités Book et User.
+ */
+class BorrowingConcurrencyTests extends EmbeddedPostgresTest {
+
+	private static final int BORROWERS = 200, COPIES = 17;
+
+	@Autowired
+	private BorrowingService borrowingService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void parallelBorrowersNeverOversellTheStock() throws Exception {
+		long bookId = newBook(COPIES);
+		List<Long> users = new ArrayList<>();
+		for (int i = 0; i < BORROWERS; i++) users.add(newUser());
+
+		ExecutorService pool = Executors.newFixedThreadPool(50);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> results = new ArrayList<>();
+		try {
+			for (Long userId : users) {
+				results.add(pool.submit(() -> {
+					start.await();
+					try {
+						borrowingService.borrow(userId, bookId);
+						return true;
+					} catch (RuntimeException e) {
+						assertThat(e).hasMessage("Livre non disponible (stock épuisé).");
+						return false;
+					}
+				}));
+			}
+			start.countDown();
+			int borrowed = 0;
+			for (Future<Boolean> r : results) if (r.get(60, TimeUnit.SECONDS)) borrowed++;
+
+			assertThat(borrowed).isEqualTo(COPIES);
+		} finally {
+			pool.shutdown();
+		}
+		assertThat(stock(bookId)).isZero();
+		assertThat(jdbc.queryForObject("SELECT count(*) FROM borrowings WHERE book_id = ? AND returned_at IS NULL",
+				Integer.class, bookId)).isEqualTo(COPIES);
+	}
+
+	@Test
+	void secondActiveLoanOfTheSameBookIsRefused() {
+		long bookId = newBook(5), userId = newUser();
+		borrowingService.borrow(userId, bookId);
+
+		assertThatThrownBy(() -> borrowingService.borrow(userId, bookId))
+				.hasMessage("Vous avez déjà emprunté ce livre.");
+		// Le rollback rend l'exemplaire réservé par le second emprunt
+		assertThat(stock(bookId)).isEqualTo(4);
+	}
+
+	@Test
+	void concurrentBorrowsBySameUserCreateOneLoan() throws Exception {
+		long bookId = newBook(COPIES), userId = newUser();
+		int attempts = 20;
+
+		ExecutorService pool = Executors.newFixedThreadPool(attempts);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < attempts; i++) {
+				results.add(pool.submit(() -> {
+					start.await();
+					try {
+						borrowingService.borrow(userId, bookId);
+						return true;
+					} catch (RuntimeException e) {
+						// Index unique partiel uq_borrowings_active_loan, traduit pour le lecteur
+						assertThat(e).hasMessage("Vous avez déjà emprunté ce livre.");
+						return false;
+					}
+				}));
+			}
+			start.countDown();
+			int borrowed = 0;
+			for (Future<Boolean> r : results) if (r.get(60, TimeUnit.SECONDS)) borrowed++;
+
+			assertThat(borrowed).isEqualTo(1);
+		} finally {
+			pool.shutdown();
+		}
+		assertThat(stock(bookId)).isEqualTo(COPIES - 1);
+		assertThat(jdbc.queryForObject("SELECT count(*) FROM borrowings WHERE book_id = ? AND user_id = ?",
+				Integer.class, bookId, userId)).isEqualTo(1);
+	}
+
+	@Test
+	void borrowLoadsNeitherTheBookNorTheUser() {
+		long bookId = newBook(3), userId = newUser();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long books = statistics.getEntityStatistics(Book.class.getName()).getLoadCount();
+		long users = statistics.getEntityStatistics(User.class.getName()).getLoadCount();
+
+		assertThat(borrowingService.borrow(userId, bookId).getBook().getTitle()).startsWith("Livre ");
+
+		assertThat(statistics.getEntityStatistics(Book.class.getName()).getLoadCount()).isEqualTo(books);
+		assertThat(statistics.getEntityStatistics(User.class.getName()).getLoadCount()).isEqualTo(users);
+		assertThat(stock(bookId)).isEqualTo(2);
+	}
+}
@@ -0,0 +1,78 @@
+package com.bibliotheque.backend.service;
+
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoBorrowingModelTests {
+
+	@Test
+	void neighboursAreRankedByCoBorrowings() {
+		CoBorrowingModel model = new CoBorrowingModel(10, 50);
+		model.addHistory(new long[]{1, 2, 3}, 3);
+		model.addHistory(new long[]{1, 3}, 2);
+		model.addHistory(new long[]{4, 1, 3}, 3);
+
+		assertThat(model.top(1, 10)).containsExactly(3, 2, 4);
+		assertThat(model.top(1, 1)).containsExactly(3);
+		assertThat(model.top(99, 10)).isEmpty();
+	}
+
+	@Test
+	void onlyLoansWithinTheWindowArePaired() {
+		CoBorrowingModel model = new CoBorrowingModel(2, 50);
+		model.addHistory(new long[]{1, 2, 3, 4}, 4);
+
+		assertThat(model.top(1, 10)).containsExactly(2, 3);
+		assertThat(model.top(4, 10)).containsExactly(2, 3);
+	}
+
+	@Test
+	void newBorrowIsPairedWithTheUsersPreviousLoans() {
+		CoBorrowingModel model = new CoBorrowingModel(2, 50);
+		model.addBorrow(5, new long[]{4, 3, 2});
+
+		assertThat(model.top(5, 10)).containsExactly(3, 4);
+		assertThat(model.top(3, 10)).containsExactly(5);
+	}
+
+	@Test
+	void boundedNeighbourListKeepsTheFrequentOnes() {
+		// 190 paires, 5 places : tout voisin vu plus de 38 fois est garanti
+		CoBorrowingModel model = new CoBorrowingModel(1, 5);
+		for (int i = 0; i < 50; i++) model.addHistory(new long[]{1, 2}, 2);
+		for (int i = 0; i < 40; i++) model.addHistory(new long[]{1, 3}, 2);
+		for (long rare = 100; rare < 200; rare++) model.addHistory(new long[]{1, rare}, 2);
+
+		assertThat(model.top(1, 2)).containsExactly(2, 3);
+		assertThat(model.top(1, 10)).hasSize(5);
+	}
+
+	@Test
+	void concurrentBuildMatchesSequentialBuild() {
+		Random random = new Random(7);
+		long[][] histories = new long[2000][];
+		for (int u = 0; u < histories.length; u++)
+			histories[u] = random.longs(1 + random.nextInt(30), 1, 500).toArray();
+
+		CoBorrowingModel sequential = new CoBorrowingModel(5, 1000);
+		for (long[] h : histories) sequential.addHistory(h, h.length);
+		CoBorrowingModel parallel = new CoBorrowingModel(5, 1000);
+		IntStream.range(0, histories.length).parallel().forEach(u -> parallel.addHistory(histories[u], histories[u].length));
+
+		for (long book = 1; book < 500; book++)
+			assertThat(parallel.top(book, 20)).containsExactly(sequential.top(book, 20));
+	}
+
+	@Test
+	void removedBookHasNoRecommendations() {
+		CoBorrowingModel model = new CoBorrowingModel(10, 50);
+		model.addHistory(new long[]{1, 2}, 2);
+		model.remove(1);
+
+		assertThat(model.top(1, 10)).isEmpty();
+		assertThat(model.books()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,145 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.dto.BatchItemResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cycle des réservations : attribution FIFO au retour, retrait de l'exemplaire mis de côté,
+ * expiration ou annulation qui passe l'exemplaire au suivant puis au stock.
+ */
+class HoldServiceTests extends EmbeddedPostgresTest {
+
+	@Autowired
+	private HoldService holdService;
+
+	@Autowired
+	private BorrowingService borrowingService;
+
+	@Autowired
+	private StatsService statsService;
+
+	@Test
+	void returnedCopyGoesToTheHeadOfTheQueue() {
+		long book = newBook(1), borrower = newUser(), first = newUser(), second = newUser();
+		borrowingService.borrow(borrower, book);
+		long firstHold = holdService.place(first, book).getId();
+		long secondHold = holdService.place(second, book).getId();
+
+		borrowingService.returnBook(borrower, book);
+
+		assertThat(status(firstHold)).isEqualTo("READY");
+		assertThat(status(secondHold)).isEqualTo("WAITING");
+		assertThat(stock(book)).isZero();
+		assertThat(holdService.getUserHolds(second).get(0).getPosition()).isEqualTo(1);
+	}
+
+	@Test
+	void readyHoldIsClaimedByItsPatronOnly() {
+		long book = newBook(1), borrower = newUser(), patron = newUser(), other = newUser();
+		borrowingService.borrow(borrower, book);
+		long hold = holdService.place(patron, book).getId();
+		borrowingService.returnBook(borrower, book);
+
+		// Exemplaire mis de côté : pas au stock pour les autres lecteurs
+		assertThat(borrowingService.borrowAll(other, List.of(book)).get(0).isSuccess()).isFalse();
+
+		borrowingService.borrow(patron, book);
+		assertThat(status(hold)).isEqualTo("FULFILLED");
+		assertThat(stock(book)).isZero();
+		assertThat(activeLoans(patron, book)).isEqualTo(1);
+	}
+
+	@Test
+	void expiredCopyGoesToTheNextPatronThenBackToStock() {
+		long book = newBook(1), borrower = newUser(), first = newUser(), second = newUser();
+		borrowingService.borrow(borrower, book);
+		long firstHold = holdService.place(first, book).getId();
+		long secondHold = holdService.place(second, book).getId();
+		borrowingService.returnBook(borrower, book);
+
+		expire(firstHold);
+		holdService.expireHolds();
+		assertThat(status(firstHold)).isEqualTo("EXPIRED");
+		assertThat(status(secondHold)).isEqualTo("READY");
+		assertThat(stock(book)).isZero();
+
+		expire(secondHold);
+		holdService.expireHolds();
+		assertThat(status(secondHold)).isEqualTo("EXPIRED");
+		assertThat(stock(book)).isEqualTo(1);
+	}
+
+	@Test
+	void cancelledReadyHoldHandsTheCopyOver() {
+		long book = newBook(1), borrower = newUser(), first = newUser(), second = newUser();
+		borrowingService.borrow(borrower, book);
+		long firstHold = holdService.place(first, book).getId();
+		long secondHold = holdService.place(second, book).getId();
+		borrowingService.returnBook(borrower, book);
+
+		holdService.cancel(first, firstHold);
+		assertThat(status(firstHold)).isEqualTo("CANCELLED");
+		assertThat(status(secondHold)).isEqualTo("READY");
+		assertThat(stock(book)).isZero();
+
+		holdService.cancel(second, secondHold);
+		assertThat(stock(book)).isEqualTo(1);
+	}
+
+	@Test
+	void batchBorrowFulfilsTheWaitingHold() {
+		long book = newBook(0), patron = newUser();
+		long hold = holdService.place(patron, book).getId();
+		// Stock remonté par l'administration, avant le passage du job
+		jdbc.update("UPDATE books SET stock = 1 WHERE id = ?", book);
+
+		BatchItemResult result = borrowingService.borrowAll(patron, List.of(book)).get(0);
+		assertThat(result.isSuccess()).isTrue();
+		assertThat(status(hold)).isEqualTo("FULFILLED");
+		assertThat(holdService.getUserHolds(patron)).isEmpty();
+	}
+
+	@Test
+	void copiesSetAsideDoNotMoveTheAvailabilityCounters() {
+		long book = newBook(1), borrower = newUser(), first = newUser(), second = newUser();
+		borrowingService.borrow(borrower, book);
+		holdService.place(first, book);
+		Map<String, Long> before = availability();
+
+		// Retour vers la file puis retrait : l'exemplaire ne repasse jamais par le stock (0)
+		borrowingService.returnBook(borrower, book);
+		borrowingService.borrow(first, book);
+		assertThat(availability()).isEqualTo(before);
+
+		// Stock remonté à 1 avec un lecteur en file : le retour lui est attribué, le stock reste à 1
+		holdService.place(second, book);
+		jdbc.update("UPDATE books SET stock = 1 WHERE id = ?", book);
+		borrowingService.returnBook(first, book);
+		assertThat(stock(book)).isEqualTo(1);
+		assertThat(availability()).isEqualTo(before);
+	}
+
+	private Map<String, Long> availability() {
+		Map<String, Long> stats = statsService.getGeneralStats();
+		return Map.of("availableBooks", stats.get("availableBooks"), "unavailableBooks", stats.get("unavailableBooks"));
+	}
+
+	private String status(long holdId) {
+		return jdbc.queryForObject("SELECT status FROM holds WHERE id = ?", String.class, holdId);
+	}
+
+	private void expire(long holdId) {
+		jdbc.update("UPDATE holds SET expires_at = now() - interval '1 minute' WHERE id = ?", holdId);
+	}
+
+	private int activeLoans(long userId, long bookId) {
+		return jdbc.queryForObject("SELECT count(*) FROM borrowings " +
+				"WHERE user_id = ? AND book_id = ? AND returned_at IS NULL", Integer.class, userId, bookId);
+	}
+}
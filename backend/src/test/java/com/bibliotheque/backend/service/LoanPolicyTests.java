@@ -0,0 +1,42 @@
+package com.bibliotheque.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoanPolicyTests {
+
+	private static final LocalDateTime DUE = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+	private final LoanPolicy policy = policy();
+
+	@Test
+	void noFineBeforeDueDate() {
+		assertThat(policy.fine(DUE, DUE)).isNull();
+		assertThat(policy.fine(DUE, DUE.minusDays(1))).isNull();
+		assertThat(policy.fine(null, DUE)).isNull();
+	}
+
+	@Test
+	void everyStartedDayIsCharged() {
+		assertThat(policy.fine(DUE, DUE.plusSeconds(1))).isEqualByComparingTo("0.50");
+		assertThat(policy.fine(DUE, DUE.plusDays(3))).isEqualByComparingTo("1.50");
+		assertThat(policy.fine(DUE, DUE.plusDays(3).plusMinutes(1))).isEqualByComparingTo("2.00");
+	}
+
+	@Test
+	void fineIsCapped() {
+		assertThat(policy.fine(DUE, DUE.plusDays(365))).isEqualByComparingTo("20.00");
+	}
+
+	private static LoanPolicy policy() {
+		LoanPolicy policy = new LoanPolicy();
+		ReflectionTestUtils.setField(policy, "durationDays", 14);
+		ReflectionTestUtils.setField(policy, "finePerDay", new BigDecimal("0.50"));
+		ReflectionTestUtils.setField(policy, "maxFine", new BigDecimal("20.00"));
+		return policy;
+	}
+}
@@ -0,0 +1,45 @@
+package com.bibliotheque.backend.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.json.JsonMapper;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Export NDJSON : les lignes sont lues au fil de l'écriture, et le contexte de persistance est
+ * vidé tous les 500 lignes au lieu de retenir toute la table.
+ */
+class NdjsonExporterTests {
+
+	@Test
+	void rowsAreWrittenWhileTheyAreRead() throws Exception {
+		EntityManager entityManager = mock(EntityManager.class);
+		NdjsonExporter exporter = new NdjsonExporter(mock(PlatformTransactionManager.class), entityManager,
+				JsonMapper.builder().build());
+
+		AtomicInteger read = new AtomicInteger();
+		List<Integer> readAtClear = new ArrayList<>();
+		doAnswer(invocation -> readAtClear.add(read.get())).when(entityManager).clear();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exporter.export(() -> Stream.iterate(1, i -> i <= 1_200, i -> i + 1)
+				.peek(i -> read.incrementAndGet())
+				.map(i -> Map.of("id", i))).getBody().writeTo(out);
+
+		// Chaque vidage arrive juste après sa 500e ligne, pas après la lecture complète
+		assertThat(readAtClear).containsExactly(500, 1_000);
+		String[] lines = out.toString().split("\n");
+		assertThat(lines).hasSize(1_200);
+		assertThat(lines[1_199]).isEqualTo("{\"id\":1200}");
+	}
+}
@@ -0,0 +1,115 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.repository.OverdueLoanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Un passage du job des retards sur PostgreSQL : lots parcourus par curseur (due_at, id) y compris
+ * à échéance égale, ligne verrouillée par un retour en cours sautée puis reprise, amende égale à
+ * LoanPolicy.fine à l'instant du marquage, une notification par emprunt.
+ */
+class OverdueLoanServiceTests extends EmbeddedPostgresTest {
+
+	@Autowired
+	private OverdueLoanRepository overdueLoanRepository;
+
+	@Autowired
+	private LoanPolicy loanPolicy;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	// Lots de 2 : les cinq emprunts en retard en demandent trois
+	private OverdueLoanService service() {
+		return new OverdueLoanService(overdueLoanRepository, loanPolicy, transactionManager, new SimpleMeterRegistry(), 2);
+	}
+
+	@Test
+	void runMarksEveryDueLoanInBatches() {
+		long user = newUser();
+		LocalDateTime now = LocalDateTime.now();
+		LocalDateTime sameDue = now.minusDays(2);
+		List<Long> overdue = new ArrayList<>(List.of(
+				loan(user, now.minusSeconds(30)),
+				loan(user, sameDue), loan(user, sameDue), loan(user, sameDue),
+				loan(user, now.minusDays(400))));
+		long notDue = loan(user, now.plusDays(1));
+		long returned = loan(user, now.minusDays(5));
+		jdbc.update("UPDATE borrowings SET returned_at = now() WHERE id = ?", returned);
+
+		assertThat(service().processOverdueLoans()).isGreaterThanOrEqualTo(overdue.size());
+
+		for (long id : overdue) {
+			Map<String, Object> row = jdbc.queryForMap("SELECT due_at, overdue_at, fine FROM borrowings WHERE id = ?", id);
+			LocalDateTime dueAt = ((Timestamp) row.get("due_at")).toLocalDateTime();
+			LocalDateTime markedAt = ((Timestamp) row.get("overdue_at")).toLocalDateTime();
+			// Calcul SQL et calcul Java sur les mêmes instants
+			assertThat((BigDecimal) row.get("fine")).isEqualByComparingTo(loanPolicy.fine(dueAt, markedAt));
+			assertThat(notifications(id)).hasSize(1).first().asString()
+					.contains("Livre").contains(loanPolicy.fine(dueAt, markedAt).toPlainString());
+		}
+		assertThat(fine(overdue.get(0))).isEqualByComparingTo(loanPolicy.getFinePerDay());
+		assertThat(fine(overdue.get(4))).isEqualByComparingTo(loanPolicy.getMaxFine());
+		for (long id : List.of(notDue, returned)) {
+			assertThat(jdbc.queryForObject("SELECT overdue_at FROM borrowings WHERE id = ?", Timestamp.class, id)).isNull();
+			assertThat(notifications(id)).isEmpty();
+		}
+
+		// Déjà marqués : rien à refaire, pas de seconde notification
+		service().processOverdueLoans();
+		for (long id : overdue) assertThat(notifications(id)).hasSize(1);
+	}
+
+	@Test
+	void loanLockedByAReturnIsSkippedThenPickedUp() throws Exception {
+		long user = newUser();
+		LocalDateTime now = LocalDateTime.now();
+		long locked = loan(user, now.minusDays(3)), free = loan(user, now.minusDays(3));
+
+		// Retour en cours : ligne verrouillée dans une autre transaction
+		try (Connection connection = jdbc.getDataSource().getConnection()) {
+			connection.setAutoCommit(false);
+			try (PreparedStatement lock = connection.prepareStatement("SELECT id FROM borrowings WHERE id = ? FOR UPDATE")) {
+				lock.setLong(1, locked);
+				lock.executeQuery().close();
+			}
+			service().processOverdueLoans();
+			assertThat(jdbc.queryForObject("SELECT overdue_at FROM borrowings WHERE id = ?", Timestamp.class, locked)).isNull();
+			assertThat(jdbc.queryForObject("SELECT overdue_at FROM borrowings WHERE id = ?", Timestamp.class, free)).isNotNull();
+			connection.rollback();
+		}
+
+		service().processOverdueLoans();
+		assertThat(jdbc.queryForObject("SELECT overdue_at FROM borrowings WHERE id = ?", Timestamp.class, locked)).isNotNull();
+		assertThat(notifications(locked)).hasSize(1);
+	}
+
+	private long loan(long userId, LocalDateTime dueAt) {
+		return jdbc.queryForObject("INSERT INTO borrowings (user_id, book_id, borrowed_at, due_at) " +
+				"VALUES (?, ?, ?, ?) RETURNING id", Long.class, userId, newBook(1),
+				Timestamp.valueOf(dueAt.minusDays(14)), Timestamp.valueOf(dueAt));
+	}
+
+	private BigDecimal fine(long borrowingId) {
+		return jdbc.queryForObject("SELECT fine FROM borrowings WHERE id = ?", BigDecimal.class, borrowingId);
+	}
+
+	private List<String> notifications(long borrowingId) {
+		return jdbc.queryForList("SELECT message FROM notifications WHERE borrowing_id = ? AND type = ?",
+				String.class, borrowingId, OverdueLoanRepository.OVERDUE);
+	}
+}
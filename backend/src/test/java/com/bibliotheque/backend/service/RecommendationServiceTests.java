@@ -0,0 +1,83 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.dto.BorrowingView;
+import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.event.BorrowingEvent;
+import com.bibliotheque.backend.repository.BookRepository;
+import com.bibliotheque.backend.repository.CoBorrowingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.Mockito.*;
+
+/**
+ * Mise à jour incrémentale du modèle après un emprunt : hors du thread qui valide l'emprunt, un
+ * échec de lecture n'est pas propagé, et la version du catalogue change une fois le modèle à jour.
+ */
+class RecommendationServiceTests {
+
+	private final CoBorrowingRepository history = mock(CoBorrowingRepository.class);
+	private final BookRepository books = mock(BookRepository.class);
+	private final CatalogVersion version = new CatalogVersion();
+	private final long initial = version.current();
+	private final RecommendationService service = new RecommendationService(history, books, version,
+			mock(PlatformTransactionManager.class), 10, 50, 1, 20_000, 100);
+
+	@AfterEach
+	void stop() {
+		service.shutdown();
+	}
+
+	@Test
+	void borrowIsAddedInTheBackground() throws Exception {
+		CountDownLatch reading = new CountDownLatch(1), release = new CountDownLatch(1);
+		when(history.recentBooks(7L, 100L, 10)).thenAnswer(invocation -> {
+			reading.countDown();
+			release.await();
+			return new long[]{1L};
+		});
+		when(books.findAllById(List.of(2L))).thenReturn(List.of(Book.builder().id(2L).title("Suite").build()));
+
+		// Lecture de l'historique bloquée : l'écouteur rend la main quand même
+		service.onBorrowing(borrowed(100L, 7L, 2L));
+		assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(version.current()).isEqualTo(initial);
+
+		release.countDown();
+		awaitVersion(1);
+		assertThat(service.recommend(1L, 10)).extracting(Book::getId).containsExactly(2L);
+	}
+
+	@Test
+	void failedReadDoesNotFailTheBorrow() throws Exception {
+		when(history.recentBooks(7L, 100L, 10)).thenThrow(new DataAccessResourceFailureException("connexion perdue"));
+		when(history.recentBooks(7L, 101L, 10)).thenReturn(new long[]{1L});
+
+		assertThatCode(() -> service.onBorrowing(borrowed(100L, 7L, 2L))).doesNotThrowAnyException();
+		service.onBorrowing(borrowed(101L, 7L, 3L));
+
+		// L'échec est absorbé, l'emprunt suivant est bien traité
+		awaitVersion(1);
+		verify(history).recentBooks(7L, 101L, 10);
+	}
+
+	// Incréments attendus depuis la création du service
+	private void awaitVersion(long bumps) throws InterruptedException {
+		long expected = initial + bumps;
+		for (int i = 0; i < 500 && version.current() < expected; i++) Thread.sleep(10);
+		assertThat(version.current()).isEqualTo(expected);
+	}
+
+	private static BorrowingEvent borrowed(long id, long userId, long bookId) {
+		BorrowingView view = new BorrowingView(id, bookId, "Livre", "Auteur", "isbn", userId, "lecteur",
+				null, null, null, null);
+		return new BorrowingEvent(BorrowingEvent.Type.BORROWED, view, 0);
+	}
+}
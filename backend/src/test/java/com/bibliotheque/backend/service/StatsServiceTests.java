@@ -0,0 +1,96 @@
+package com.bibliotheque.backend.service;
+
+import com.bibliotheque.backend.EmbeddedPostgresTest;
+import com.bibliotheque.backend.entity.Book;
+import com.bibliotheque.backend.event.BookEvent;
+import com.bibliotheque.backend.repository.BookRepository;
+import com.bibliotheque.backend.repository.BorrowingRepository;
+import com.bibliotheque.backend.repository.BorrowingStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compteurs en mémoire tenus par les évènements : après emprunts, retours, réservations et
+ * modifications du catalogue, identiques à un recomptage en base ; un évènement appliqué pendant
+ * le réalignement n'est pas écrasé par celui-ci.
+ */
+class StatsServiceTests extends EmbeddedPostgresTest {
+
+	@Autowired
+	private StatsService statsService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BorrowingService borrowingService;
+
+	@Autowired
+	private HoldService holdService;
+
+	@Test
+	void eventsKeepTheCountersEqualToAFreshCount() {
+		// Livres insérés par SQL dans les autres tests : point de départ aligné sur la base
+		statsService.reconcile();
+		long reader = newUser(), other = newUser();
+
+		Book single = bookService.create(book(1)), pair = bookService.create(book(2)), empty = bookService.create(book(0));
+		borrowingService.borrow(reader, single.getId());
+		borrowingService.borrowAll(reader, List.of(pair.getId(), empty.getId()));
+		borrowingService.borrow(other, pair.getId());
+		holdService.place(other, single.getId());
+		// Rendu à la file puis retiré : stock à 0 tout du long
+		borrowingService.returnBook(reader, single.getId());
+		borrowingService.borrow(other, single.getId());
+		borrowingService.returnAll(reader, List.of(pair.getId()));
+		bookService.update(empty.getId(), book(3));
+		bookService.update(pair.getId(), book(0));
+		Book removed = bookService.create(book(4));
+		bookService.delete(removed.getId());
+
+		Map<String, Long> counted = statsService.getGeneralStats();
+		statsService.reconcile();
+		assertThat(counted).isEqualTo(statsService.getGeneralStats());
+		assertThat(counted.get("totalBooks")).isEqualTo(jdbc.queryForObject("SELECT count(*) FROM books", Long.class));
+		assertThat(counted.get("activeBorrowings"))
+				.isEqualTo(jdbc.queryForObject("SELECT count(*) FROM borrowings WHERE returned_at IS NULL", Long.class));
+	}
+
+	@Test
+	void eventDuringReconcileIsNotOverwritten() throws Exception {
+		BookRepository books = mock(BookRepository.class);
+		BorrowingStatsRepository totals = mock(BorrowingStatsRepository.class);
+		StatsService stats = new StatsService(mock(BorrowingRepository.class), books, totals, new CatalogVersion());
+
+		// Livre créé pendant la lecture des compteurs, validé après elle : absent du comptage
+		Thread creation = new Thread(() -> stats.onBook(new BookEvent(99L, null, 1)));
+		when(books.count()).thenAnswer(invocation -> {
+			creation.start();
+			creation.join(200);
+			return 10L;
+		});
+		when(books.countByStockGreaterThan(0)).thenReturn(7L);
+		when(books.countByStockEquals(0)).thenReturn(3L);
+		when(totals.bookTotals()).thenReturn(List.of());
+		when(totals.userTotals()).thenReturn(List.of());
+
+		stats.reconcile();
+		creation.join(TimeUnit.SECONDS.toMillis(5));
+
+		assertThat(stats.getGeneralStats())
+				.containsEntry("totalBooks", 11L)
+				.containsEntry("availableBooks", 8L)
+				.containsEntry("unavailableBooks", 3L);
+	}
+
+	private static Book book(int stock) {
+		return Book.builder().title("Compté").author("Auteur").isbn("stats-" + System.nanoTime()).stock(stock).build();
+	}
+}
@@ -1,10 +1,13 @@
 -- Database schema for Library Management System
 -- PostgreSQL mandatory
+-- Le backend applique ses propres migrations Flyway (backend/src/main/resources/db/migration) :
+-- ce script reste utile pour une base de démonstration avec ses données initiales.
 
 -- 1. Users table
 CREATE TABLE IF NOT EXISTS users (
     id SERIAL PRIMARY KEY,
     username VARCHAR(50) UNIQUE NOT NULL,
+    email VARCHAR(100) UNIQUE,
     password_hash VARCHAR(255) NOT NULL,
     role VARCHAR(20) NOT NULL CHECK (role IN ('USER', 'ADMIN')),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
@@ -26,7 +29,10 @@ CREATE TABLE IF NOT EXISTS borrowings (
     user_id INT REFERENCES users(id) ON DELETE CASCADE,
     book_id INT REFERENCES books(id) ON DELETE CASCADE,
     borrowed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    due_at TIMESTAMP,
     returned_at TIMESTAMP,
+    overdue_at TIMESTAMP,
+    fine NUMERIC(10, 2),
     CONSTRAINT fk_user FOREIGN KEY (user_id) REFERENCES users(id),
     CONSTRAINT fk_book FOREIGN KEY (book_id) REFERENCES books(id)
 );
@@ -35,6 +41,33 @@ CREATE TABLE IF NOT EXISTS borrowings (
 CREATE INDEX idx_books_title ON books(title);
 CREATE INDEX idx_books_isbn ON books(isbn);
 
+-- Un seul emprunt actif par utilisateur et par livre (remplace la vérification applicative)
+CREATE UNIQUE INDEX IF NOT EXISTS uq_borrowings_active_loan
+    ON borrowings (user_id, book_id) WHERE returned_at IS NULL;
+
+-- Emprunts actifs paginés par id, historique par utilisateur, clé étrangère vers books
+CREATE INDEX IF NOT EXISTS idx_borrowings_active_id ON borrowings (id) WHERE returned_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_borrowings_user ON borrowings (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_borrowings_book ON borrowings (book_id);
+
+-- Emprunts actifs pas encore passés en retard, dans l'ordre de traitement du planificateur
+CREATE INDEX IF NOT EXISTS idx_borrowings_overdue_pending
+    ON borrowings (due_at, id) WHERE returned_at IS NULL AND overdue_at IS NULL;
+
+-- 4. Notifications (file d'envoi)
+CREATE TABLE IF NOT EXISTS notifications (
+    id SERIAL PRIMARY KEY,
+    user_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    borrowing_id INT,
+    type VARCHAR(30) NOT NULL,
+    message VARCHAR(500) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP,
+    CONSTRAINT uq_notifications_borrowing_type UNIQUE (borrowing_id, type)
+);
+
+CREATE INDEX IF NOT EXISTS idx_notifications_pending ON notifications (id) WHERE sent_at IS NULL;
+
 -- PL/pgSQL Function to check if a book is available
 CREATE OR REPLACE FUNCTION check_book_availability(b_id INT)
 RETURNS BOOLEAN AS $$
@@ -0,0 +1,55 @@
+// src/hooks/useAvailability.js
+import { useEffect, useRef } from 'react';
+import api from '../api/axios';
+
+// Flux SSE des stocks et compteurs (regroupés côté serveur) : remplace le rechargement des listes.
+// EventSource n'envoie pas d'en-tête Authorization : le JWT est échangé contre un ticket à usage
+// unique, passé en paramètre. Un ticket ne sert qu'une fois, chaque reconnexion en redemande un.
+const RECONNECT_MS = 3000;
+
+const useAvailability = (onUpdate) => {
+    const handler = useRef(onUpdate);
+
+    useEffect(() => {
+        handler.current = onUpdate;
+    }, [onUpdate]);
+
+    useEffect(() => {
+        if (!localStorage.getItem('token')) return undefined;
+
+        let source = null;
+        let retry = null;
+        let closed = false;
+        const listener = (e) => handler.current(JSON.parse(e.data));
+
+        const connect = async () => {
+            try {
+                const { data } = await api.post('/events/ticket');
+                if (closed) return;
+                source = new EventSource(
+                    `${api.defaults.baseURL}/events/availability?ticket=${encodeURIComponent(data.ticket)}`
+                );
+                source.addEventListener('availability', listener);
+                // Coupure (ou client trop lent déconnecté) : nouvelle connexion avec un nouveau ticket
+                source.onerror = () => {
+                    source.close();
+                    if (!closed) retry = setTimeout(connect, RECONNECT_MS);
+                };
+            } catch {
+                if (!closed) retry = setTimeout(connect, RECONNECT_MS);
+            }
+        };
+        connect();
+
+        return () => {
+            closed = true;
+            clearTimeout(retry);
+            if (source) {
+                source.removeEventListener('availability', listener);
+                source.close();
+            }
+        };
+    }, []);
+};
+
+export default useAvailability;
@@ -2,6 +2,7 @@ import React, { useEffect, useState } from 'react';
 import { useNavigate } from 'react-router-dom';
 import api from '../api/axios';
 import { useAuth } from '../context/AuthContext';
+import useAvailability from '../hooks/useAvailability';
 import { toast } from 'react-toastify';
 import { Search, RotateCcw, BookOpen, User, Hash, Package, ShoppingCart, Pencil, Trash2, Library } from 'lucide-react';
 
@@ -24,6 +25,15 @@ const Books = () => {
 
     useEffect(() => { fetchBooks(); }, []);
 
+    // Stocks mis à jour en direct, sans recharger le catalogue
+    useAvailability(({ books: changes }) => {
+        if (!changes.length) return;
+        const byId = new Map(changes.map(c => [c.id, c]));
+        setBooks(prev => prev
+            .filter(book => !byId.get(book.id)?.deleted)
+            .map(book => byId.has(book.id) ? { ...book, stock: byId.get(book.id).stock } : book));
+    });
+
     useEffect(() => {
         const timeoutId = setTimeout(() => {
             fetchBooks(query);
@@ -46,6 +56,15 @@ const Books = () => {
         }
     };
 
+    const handleHold = async (bookId) => {
+        try {
+            const res = await api.post('/borrowings/holds', { bookId });
+            toast.success(`Réservation enregistrée (position ${res.data.position}).`);
+        } catch (err) {
+            toast.error(err.response?.data?.error || 'Erreur lors de la réservation.');
+        }
+    };
+
     const handleDelete = async (id) => {
         if (!window.confirm('Voulez-vous vraiment supprimer ce livre ?')) return;
         try {
@@ -126,8 +145,11 @@ const Books = () => {
                                         Emprunter
                                     </button>
                                 ) : (
-                                    <button className="btn btn-secondary action-btn" disabled>
-                                        Indisponible
+                                    <button
+                                        className="btn btn-secondary action-btn"
+                                        onClick={() => handleHold(book.id)}
+                                    >
+                                        Réserver
                                     </button>
                                 )
                             )}
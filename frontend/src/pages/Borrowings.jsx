@@ -7,6 +7,7 @@ import { ClipboardList, Book, Calendar, CheckCircle, RotateCcw, Clock, AlertCirc
 const Borrowings = () => {
     const { user } = useAuth();
     const [borrowings, setBorrowings] = useState([]);
+    const [holds, setHolds] = useState([]);
     const [isLoading, setIsLoading] = useState(true);
 
     const fetchBorrowings = async () => {
@@ -14,6 +15,7 @@ const Borrowings = () => {
             const endpoint = user.role === 'ADMIN' ? '/borrowings' : '/borrowings/my';
             const res = await api.get(endpoint);
             setBorrowings(res.data);
+            if (user.role !== 'ADMIN') setHolds((await api.get('/borrowings/holds/my')).data);
         } catch (err) {
             toast.error('Erreur lors du chargement des emprunts.');
         } finally {
@@ -36,6 +38,26 @@ const Borrowings = () => {
         }
     };
 
+    const handleBorrowHeld = async (bookId) => {
+        try {
+            await api.post('/borrowings/borrow', { bookId });
+            toast.success('Emprunt effectué !');
+            fetchBorrowings();
+        } catch (err) {
+            toast.error(err.response?.data?.error || 'Erreur lors de l\'emprunt.');
+        }
+    };
+
+    const handleCancelHold = async (id) => {
+        try {
+            await api.delete(`/borrowings/holds/${id}`);
+            toast.success('Réservation annulée.');
+            fetchBorrowings();
+        } catch (err) {
+            toast.error(err.response?.data?.error || 'Erreur lors de l\'annulation.');
+        }
+    };
+
     if (isLoading) return <div className="loading-state">Chargement des emprunts...</div>;
 
     const active = borrowings.filter(b => !b.returnedAt);
@@ -56,6 +78,63 @@ const Borrowings = () => {
             </header>
 
             <div className="borrowings-layout">
+                {holds.length > 0 && (
+                    <section className="borrowings-section card">
+                        <div className="section-header">
+                            <h2 className="section-title">
+                                <Calendar size={20} />
+                                Réservations ({holds.length})
+                            </h2>
+                        </div>
+                        <div className="table-wrapper">
+                            <table className="borrowings-table">
+                                <thead>
+                                    <tr>
+                                        <th>Livre</th>
+                                        <th>Statut</th>
+                                        <th>Action</th>
+                                    </tr>
+                                </thead>
+                                <tbody>
+                                    {holds.map(h => (
+                                        <tr key={h.id}>
+                                            <td>
+                                                <div className="book-cell">
+                                                    <Book size={16} className="text-muted" />
+                                                    <span className="book-title">{h.title}</span>
+                                                </div>
+                                            </td>
+                                            <td>
+                                                {h.status === 'READY' ? (
+                                                    <span className="status-badge success">
+                                                        <CheckCircle size={14} />
+                                                        Disponible jusqu'au {new Date(h.expiresAt).toLocaleDateString()}
+                                                    </span>
+                                                ) : (
+                                                    <span className="status-badge">
+                                                        <Clock size={14} />
+                                                        En file{h.position ? ` (position ${h.position})` : ''}
+                                                    </span>
+                                                )}
+                                            </td>
+                                            <td>
+                                                {h.status === 'READY' && (
+                                                    <button className="btn-action student-btn" onClick={() => handleBorrowHeld(h.bookId)}>
+                                                        Emprunter
+                                                    </button>
+                                                )}
+                                                <button className="btn-action" onClick={() => handleCancelHold(h.id)}>
+                                                    Annuler
+                                                </button>
+                                            </td>
+                                        </tr>
+                                    ))}
+                                </tbody>
+                            </table>
+                        </div>
+                    </section>
+                )}
+
                 <section className="borrowings-section card">
                     <div className="section-header">
                         <h2 className="section-title active-title">
@@ -20,16 +20,16 @@ const Profile = () => {
 
     const fetchAdminStats = async () => {
         try {
-            const [booksRes, usersRes, borrowingsRes] = await Promise.all([
-                api.get('/books'),
-                api.get('/users'),
-                api.get('/borrowings')
+            // Compteurs tenus par le serveur : /borrowings n'est plus qu'une page de la liste
+            const [statsRes, usersRes] = await Promise.all([
+                api.get('/stats/general'),
+                api.get('/users')
             ]);
             setStats({
-                totalBooks: booksRes.data.length,
+                totalBooks: statsRes.data.totalBooks,
                 totalUsers: usersRes.data.length,
-                totalBorrowings: borrowingsRes.data.length,
-                activeBorrowings: borrowingsRes.data.filter(b => !b.returnDate).length
+                totalBorrowings: statsRes.data.totalBorrowings,
+                activeBorrowings: statsRes.data.activeBorrowings
             });
         } catch (err) {
             console.error('Erreur lors du chargement des stats:', err);
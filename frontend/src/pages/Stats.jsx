@@ -2,6 +2,7 @@ import React, { useEffect, useState } from 'react';
 import api from '../api/axios';
 import { TrendingUp, Users, BookOpen, Activity, CheckCircle, XCircle, Award, Library, Clock, User } from 'lucide-react';
 import { toast } from 'react-toastify';
+import useAvailability from '../hooks/useAvailability';
 
 const Stats = () => {
     const [topBooks, setTopBooks] = useState([]);
@@ -36,6 +37,8 @@ const Stats = () => {
         fetchStats();
     }, []);
 
+    useAvailability(({ stats }) => setGeneralStats(stats));
+
     if (isLoading) {
         return <div className="loading-state">Chargement des données...</div>;
     }